@@ -0,0 +1,44 @@
+package com.coffeeshop.scheduler.alert;
+
+/**
+ * One manager alert. Immutable once appended to the {@link AlertLog}.
+ */
+public class Alert {
+
+    public enum AlertType {
+        WARNING,         // Order approaching timeout (8 min)
+        CRITICAL,        // Order force-assigned (9 min)
+        FAIRNESS,        // Order skipped past the fairness threshold
+        AUTO_COMPLAINT   // Complaint filed for a 10 min wait
+    }
+
+    private long seq;
+    private final AlertType type;
+    private final long orderId;
+    private final Long baristaId;
+    private final long timestamp;
+    private final String message;
+
+    public Alert(AlertType type, long orderId, Long baristaId, long timestamp, String message) {
+        this.type = type;
+        this.orderId = orderId;
+        this.baristaId = baristaId;
+        this.timestamp = timestamp;
+        this.message = message;
+    }
+
+    // At most one alert of each type per order
+    long dedupKey() {
+        return orderId * AlertType.values().length + type.ordinal();
+    }
+
+    // Set once by AlertLog before the alert is published to readers
+    void setSeq(long seq) { this.seq = seq; }
+
+    public long getSeq() { return seq; }
+    public AlertType getType() { return type; }
+    public long getOrderId() { return orderId; }
+    public Long getBaristaId() { return baristaId; }
+    public long getTimestamp() { return timestamp; }
+    public String getMessage() { return message; }
+}
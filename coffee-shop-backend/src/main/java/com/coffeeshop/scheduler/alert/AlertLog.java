@@ -0,0 +1,96 @@
+package com.coffeeshop.scheduler.alert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, lock-free ring of the most recent alerts.
+ *
+ * Writers claim a sequence number and publish into slot {@code seq & mask};
+ * readers walk a sequence range and keep only slots still holding that
+ * sequence, so they never block writers and never see a half-written
+ * alert. Sequence numbers start at 1 and are the read cursor for
+ * {@link #since}.
+ *
+ * An alert is dropped if one of the same type for the same order is still
+ * in the ring; the de-dup entry is evicted with the alert, so its memory
+ * stays bounded by the capacity.
+ */
+public class AlertLog {
+
+    private final AtomicReferenceArray<Alert> slots;
+    private final int mask;
+
+    // Next sequence number to hand out
+    private final AtomicLong nextSeq = new AtomicLong(1);
+
+    // Alerts at or below this sequence were cleared
+    private final AtomicLong clearedThrough = new AtomicLong(0);
+
+    private final ConcurrentHashMap<Long, Alert> live = new ConcurrentHashMap<>();
+
+    public AlertLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the appended alert, or null if it duplicates one still in the log
+     */
+    public Alert append(Alert alert) {
+        if (live.putIfAbsent(alert.dedupKey(), alert) != null) {
+            return null;
+        }
+        long seq = nextSeq.getAndIncrement();
+        alert.setSeq(seq);
+        Alert evicted = slots.getAndSet((int) (seq & mask), alert);
+        if (evicted != null) {
+            live.remove(evicted.dedupKey(), evicted);
+        }
+        return alert;
+    }
+
+    /**
+     * Alerts with a sequence number greater than {@code seq}, oldest first.
+     * Alerts already overwritten are skipped; the result stops before any
+     * alert that is still being written, so the last sequence returned is
+     * a safe cursor for the next call.
+     */
+    public List<Alert> since(long seq) {
+        long end = nextSeq.get();
+        long from = Math.max(Math.max(seq, clearedThrough.get()) + 1, end - slots.length());
+        List<Alert> result = new ArrayList<>((int) Math.max(0, end - from));
+        for (long s = from; s < end; s++) {
+            Alert alert = slots.get((int) (s & mask));
+            if (alert == null || alert.getSeq() < s) {
+                break;  // Claimed but not yet published
+            }
+            if (alert.getSeq() == s) {
+                result.add(alert);
+            }
+        }
+        return result;
+    }
+
+    public List<Alert> all() {
+        return since(0);
+    }
+
+    // Hide everything appended so far from later reads
+    public void clear() {
+        clearedThrough.accumulateAndGet(nextSeq.get() - 1, Math::max);
+    }
+
+    // Sequence number of the latest claimed alert (0 if none)
+    public long lastSeq() {
+        return nextSeq.get() - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+}
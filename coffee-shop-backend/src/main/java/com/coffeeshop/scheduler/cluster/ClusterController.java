@@ -0,0 +1,126 @@
+package com.coffeeshop.scheduler.cluster;
+
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.service.ShopState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Node-to-node endpoints: heartbeats, departures and shop moves.
+ * Requests here are never forwarded, and all but the overview need the
+ * shared cluster token ({@link ClusterService#TOKEN_HEADER}).
+ */
+@RestController
+@RequestMapping("/api/cluster")
+@ConditionalOnProperty(name = "scheduler.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    @Autowired
+    private ClusterService cluster;
+
+    @Autowired
+    private ShopRegistry shopRegistry;
+
+    /**
+     * Membership, and which shops this node holds
+     * GET /api/cluster
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getCluster() {
+        TreeSet<String> local = new TreeSet<>();
+        for (ShopScheduler shop : shopRegistry.getShops()) {
+            local.add(shop.getShopId());
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("self", cluster.getSelf());
+        data.put("members", cluster.getMembers());
+        data.put("shops", local);
+        data.put("arriving", new TreeSet<>(cluster.getStagedShops()));
+        return ResponseEntity.ok(data);
+    }
+
+    /**
+     * Heartbeat from a peer
+     * GET /api/cluster/ping?from={node}
+     */
+    @GetMapping("/ping")
+    public ResponseEntity<Map<String, Object>> ping(@RequestParam(required = false) String from,
+                                                    @RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        if (!cluster.isTrusted(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (cluster.isLeaving()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("node", cluster.getSelf());
+        data.put("members", List.copyOf(cluster.onPing(from)));
+        return ResponseEntity.ok(data);
+    }
+
+    /**
+     * A peer is shutting down
+     * POST /api/cluster/leave?node={node}
+     */
+    @PostMapping("/leave")
+    public ResponseEntity<Void> leave(@RequestParam String node,
+                                      @RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        if (!cluster.isTrusted(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        cluster.onLeave(node);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Incoming move, part 1: full state of the shop
+     * POST /api/cluster/shops/{shopId}/snapshot
+     */
+    @PostMapping("/shops/{shopId}/snapshot")
+    public ResponseEntity<Map<String, Object>> receiveSnapshot(@PathVariable String shopId,
+                                                               @RequestBody ShopState snapshot,
+                                                               @RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        if (!cluster.isTrusted(token)) {
+            return forbidden();
+        }
+        try {
+            cluster.receiveSnapshot(shopId, snapshot);
+            return ResponseEntity.ok(Map.of("shopId", shopId, "staged", true));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Incoming move, part 2: what changed since the snapshot; the shop
+     * starts serving here
+     * POST /api/cluster/shops/{shopId}/tail
+     */
+    @PostMapping("/shops/{shopId}/tail")
+    public ResponseEntity<Map<String, Object>> receiveTail(@PathVariable String shopId,
+                                                           @RequestBody ShopState.Tail tail,
+                                                           @RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        if (!cluster.isTrusted(token)) {
+            return forbidden();
+        }
+        try {
+            cluster.receiveTail(shopId, tail);
+            return ResponseEntity.ok(Map.of("shopId", shopId, "active", true));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Missing or wrong cluster token"));
+    }
+}
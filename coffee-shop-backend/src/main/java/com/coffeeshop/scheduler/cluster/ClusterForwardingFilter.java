@@ -0,0 +1,250 @@
+package com.coffeeshop.scheduler.cluster;
+
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends every shop-scoped API request to the node that owns the shop.
+ *
+ * The shop id comes from the shopId parameter, the /api/shops/{shopId}
+ * path, or the JSON body of a POST; without one the default shop is
+ * meant. Requests are proxied (the client never sees the hop), except
+ * the event stream, which is redirected so the client holds its
+ * connection with the owner directly.
+ *
+ * The hop count is only believed on requests carrying the cluster token
+ * (that is, proxied by a peer); a client cannot use it to make a node
+ * serve a shop it does not own. A request that runs out of hops before
+ * reaching the owner is refused rather than served in the wrong place.
+ */
+@Component
+@ConditionalOnProperty(name = "scheduler.cluster.enabled", havingValue = "true")
+public class ClusterForwardingFilter extends OncePerRequestFilter {
+
+    private static final Pattern SHOP_PATH = Pattern.compile("^/api/shops/([^/]+)$");
+
+    // Headers worth passing on (the HTTP client sets the rest itself)
+    private static final List<String> FORWARDED_HEADERS = List.of(
+            "Content-Type", "Accept", "Authorization", "Last-Event-ID");
+
+    // Response headers that belong to the hop to the owner, not to the client's connection
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "content-length", "keep-alive", "transfer-encoding", "upgrade");
+
+    @Autowired
+    private ClusterService cluster;
+
+    @Autowired
+    private ShopRegistry shops;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith("/api/")) {
+            return true;
+        }
+        // Node-local or not shop-scoped
+        return path.startsWith("/api/cluster") || path.startsWith("/api/auth")
+                || path.startsWith("/api/complaints") || path.startsWith("/api/simulation")
+                || (path.equals("/api/shops") && "GET".equals(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        byte[] body = null;
+        String shopId = request.getParameter("shopId");
+        if (shopId == null) {
+            Matcher matcher = SHOP_PATH.matcher(request.getRequestURI());
+            if (matcher.matches()) {
+                shopId = matcher.group(1);
+            }
+        }
+        if (shopId == null && "POST".equals(request.getMethod())) {
+            body = request.getInputStream().readAllBytes();
+            shopId = shopIdFromBody(body);
+        }
+        if (shopId == null || shopId.isEmpty()) {
+            shopId = shops.getDefaultShopId();
+        }
+
+        int hops = cluster.isTrusted(request.getHeader(ClusterService.TOKEN_HEADER))
+                ? parseHops(request.getHeader(ClusterService.HOPS_HEADER))
+                : 0;
+        if (cluster.isArriving(shopId)) {
+            unavailable(response, "Shop " + shopId + " is moving to this node");
+            return;
+        }
+        String owner = cluster.route(shopId);
+        HttpServletRequest local = body != null ? new CachedBodyRequest(request, body) : request;
+        if (owner == null) {
+            chain.doFilter(local, response);
+        } else if (hops >= ClusterService.MAX_HOPS) {
+            // The nodes disagree on the owner (membership is changing); the client retries
+            unavailable(response, "Shop " + shopId + " is owned by " + owner + ", which could not be reached");
+        } else if (request.getRequestURI().equals("/api/stream")) {
+            response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+            response.setHeader("Location", owner + pathAndQuery(request));
+        } else {
+            proxy(owner, local, body, hops, response);
+        }
+    }
+
+    private void proxy(String owner, HttpServletRequest request, byte[] body, int hops,
+                       HttpServletResponse response) throws IOException {
+        if (body == null) {
+            body = request.getInputStream().readAllBytes();
+        }
+        HttpRequest.Builder forward = HttpRequest.newBuilder(URI.create(owner + pathAndQuery(request)))
+                .timeout(Duration.ofSeconds(10))
+                .header(ClusterService.HOPS_HEADER, String.valueOf(hops + 1))
+                .header(ClusterService.TOKEN_HEADER, cluster.getToken())
+                .method(request.getMethod(), body.length > 0
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        for (String header : FORWARDED_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                forward.header(header, value);
+            }
+        }
+
+        try {
+            HttpResponse<byte[]> answer = cluster.getHttpClient().send(forward.build(), HttpResponse.BodyHandlers.ofByteArray());
+            response.setStatus(answer.statusCode());
+            answer.headers().map().forEach((name, values) -> {
+                if (!name.startsWith(":") && !HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    for (String value : values) {
+                        response.addHeader(name, value);
+                    }
+                }
+            });
+            response.getOutputStream().write(answer.body());
+        } catch (IOException e) {
+            unavailable(response, "Owner node " + owner + " is unreachable");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response, "Interrupted while forwarding");
+        }
+    }
+
+    private void unavailable(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+
+    private String shopIdFromBody(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode shopId = objectMapper.readTree(body).get("shopId");
+            return shopId != null && shopId.isTextual() ? shopId.asText() : null;
+        } catch (IOException e) {
+            return null;  // Not JSON; the controller will reject it
+        }
+    }
+
+    private static String pathAndQuery(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getRequestURI() + (query != null ? "?" + query : "");
+    }
+
+    // Missing or malformed counts as a first hop
+    private static int parseHops(String header) {
+        try {
+            return header != null ? Math.max(0, Integer.parseInt(header)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Request whose body was already read (to find the shop id).
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is in memory: it is all available, and then all read
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
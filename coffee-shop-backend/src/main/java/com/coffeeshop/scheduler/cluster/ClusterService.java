@@ -0,0 +1,489 @@
+package com.coffeeshop.scheduler.cluster;
+
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.service.ShopState;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads shop partitions over several backend nodes.
+ *
+ * Nodes find each other through HTTP heartbeats, starting from a seed
+ * list; a node that stops answering for the failure timeout is dropped,
+ * and a node that shuts down announces it first. One that stays silent
+ * for several timeouts is forgotten (seeds excepted), so departed or
+ * mistyped addresses are not pinged forever. Every node builds the
+ * same {@link HashRing} from the live set, so all agree on each shop's
+ * owner without a coordinator.
+ *
+ * When the owner of a local shop changes, the shop moves: a full
+ * snapshot is sent while it keeps serving, then it stops, and the tail
+ * (whatever changed meanwhile) follows. Requests that reach the new owner
+ * in between are told to retry shortly. If the tail cannot be delivered the shop
+ * is rebuilt locally and the move is retried on the next heartbeat.
+ *
+ * Node-to-node requests carry the shared cluster token; the cluster
+ * endpoints refuse anything without it.
+ */
+@Component
+@ConditionalOnProperty(name = "scheduler.cluster.enabled", havingValue = "true")
+public class ClusterService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterService.class);
+
+    // Forwarded requests carry their hop count; past the limit they are refused
+    public static final String HOPS_HEADER = "X-Coffee-Hops";
+    public static final int MAX_HOPS = 2;
+
+    // Shared secret every node sends to, and expects from, its peers
+    public static final String TOKEN_HEADER = "X-Coffee-Cluster-Token";
+
+    private static final long STAGED_EXPIRY_MS = 30000;
+
+    // A non-seed peer silent for this many failure timeouts is forgotten
+    private static final int FORGET_AFTER_TIMEOUTS = 10;
+
+    @Value("${scheduler.cluster.self}")
+    private String self;
+
+    @Value("${scheduler.cluster.token:}")
+    private String token = "";
+
+    @Value("${scheduler.cluster.seeds:}")
+    private String[] seeds = {};
+
+    @Value("${scheduler.cluster.virtual-nodes:128}")
+    private int virtualNodes = 128;
+
+    @Value("${scheduler.cluster.heartbeat-ms:1000}")
+    private long heartbeatMs = 1000;
+
+    @Value("${scheduler.cluster.failure-timeout-ms:3000}")
+    private long failureTimeoutMs = 3000;
+
+    @Autowired
+    private ShopRegistry shops;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    // Known peers, and the seeds among them (never forgotten)
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private final Set<String> seedNodes = ConcurrentHashMap.newKeySet();
+    private volatile HashRing ring;
+
+    // Shops whose snapshot arrived and whose tail has not
+    private final Map<String, Staged> staged = new ConcurrentHashMap<>();
+
+    // Local shops with a move queued or running, so a heartbeat never queues a second
+    private final Set<String> moving = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService heartbeats;
+    private ExecutorService handoffs;  // One move at a time
+    private volatile boolean leaving;
+
+    @PostConstruct
+    public void init() {
+        if (token == null || token.isBlank()) {
+            throw new IllegalStateException("scheduler.cluster.token must be set when the cluster is enabled");
+        }
+        self = normalize(self);
+        for (String seed : seeds) {
+            if (!seed.isBlank() && !normalize(seed).equals(self)) {
+                seedNodes.add(normalize(seed));
+                peer(normalize(seed));
+            }
+        }
+        ring = new HashRing(List.of(self), virtualNodes);
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "cluster-heartbeat"));
+        handoffs = Executors.newSingleThreadExecutor(r -> daemon(r, "cluster-handoff"));
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leave gracefully: tell the peers, then hand every local shop to its
+     * owner in the ring without this node.
+     */
+    @PreDestroy
+    public void leave() {
+        leaving = true;
+        heartbeats.shutdownNow();
+        handoffs.shutdownNow();
+
+        List<String> peers = livePeers();
+        for (String peer : peers) {
+            send(post(peer + "/api/cluster/leave?node=" + encode(self), null));
+        }
+        HashRing remaining = new HashRing(peers, virtualNodes);
+        for (ShopScheduler shop : new ArrayList<>(shops.getShops())) {
+            String owner = remaining.owner(shop.getShopId());
+            if (owner != null) {
+                try {
+                    move(shop.getShopId(), owner);
+                } catch (RuntimeException e) {
+                    log.warn("Shop {} not moved to {}", shop.getShopId(), owner, e);
+                }
+            }
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // MEMBERSHIP
+    // ════════════════════════════════════════════════════════════════
+
+    public String getSelf() {
+        return self;
+    }
+
+    // Shutting down: heartbeats are refused so peers do not route here
+    public boolean isLeaving() {
+        return leaving;
+    }
+
+    public Set<String> getMembers() {
+        return ring.getNodes();
+    }
+
+    // Sent on every node-to-node request, including proxied client requests
+    public String getToken() {
+        return token;
+    }
+
+    // Whether a request came from a peer (constant time, so the token cannot be guessed bytewise)
+    public boolean isTrusted(String presented) {
+        return presented != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Node that owns the shop under the current view
+    public String ownerOf(String shopId) {
+        return ring.owner(shopId);
+    }
+
+    /**
+     * A peer's heartbeat. Learns about nodes that were not in our seeds.
+     *
+     * @return the members as this node sees them
+     */
+    public Set<String> onPing(String from) {
+        if (from != null && !leaving) {
+            String node = normalize(from);
+            if (!node.equals(self)) {
+                peer(node).lastSeenMs = System.currentTimeMillis();
+            }
+        }
+        return ring.getNodes();
+    }
+
+    // A peer is shutting down; stop routing to it right away
+    public void onLeave(String node) {
+        Peer peer = peers.get(normalize(node));
+        if (peer != null) {
+            peer.lastSeenMs = 0;
+        }
+        updateRing();
+    }
+
+    private void heartbeat() {
+        // All peers at once, so one slow peer costs a single timeout, not one per peer
+        Map<String, CompletableFuture<HttpResponse<String>>> pings = new HashMap<>();
+        for (String peer : peers.keySet()) {
+            pings.put(peer, http.sendAsync(get(peer + "/api/cluster/ping?from=" + encode(self)),
+                    HttpResponse.BodyHandlers.ofString()).exceptionally(e -> null));
+        }
+        for (Map.Entry<String, CompletableFuture<HttpResponse<String>>> ping : pings.entrySet()) {
+            String peer = ping.getKey();
+            try {
+                HttpResponse<String> response = ping.getValue().join();
+                if (response != null && response.statusCode() == 200) {
+                    peer(peer).lastSeenMs = System.currentTimeMillis();
+                    for (JsonNode member : objectMapper.readTree(response.body()).path("members")) {
+                        String node = normalize(member.asText());
+                        if (!node.equals(self)) {
+                            peer(node);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Unreachable or garbled: it ages out
+            }
+        }
+        forgetSilentPeers();
+        updateRing();
+        expireStaged();
+        rebalance();
+    }
+
+    private Peer peer(String node) {
+        return peers.computeIfAbsent(node, k -> new Peer(System.currentTimeMillis()));
+    }
+
+    private void forgetSilentPeers() {
+        long now = System.currentTimeMillis();
+        long limit = failureTimeoutMs * FORGET_AFTER_TIMEOUTS;
+        peers.entrySet().removeIf(entry -> {
+            Peer peer = entry.getValue();
+            boolean forget = !seedNodes.contains(entry.getKey())
+                    && now - Math.max(peer.lastSeenMs, peer.knownSinceMs) > limit;
+            if (forget) {
+                log.info("Forgetting peer {}: silent for over {} ms", entry.getKey(), limit);
+            }
+            return forget;
+        });
+    }
+
+    private synchronized void updateRing() {
+        List<String> live = livePeers();
+        live.add(self);
+        if (!new TreeSet<>(live).equals(ring.getNodes())) {
+            ring = new HashRing(live, virtualNodes);
+            log.info("Cluster members: {}", ring.getNodes());
+        }
+    }
+
+    private List<String> livePeers() {
+        long now = System.currentTimeMillis();
+        List<String> live = new ArrayList<>();
+        for (Map.Entry<String, Peer> entry : peers.entrySet()) {
+            if (now - entry.getValue().lastSeenMs <= failureTimeoutMs) {
+                live.add(entry.getKey());
+            }
+        }
+        return live;
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // HANDOFF
+    // ════════════════════════════════════════════════════════════════
+
+    // Move every local shop this node no longer owns
+    private void rebalance() {
+        for (ShopScheduler shop : shops.getShops()) {
+            String shopId = shop.getShopId();
+            String owner = ring.owner(shopId);
+            if (self.equals(owner) || !moving.add(shopId)) {
+                continue;
+            }
+            try {
+                handoffs.execute(() -> {
+                    // Owner as of now: the ring may have changed while queued
+                    String target = ring.owner(shopId);
+                    try {
+                        if (target != null && !self.equals(target)) {
+                            move(shopId, target);
+                        }
+                    } catch (RuntimeException e) {
+                        log.warn("Shop {} not moved to {}", shopId, target, e);
+                    } finally {
+                        moving.remove(shopId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                moving.remove(shopId);  // Leaving; leave() moves it
+            }
+        }
+    }
+
+    private void move(String shopId, String target) {
+        ShopScheduler shop = shops.get(shopId);
+        if (shop == null) {
+            return;
+        }
+        String base = target + "/api/cluster/shops/" + encode(shopId);
+
+        // 1. Snapshot, while the shop keeps serving
+        ShopState snapshot = shop.exportState();
+        HttpResponse<String> accepted = send(post(base + "/snapshot", snapshot));
+        if (accepted == null || accepted.statusCode() != 200) {
+            log.warn("Shop {} not moved to {}: snapshot refused", shopId, target);
+            return;
+        }
+
+        // 2. Stop serving here; the tail carries what changed since step 1
+        ShopState.Tail tail = shops.detach(shopId, snapshot.maxOrderId);
+        if (tail == null) {
+            return;
+        }
+        HttpResponse<String> done = send(post(base + "/tail", tail));
+        if (done == null || done.statusCode() != 200) {
+            log.warn("Shop {} not moved to {}: tail refused, keeping it here", shopId, target);
+            shops.adopt(snapshot.apply(tail));
+            return;
+        }
+        log.info("Shop {} moved to {}", shopId, target);
+    }
+
+    /**
+     * First half of an incoming move.
+     *
+     * @throws IllegalStateException if the shop is already active here
+     */
+    public void receiveSnapshot(String shopId, ShopState snapshot) {
+        ShopScheduler existing = shops.get(shopId);
+        if (existing != null && !existing.isIdle()) {
+            throw new IllegalStateException("Shop " + shopId + " is already active on " + self);
+        }
+        snapshot.shopId = shopId;
+        staged.put(shopId, new Staged(snapshot));
+    }
+
+    /**
+     * Second half: build the shop from snapshot plus tail and start serving.
+     *
+     * @throws IllegalStateException if no snapshot is staged
+     */
+    public void receiveTail(String shopId, ShopState.Tail tail) {
+        Staged arriving = staged.get(shopId);
+        if (arriving == null) {
+            throw new IllegalStateException("No snapshot staged for shop " + shopId);
+        }
+        try {
+            shops.adopt(arriving.snapshot.apply(tail));
+        } finally {
+            staged.remove(shopId);
+        }
+    }
+
+    /**
+     * Whether the shop's snapshot is here but its tail is not. Requests
+     * for it should be retried shortly rather than served or forwarded.
+     */
+    public boolean isArriving(String shopId) {
+        return staged.containsKey(shopId) && shops.get(shopId) == null;
+    }
+
+    /**
+     * Where a request for the shop should go.
+     *
+     * @return the owner's base URL, or null to serve it on this node
+     */
+    public String route(String shopId) {
+        if (shops.get(shopId) != null) {
+            return null;
+        }
+        String owner = ring.owner(shopId);
+        return owner == null || owner.equals(self) ? null : owner;
+    }
+
+    // A source that died between snapshot and tail
+    private void expireStaged() {
+        long now = System.currentTimeMillis();
+        staged.entrySet().removeIf(entry -> now - entry.getValue().createdMs > STAGED_EXPIRY_MS);
+    }
+
+    public Set<String> getStagedShops() {
+        return staged.keySet();
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // HTTP
+    // ════════════════════════════════════════════════════════════════
+
+    private HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(Math.max(500, heartbeatMs)))
+                .header(TOKEN_HEADER, token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String url, Object body) {
+        try {
+            byte[] json = body != null ? objectMapper.writeValueAsBytes(body) : new byte[0];
+            return HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .header(TOKEN_HEADER, token)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode " + body.getClass().getSimpleName(), e);
+        }
+    }
+
+    // Null if the node could not be reached
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    public HttpClient getHttpClient() {
+        return http;
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class Peer {
+        final long knownSinceMs;
+        volatile long lastSeenMs;  // Last successful heartbeat (0 = never, or departed)
+
+        Peer(long knownSinceMs) {
+            this.knownSinceMs = knownSinceMs;
+        }
+    }
+
+    private static final class Staged {
+        final ShopState snapshot;
+        final long createdMs = System.currentTimeMillis();
+
+        Staged(ShopState snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.coffeeshop.scheduler.controller;
 
 import com.coffeeshop.scheduler.entity.Complaint;
 import com.coffeeshop.scheduler.repository.ComplaintRepository;
+import com.coffeeshop.scheduler.service.ShopRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,13 +18,18 @@ public class ComplaintController {
     @Autowired
     private ComplaintRepository complaintRepository;
     
+    @Autowired
+    private ShopRegistry shopRegistry;
+    
     /**
      * Submit a new complaint
      * POST /api/complaints
      */
     @PostMapping
     public ResponseEntity<Complaint> submitComplaint(@RequestBody ComplaintRequest request) {
+        String shopId = request.shopId != null ? request.shopId : shopRegistry.getDefaultShopId();
         Complaint complaint = new Complaint(
+            shopId,
             request.baristaName,
             request.username,
             request.message
@@ -33,26 +39,32 @@ public class ComplaintController {
     }
     
     /**
-     * Get all complaints (newest first)
-     * GET /api/complaints
+     * Get all complaints (newest first), optionally for one shop
+     * GET /api/complaints?shopId={shopId}
      */
     @GetMapping
-    public ResponseEntity<List<Complaint>> getAllComplaints() {
-        return ResponseEntity.ok(complaintRepository.findAllByOrderByCreatedAtDesc());
+    public ResponseEntity<List<Complaint>> getAllComplaints(@RequestParam(required = false) String shopId) {
+        return ResponseEntity.ok(shopId != null
+                ? complaintRepository.findByShopIdOrderByCreatedAtDesc(shopId)
+                : complaintRepository.findAllByOrderByCreatedAtDesc());
     }
     
     /**
-     * Get complaints for specific barista
-     * GET /api/complaints/barista/{name}
+     * Get complaints for specific barista, optionally in one shop
+     * GET /api/complaints/barista/{name}?shopId={shopId}
      */
     @GetMapping("/barista/{name}")
-    public ResponseEntity<List<Complaint>> getComplaintsByBarista(@PathVariable String name) {
-        return ResponseEntity.ok(complaintRepository.findByBaristaName(name));
+    public ResponseEntity<List<Complaint>> getComplaintsByBarista(@PathVariable String name,
+                                                                  @RequestParam(required = false) String shopId) {
+        return ResponseEntity.ok(shopId != null
+                ? complaintRepository.findByShopIdAndBaristaName(shopId, name)
+                : complaintRepository.findByBaristaName(name));
     }
     
     public static class ComplaintRequest {
         public String baristaName;
         public String username;
         public String message;
+        public String shopId;      // optional (default: the default shop)
     }
 }
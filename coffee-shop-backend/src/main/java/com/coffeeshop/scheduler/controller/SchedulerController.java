@@ -1,26 +1,64 @@
 package com.coffeeshop.scheduler.controller;
 
+import com.coffeeshop.scheduler.alert.Alert;
 import com.coffeeshop.scheduler.model.Barista;
 import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
 import com.coffeeshop.scheduler.service.SchedulerService;
+import com.coffeeshop.scheduler.service.ShopMovedException;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.stream.DeltaStream;
+import com.coffeeshop.scheduler.trace.TraceRecorder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * REST API for the Coffee Shop Scheduler.
+ * Every endpoint takes an optional shopId (request param, or in the order
+ * body); without one it addresses the default shop.
  */
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "http://localhost:3000")
 public class SchedulerController {
     
+    // Largest batch POST /api/orders/batch accepts
+    private static final int MAX_BATCH = 500;
+    
+    // Longest drink name an order may carry
+    private static final int MAX_DRINK_NAME = 100;
+    
+    // Bounds of the simulation endpoints (30 simulated days), and of their product:
+    // the work of a request grows with cases x horizon, not with either alone
+    private static final int MAX_TEST_CASES = 10000;
+    private static final long MAX_SIM_HORIZON_MINUTES = 30 * 24 * 60;
+    private static final long MAX_SIM_CASE_MINUTES = 2_000_000;
+    
+    // Largest shop POST /api/simulation/replay builds
+    private static final int MAX_REPLAY_BARISTAS = 50;
+    
     @Autowired
     private SchedulerService schedulerService;
     
+    @Autowired
+    private DeltaStream deltaStream;
+    
+    @Autowired
+    private TraceRecorder traceRecorder;
+    
     // ═══════════════════════════════════════════════════════════════
     // ORDER ENDPOINTS
     // ═══════════════════════════════════════════════════════════════
@@ -28,38 +66,123 @@ public class SchedulerController {
     /**
      * Create a new order with full priority parameters.
      * POST /api/orders
-     * Body: { "drinkName": "Latte", "prepTimeMinutes": 4, "loyaltyTier": 3, "isRegularCustomer": true }
+     * Body: { "drinkName": "Latte", "prepTimeMinutes": 4, "loyaltyTier": 3, "isRegularCustomer": true, "shopId": "main" }
      */
     @PostMapping("/orders")
     public ResponseEntity<Order> createOrder(@RequestBody OrderRequest request) {
+        String error = checkDrinkName(request.drinkName);
+        if (error != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+        }
         int loyaltyTier = request.loyaltyTier != null ? request.loyaltyTier : 1;
         boolean isRegular = request.isRegularCustomer != null ? request.isRegularCustomer : false;
         String username = request.username != null ? request.username : null;
         
-        Order order = schedulerService.addOrder(
+        ShopScheduler shop = shop(request.shopId);
+        Order order = shop.addOrder(
             request.drinkName, 
             request.prepTimeMinutes,
             loyaltyTier,
             isRegular,
             username
         );
+        traceRecorder.orderReceived(shop.getShopId(), order.getDrinkName(), order.getPrepTimeMinutes(),
+                order.getLoyaltyTier(), order.isRegularCustomer());
         return ResponseEntity.ok(order);
     }
     
+    /**
+     * Create several orders at once (kiosks, delivery aggregators) with a
+     * single assignment pass for the whole batch.
+     * POST /api/orders/batch?shopId=main
+     * Body: [ { "drinkName": "Latte", "prepTimeMinutes": 4, ... }, ... ]
+     * Response: { "shopId", "version", "results": [ { "index", "order" } or { "index", "error" } ] }
+     */
+    @PostMapping("/orders/batch")
+    public ResponseEntity<Map<String, Object>> createOrders(@RequestBody List<OrderRequest> requests,
+                                                            @RequestParam(required = false) String shopId) {
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch holds 1 to " + MAX_BATCH + " orders");
+        }
+        ShopScheduler shop = shop(shopId);
+        
+        // Invalid entries are reported in place; the rest go in together
+        List<Map<String, Object>> results = new ArrayList<>(requests.size());
+        List<ShopScheduler.NewOrder> accepted = new ArrayList<>(requests.size());
+        List<Integer> acceptedAt = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            OrderRequest request = requests.get(i);
+            String error = validate(request, shop.getShopId());
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            if (error != null) {
+                result.put("error", error);
+            } else {
+                accepted.add(new ShopScheduler.NewOrder(request.drinkName, request.prepTimeMinutes,
+                        request.loyaltyTier != null ? request.loyaltyTier : 1,
+                        request.isRegularCustomer != null ? request.isRegularCustomer : false,
+                        request.username));
+                acceptedAt.add(i);
+            }
+            results.add(result);
+        }
+        
+        ShopScheduler.BatchResult batch = shop.addOrders(accepted);
+        for (int i = 0; i < acceptedAt.size(); i++) {
+            Order order = batch.getOrders().get(i);
+            results.get(acceptedAt.get(i)).put("order", order);
+            traceRecorder.orderReceived(shop.getShopId(), order.getDrinkName(), order.getPrepTimeMinutes(),
+                    order.getLoyaltyTier(), order.isRegularCustomer());
+        }
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("shopId", shop.getShopId());
+        body.put("version", batch.getVersion());
+        body.put("results", results);
+        return ResponseEntity.ok(body);
+    }
+    
+    // Why a batch entry is rejected, or null if it is fine
+    private static String validate(OrderRequest request, String shopId) {
+        if (request == null) {
+            return "Empty order";
+        }
+        String error = checkDrinkName(request.drinkName);
+        if (error != null) {
+            return error;
+        }
+        if (request.shopId != null && !request.shopId.isEmpty() && !request.shopId.equals(shopId)) {
+            return "Order is for shop " + request.shopId + ", not " + shopId;
+        }
+        return null;
+    }
+    
+    private static String checkDrinkName(String drinkName) {
+        if (drinkName == null || drinkName.isBlank()) {
+            return "drinkName is required";
+        }
+        if (drinkName.length() > MAX_DRINK_NAME) {
+            return "drinkName must be at most " + MAX_DRINK_NAME + " characters";
+        }
+        return null;
+    }
+    
     /**
      * Get all orders in queue (sorted by priority).
      */
     @GetMapping("/orders")
-    public ResponseEntity<List<Order>> getQueue(@RequestParam(required = false) String username) {
-        return ResponseEntity.ok(schedulerService.getQueue(username));
+    public ResponseEntity<List<Order>> getQueue(@RequestParam(required = false) String username,
+                                                @RequestParam(required = false) String shopId) {
+        return ResponseEntity.ok(shop(shopId).getQueue(username));
     }
     
     /**
      * Get specific order status with priority explanation.
      */
     @GetMapping("/orders/{id}")
-    public ResponseEntity<Order> getOrder(@PathVariable long id) {
-        Order order = schedulerService.getOrder(id);
+    public ResponseEntity<Order> getOrder(@PathVariable long id,
+                                          @RequestParam(required = false) String shopId) {
+        Order order = shop(shopId).getOrder(id);
         if (order == null) {
             return ResponseEntity.notFound().build();
         }
@@ -71,16 +194,19 @@ public class SchedulerController {
     // ═══════════════════════════════════════════════════════════════
     
     @GetMapping("/baristas")
-    public ResponseEntity<List<Barista>> getBaristas() {
-        return ResponseEntity.ok(schedulerService.getBaristas());
+    public ResponseEntity<List<Barista>> getBaristas(@RequestParam(required = false) String shopId) {
+        return ResponseEntity.ok(shop(shopId).getBaristas());
     }
     
     @PostMapping("/baristas/{id}/complete")
-    public ResponseEntity<Order> completeOrder(@PathVariable long id) {
-        Order completed = schedulerService.completeOrder(id);
+    public ResponseEntity<Order> completeOrder(@PathVariable long id,
+                                               @RequestParam(required = false) String shopId) {
+        ShopScheduler shop = shop(shopId);
+        Order completed = shop.completeOrder(id);
         if (completed == null) {
             return ResponseEntity.notFound().build();
         }
+        traceRecorder.orderCompleted(shop.getShopId(), id);
         return ResponseEntity.ok(completed);
     }
     
@@ -89,18 +215,39 @@ public class SchedulerController {
     // ═══════════════════════════════════════════════════════════════
     
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStats(@RequestParam(required = false) String username) {
-        return ResponseEntity.ok(schedulerService.getStats(username));
+    public ResponseEntity<Map<String, Object>> getStats(@RequestParam(required = false) String username,
+                                                        @RequestParam(required = false) String shopId) {
+        return ResponseEntity.ok(shop(shopId).getStats(username));
     }
     
+    /**
+     * Recent alerts, oldest first. With ?since=<seq> only newer ones.
+     */
     @GetMapping("/alerts")
-    public ResponseEntity<List<String>> getAlerts() {
-        return ResponseEntity.ok(schedulerService.getAlerts());
+    public ResponseEntity<List<Alert>> getAlerts(@RequestParam(required = false) Long since,
+                                                 @RequestParam(required = false) String shopId) {
+        ShopScheduler shop = shop(shopId);
+        return ResponseEntity.ok(since != null ? shop.getAlertsSince(since) : shop.getAlerts());
+    }
+    
+    /**
+     * Live deltas (orders, baristas, alerts) as server-sent events.
+     * Resume with ?since=<version> or the Last-Event-ID header; a "resync"
+     * event means the client must reload from the REST endpoints.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String username,
+                             @RequestParam(required = false) String shopId,
+                             @RequestParam(required = false) Long since,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long resumeFrom = since != null ? since : lastEventId;
+        String filter = username != null && !username.isEmpty() ? username : null;
+        return deltaStream.subscribe(shop(shopId).getShopId(), filter, resumeFrom);
     }
     
     @PostMapping("/recalculate")
-    public ResponseEntity<String> recalculate() {
-        schedulerService.recalculatePriorities();
+    public ResponseEntity<String> recalculate(@RequestParam(required = false) String shopId) {
+        shop(shopId).recalculatePriorities();
         return ResponseEntity.ok("Priorities recalculated");
     }
     
@@ -108,18 +255,117 @@ public class SchedulerController {
      * Get detailed barista statistics for each barista
      */
     @GetMapping("/stats/baristas")
-    public ResponseEntity<List<Map<String, Object>>> getBaristaStats() {
-        return ResponseEntity.ok(schedulerService.getBaristaStats());
+    public ResponseEntity<List<Map<String, Object>>> getBaristaStats(@RequestParam(required = false) String shopId) {
+        return ResponseEntity.ok(shop(shopId).getBaristaStats());
     }
     
     /**
      * Run test simulation with 10 test cases
-     * Each test case simulates 200-300 orders
+     * Each test case simulates 200-300 orders over the default 180 minutes;
+     * longer horizons (e.g. 10080 for a week) scale with the number of orders
      */
     @PostMapping("/simulation/run")
     public ResponseEntity<List<Map<String, Object>>> runSimulation(
-            @RequestParam(defaultValue = "10") int testCases) {
-        return ResponseEntity.ok(schedulerService.runTestSimulation(testCases));
+            @RequestParam(defaultValue = "10") int testCases,
+            @RequestParam(defaultValue = "180") long horizonMinutes,
+            @RequestParam(required = false) Long seed) {
+        checkSimulation(testCases, horizonMinutes);
+        return ResponseEntity.ok(schedulerService.runTestSimulation(testCases, horizonMinutes, seedOrRandom(seed)));
+    }
+    
+    /**
+     * Monte-Carlo run: mean, p50/p95/p99 wait, timeout and abandonment
+     * rates and per-barista load with 95% confidence intervals.
+     * Pass the returned seed back to reproduce the exact numbers.
+     */
+    @PostMapping("/simulation/monte-carlo")
+    public ResponseEntity<Map<String, Object>> runMonteCarlo(
+            @RequestParam(defaultValue = "1000") int testCases,
+            @RequestParam(defaultValue = "180") long horizonMinutes,
+            @RequestParam(required = false) Long seed) {
+        checkSimulation(testCases, horizonMinutes);
+        return ResponseEntity.ok(schedulerService.runMonteCarlo(testCases, horizonMinutes, seedOrRandom(seed)));
+    }
+    
+    /**
+     * Recorded order traces (see scheduler.trace.enabled), oldest first.
+     * GET /api/simulation/traces
+     */
+    @GetMapping("/simulation/traces")
+    public ResponseEntity<Map<String, Object>> getTraces() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("recording", traceRecorder.isRecording());
+        body.put("dropped", traceRecorder.getDropped());
+        body.put("skipped", traceRecorder.getSkipped());
+        body.put("traces", traceRecorder.listTraces());
+        return ResponseEntity.ok(body);
+    }
+    
+    /**
+     * Replay one shop's recorded orders through the scheduler in virtual
+     * time, with another team size or other priority weights (wait time,
+     * complexity, loyalty, urgency), to see what the same day would have
+     * looked like.
+     * POST /api/simulation/replay?trace=orders-1718000000000.trace&shopId=main&baristas=4
+     */
+    @PostMapping("/simulation/replay")
+    public ResponseEntity<Map<String, Object>> replayTrace(
+            @RequestParam String trace,
+            @RequestParam(required = false) String shopId,
+            @RequestParam(defaultValue = "3") int baristas,
+            @RequestParam(defaultValue = "0.40,0.25,0.10,0.25") double[] weights) {
+        if (baristas < 1 || baristas > MAX_REPLAY_BARISTAS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "baristas must be 1-" + MAX_REPLAY_BARISTAS);
+        }
+        if (weights.length != 4 || Arrays.stream(weights).anyMatch(w -> !(w >= 0) || Double.isInfinite(w))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "weights are four non-negative numbers: wait time, complexity, loyalty, urgency");
+        }
+        PriorityModel model = new PriorityModel(weights[0], weights[1], weights[2], weights[3]);
+        try {
+            return ResponseEntity.ok(schedulerService.replayTrace(traceRecorder.resolve(trace),
+                    shopId != null ? shopId : schedulerService.getShops().getDefaultShopId(), baristas, model));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+    
+    private static void checkSimulation(int testCases, long horizonMinutes) {
+        if (testCases < 1 || testCases > MAX_TEST_CASES || horizonMinutes < 1 || horizonMinutes > MAX_SIM_HORIZON_MINUTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "testCases must be 1-" + MAX_TEST_CASES + " and horizonMinutes 1-" + MAX_SIM_HORIZON_MINUTES);
+        }
+        if (testCases * horizonMinutes > MAX_SIM_CASE_MINUTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "testCases x horizonMinutes must not exceed " + MAX_SIM_CASE_MINUTES);
+        }
+    }
+    
+    private static long seedOrRandom(Long seed) {
+        return seed != null ? seed : ThreadLocalRandom.current().nextLong();
+    }
+    
+    // The requested shop (default shop if none given); 404 if it does not exist
+    private ShopScheduler shop(String shopId) {
+        ShopScheduler shop = schedulerService.getShop(shopId);
+        if (shop == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown shop: " + shopId);
+        }
+        return shop;
+    }
+    
+    // Answer directly instead of forwarding to /error
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> handleStatus(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+    }
+    
+    // The shop moved to another node mid-request; the client retries
+    @ExceptionHandler(ShopMovedException.class)
+    public ResponseEntity<Map<String, Object>> handleMoved(ShopMovedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", String.valueOf(e.getMessage())));
     }
     
     // Request DTO with all priority parameters
@@ -129,5 +375,6 @@ public class SchedulerController {
         public Integer loyaltyTier;          // 1-5, optional (default: 1)
         public Boolean isRegularCustomer;    // optional (default: false)
         public String username;              // User who created the order
+        public String shopId;                // optional (default: the default shop)
     }
 }
@@ -0,0 +1,96 @@
+package com.coffeeshop.scheduler.controller;
+
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shops: each one is an isolated scheduler partition, created and
+ * removed at runtime.
+ */
+@RestController
+@RequestMapping("/api/shops")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ShopController {
+
+    @Autowired
+    private ShopRegistry shopRegistry;
+
+    /**
+     * List shops with their worker and queue size
+     * GET /api/shops
+     */
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getShops() {
+        List<Map<String, Object>> shops = new ArrayList<>();
+        for (ShopScheduler shop : shopRegistry.getShops()) {
+            shops.add(describe(shop));
+        }
+        shops.sort((a, b) -> ((String) a.get("shopId")).compareTo((String) b.get("shopId")));
+        return ResponseEntity.ok(shops);
+    }
+
+    /**
+     * Open a shop
+     * POST /api/shops
+     * Body: { "shopId": "downtown", "baristas": ["Dana", "Eli"] }
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createShop(@RequestBody ShopRequest request) {
+        try {
+            return ResponseEntity.ok(describe(shopRegistry.create(request.shopId, request.baristas)));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            // Shop limit (scheduler.shops.max) reached
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    /**
+     * Close a shop; its queue and in-progress orders go with it
+     * DELETE /api/shops/{shopId}
+     */
+    @DeleteMapping("/{shopId}")
+    public ResponseEntity<Map<String, Object>> deleteShop(@PathVariable String shopId) {
+        try {
+            if (!shopRegistry.destroy(shopId)) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("shopId", shopId);
+            response.put("deleted", true);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    private Map<String, Object> describe(ShopScheduler shop) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("shopId", shop.getShopId());
+        data.put("worker", shop.getWorkerName());
+        data.put("baristas", shop.getBaristas().size());
+        data.put("queueSize", shop.getStats().get("queueSize"));
+        return data;
+    }
+
+    public static class ShopRequest {
+        public String shopId;
+        public List<String> baristas;
+    }
+}
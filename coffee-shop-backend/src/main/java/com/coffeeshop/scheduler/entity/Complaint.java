@@ -5,15 +5,26 @@ import java.time.Instant;
 
 /**
  * Entity for storing customer complaints about baristas.
+ *
+ * Ids come from a pooled sequence rather than an IDENTITY column, so
+ * Hibernate knows them before the insert and can send auto-complaints in
+ * JDBC batches (see ComplaintWriter).
  */
 @Entity
 @Table(name = "complaints")
 public class Complaint {
     
+    // Ids reserved per sequence round-trip
+    public static final int ID_ALLOCATION = 50;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "complaint_ids")
+    @SequenceGenerator(name = "complaint_ids", sequenceName = "complaints_seq", allocationSize = ID_ALLOCATION)
     private Long id;
     
+    @Column(name = "shop_id", length = 50)
+    private String shopId;
+    
     @Column(name = "barista_name", nullable = false, length = 50)
     private String baristaName;
     
@@ -26,11 +37,21 @@ public class Complaint {
     @Column(name = "created_at")
     private Instant createdAt;
     
+    // Auto-complaints only: shop, order id and arrival, so an order is
+    // stored at most once however often the write is retried
+    @Column(name = "order_key", unique = true, length = 100)
+    private String orderKey;
+    
     public Complaint() {
         this.createdAt = Instant.now();
     }
     
     public Complaint(String baristaName, String username, String message) {
+        this(null, baristaName, username, message);
+    }
+    
+    public Complaint(String shopId, String baristaName, String username, String message) {
+        this.shopId = shopId;
         this.baristaName = baristaName;
         this.username = username;
         this.message = message;
@@ -39,15 +60,19 @@ public class Complaint {
     
     // Getters
     public Long getId() { return id; }
+    public String getShopId() { return shopId; }
     public String getBaristaName() { return baristaName; }
     public String getUsername() { return username; }
     public String getMessage() { return message; }
     public Instant getCreatedAt() { return createdAt; }
+    public String getOrderKey() { return orderKey; }
     
     // Setters
     public void setId(Long id) { this.id = id; }
+    public void setShopId(String shopId) { this.shopId = shopId; }
     public void setBaristaName(String baristaName) { this.baristaName = baristaName; }
     public void setUsername(String username) { this.username = username; }
     public void setMessage(String message) { this.message = message; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public void setOrderKey(String orderKey) { this.orderKey = orderKey; }
 }
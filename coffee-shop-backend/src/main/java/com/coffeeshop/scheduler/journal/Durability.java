@@ -0,0 +1,12 @@
+package com.coffeeshop.scheduler.journal;
+
+/**
+ * When journal writes are forced to disk. The journal is memory-mapped,
+ * so every level survives a crash of the JVM itself; they differ in what
+ * survives a crash of the machine.
+ */
+public enum Durability {
+    NONE,      // Never forced; the OS writes pages back when it likes
+    INTERVAL,  // Forced at most every sync interval; callers never wait
+    BATCH      // Forced after every loop batch (group commit); callers wait for it
+}
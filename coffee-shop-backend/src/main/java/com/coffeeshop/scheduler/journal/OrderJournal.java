@@ -0,0 +1,564 @@
+package com.coffeeshop.scheduler.journal;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.service.ShopState;
+import com.coffeeshop.scheduler.stats.CompletedOrderStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of one shop's scheduler decisions.
+ *
+ * Records go to memory-mapped, fixed-size segment files; each is a length,
+ * a CRC32 and a payload, and a zero length (the file is pre-zeroed) marks
+ * the end. Records hold outcomes, not requests (which order went to which
+ * barista, and when), so replaying them rebuilds the exact state without
+ * re-running the scheduling policy.
+ *
+ * A snapshot is a compact copy of the whole live state plus the segment
+ * the journal continued in. Taking one rolls to a new segment and deletes
+ * the older ones, so recovery reads one snapshot and replays only the tail.
+ *
+ * Forcing to disk follows the {@link Durability}: with BATCH the loop
+ * forces once per batch and every caller of that batch waits for that one
+ * force (group commit). Only the shop's loop thread may append.
+ *
+ * Callers log a decision before applying it, so a record that cannot be
+ * written leaves the shop unchanged. A segment that cannot be rolled marks
+ * the journal failed, and every later append is refused.
+ */
+public class OrderJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+
+    /**
+     * Receives the records of a replay, in the order they were written.
+     */
+    public interface Replay {
+
+        // A new queued order (id, arrival time and fields as logged)
+        void enqueued(Order order);
+
+        // An order left the queue for a barista; skipCounted if it counted toward fairness
+        void assigned(long orderId, long baristaId, boolean skipCounted, long atMs);
+
+        // A barista finished their current order; the next pending one starts at atMs
+        void completed(long baristaId, long atMs);
+
+        // A queued order got its timeout complaint
+        void complained(long orderId);
+    }
+
+    private static final byte ENQUEUED = 1;
+    private static final byte ASSIGNED = 2;
+    private static final byte COMPLETED = 3;
+    private static final byte COMPLAINED = 4;
+
+    private static final int RECORD_HEADER = 8;  // Length, CRC32
+    private static final int ENQUEUED_FIXED = 1 + 8 + 8 + 4 + 3;  // Type, id, arrival, prep/tier/regular
+    private static final int SNAPSHOT_MAGIC = 0x434f4a31;  // "COJ1"
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.log");
+
+    private final Path dir;
+    private final Durability durability;
+    private final int segmentBytes;
+    private final long syncIntervalMs;
+    private final long snapshotEvery;
+
+    // Loop thread only
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentNo;
+    private int forcedOffset;        // Bytes of the segment known to be on disk
+    private long written;            // Records appended since the journal was opened
+    private long sinceSnapshot;
+    private long lastSyncMs;
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private final CRC32 crc = new CRC32();
+
+    private volatile boolean failed;  // A segment could not be rolled; no more appends
+
+    private long durable;  // Records forced; guarded by this
+
+    public OrderJournal(Path dir, Durability durability, int segmentBytes, long syncIntervalMs, long snapshotEvery) {
+        this.dir = dir;
+        this.durability = durability;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalMs = syncIntervalMs;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // True once an append failed on I/O; the shop must take no more changes
+    public boolean isFailed() {
+        return failed;
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // RECOVERY
+    // ════════════════════════════════════════════════════════════════
+
+    public boolean hasSnapshot() {
+        return Files.exists(dir.resolve(SNAPSHOT_FILE));
+    }
+
+    /**
+     * Read the last snapshot, loading its completed orders into
+     * {@code completed}. Order ids continue after the highest it saw.
+     *
+     * @return the shop state, or null if there is no snapshot
+     */
+    public ShopState readSnapshot(CompletedOrderStore completed) {
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a journal snapshot: " + file);
+            }
+            segmentNo = in.readLong();
+            Order.reserveIdsThrough(in.readLong());
+            ShopState state = ShopStateCodec.read(in);
+            completed.readFrom(in);
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+    }
+
+    /**
+     * Replay every record after the snapshot. A torn or corrupt record
+     * (a write cut short by a crash) ends the replay.
+     *
+     * @return the number of records replayed
+     */
+    public long replay(Replay replay) {
+        long records = 0;
+        for (long number : segmentNumbers()) {
+            if (number < segmentNo) {
+                continue;
+            }
+            Path file = segmentFile(number);
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                while (buffer.remaining() >= RECORD_HEADER) {
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length == 0) {
+                        break;  // End of this segment
+                    }
+                    if (length < 0 || length > buffer.remaining() || checksum != checksum(buffer, length)) {
+                        log.warn("Journal {} ends in a torn record after {} records", file, records);
+                        return records;
+                    }
+                    ByteBuffer payload = buffer.slice(buffer.position(), length);
+                    buffer.position(buffer.position() + length);
+                    apply(payload, replay);
+                    records++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + file, e);
+            } catch (BufferUnderflowException e) {
+                throw new IllegalStateException("Malformed record in " + file, e);
+            }
+        }
+        return records;
+    }
+
+    private static void apply(ByteBuffer payload, Replay replay) {
+        byte type = payload.get();
+        switch (type) {
+            case ENQUEUED -> {
+                long id = payload.getLong();
+                Instant arrival = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+                int prep = payload.get();
+                int tier = payload.get();
+                boolean regular = payload.get() != 0;
+                String drink = getString(payload);
+                String username = getString(payload);
+                replay.enqueued(new Order(id, arrival, drink, prep, tier, regular, username));
+            }
+            case ASSIGNED -> replay.assigned(payload.getLong(), payload.getLong(), payload.get() != 0, payload.getLong());
+            case COMPLETED -> replay.completed(payload.getLong(), payload.getLong());
+            case COMPLAINED -> replay.complained(payload.getLong());
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // RECORDS (loop thread)
+    // ════════════════════════════════════════════════════════════════
+
+    public void logEnqueued(Order order) {
+        ByteBuffer out = begin(ENQUEUED);
+        out.putLong(order.getId());
+        out.putLong(order.getArrivalTime().getEpochSecond());
+        out.putInt(order.getArrivalTime().getNano());
+        out.put((byte) order.getPrepTimeMinutes());
+        out.put((byte) order.getLoyaltyTier());
+        out.put((byte) (order.isRegularCustomer() ? 1 : 0));
+        putString(order.getDrinkName());
+        putString(order.getUsername());
+        append();
+    }
+
+    public void logAssigned(long orderId, long baristaId, boolean skipCounted, long atMs) {
+        ByteBuffer out = begin(ASSIGNED);
+        out.putLong(orderId);
+        out.putLong(baristaId);
+        out.put((byte) (skipCounted ? 1 : 0));
+        out.putLong(atMs);
+        append();
+    }
+
+    public void logCompleted(long baristaId, long atMs) {
+        ByteBuffer out = begin(COMPLETED);
+        out.putLong(baristaId);
+        out.putLong(atMs);
+        append();
+    }
+
+    public void logComplained(long orderId) {
+        ByteBuffer out = begin(COMPLAINED);
+        out.putLong(orderId);
+        append();
+    }
+
+    /**
+     * Reject an order whose ENQUEUED record would not fit in a segment, so
+     * a batch can be checked before any of it is applied.
+     */
+    public void checkEnqueued(String drinkName, String username) {
+        checkFits(ENQUEUED_FIXED + stringBytes(drinkName) + stringBytes(username));
+    }
+
+    // Records appended so far; pass to awaitDurable
+    public long getPosition() {
+        return written;
+    }
+
+    private ByteBuffer begin(byte type) {
+        scratch.clear();
+        scratch.put(type);
+        return scratch;
+    }
+
+    private void append() {
+        if (segment == null) {
+            throw new IllegalStateException("Journal " + dir + " has no open segment; take a snapshot first");
+        }
+        if (failed) {
+            throw new IllegalStateException("Journal " + dir + " failed; it takes no more records");
+        }
+        int length = scratch.position();
+        if (segment.remaining() < RECORD_HEADER + length + RECORD_HEADER) {
+            try {
+                roll();  // Keep room for the zero end marker
+            } catch (RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        segment.putInt(length);
+        segment.putInt((int) crc.getValue());
+        segment.put(scratch.array(), 0, length);
+        written++;
+        sinceSnapshot++;
+    }
+
+    // Length-prefixed UTF-8, -1 for null
+    private void putString(String value) {
+        if (value == null) {
+            ensureScratch(4);
+            scratch.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureScratch(4 + bytes.length);
+        scratch.putInt(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private static int stringBytes(String value) {
+        return 4 + (value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureScratch(int more) {
+        if (scratch.remaining() < more) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + more));
+            grown.put(scratch.array(), 0, scratch.position());
+            scratch = grown;
+        }
+        checkFits(scratch.position() + more);
+    }
+
+    private void checkFits(int length) {
+        if (length + 2 * RECORD_HEADER > segmentBytes) {
+            throw new IllegalArgumentException("Journal record does not fit in a " + segmentBytes + "-byte segment");
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // DURABILITY
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Force what the durability level asks for at {@code nowMs}. Called by
+     * the loop after every batch and tick.
+     */
+    public void sync(long nowMs) {
+        if (segment == null || durable() == written) {
+            return;
+        }
+        switch (durability) {
+            case NONE -> markDurable();
+            case INTERVAL -> {
+                if (nowMs - lastSyncMs >= syncIntervalMs) {
+                    force(nowMs);
+                }
+            }
+            case BATCH -> force(nowMs);
+        }
+    }
+
+    // When the loop must call sync next, or Long.MAX_VALUE
+    public long nextSyncMs() {
+        return durability == Durability.INTERVAL && segment != null && durable() != written
+                ? lastSyncMs + syncIntervalMs
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * Block until the records up to {@code position} are forced. Any
+     * thread but the loop's may wait.
+     */
+    public synchronized void awaitDurable(long position) {
+        boolean interrupted = false;
+        while (durable < position && segment != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void force(long nowMs) {
+        int end = segment.position();
+        if (end > forcedOffset) {
+            segment.force(forcedOffset, end - forcedOffset);
+            forcedOffset = end;
+        }
+        lastSyncMs = nowMs;
+        markDurable();
+    }
+
+    private synchronized void markDurable() {
+        durable = written;
+        notifyAll();
+    }
+
+    private synchronized long durable() {
+        return durable;
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // SNAPSHOTS AND SEGMENTS
+    // ════════════════════════════════════════════════════════════════
+
+    public boolean isSnapshotDue() {
+        return sinceSnapshot >= snapshotEvery;
+    }
+
+    /**
+     * Write a snapshot of the current state and continue in a new segment;
+     * older segments are deleted once the snapshot is safely on disk.
+     */
+    public void snapshot(ShopState state, CompletedOrderStore completed) {
+        List<Long> existing = segmentNumbers();
+        long next = Math.max(segmentNo, existing.isEmpty() ? 0 : existing.get(existing.size() - 1)) + 1;
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        Path temp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(next);
+                out.writeLong(Order.lastIssuedId());
+                ShopStateCodec.write(out, state);
+                completed.writeTo(out);
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + file, e);
+        }
+
+        openSegment(next);
+        sinceSnapshot = 0;
+        markDurable();  // Everything so far is in the snapshot
+        for (long number : existing) {
+            if (number < next) {
+                deleteQuietly(segmentFile(number));
+            }
+        }
+    }
+
+    private void roll() {
+        if (durability != Durability.NONE) {
+            force(System.currentTimeMillis());
+        }
+        openSegment(segmentNo + 1);
+    }
+
+    private void openSegment(long number) {
+        closeChannel();
+        Path file = segmentFile(number);
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal segment " + file, e);
+        }
+        segmentNo = number;
+        forcedOffset = 0;
+    }
+
+    private List<Long> segmentNumbers() {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return numbers;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + dir, e);
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentFile(long number) {
+        return dir.resolve(String.format("segment-%08d.log", number));
+    }
+
+    private int checksum(ByteBuffer buffer, int length) {
+        crc.reset();
+        crc.update(buffer.slice(buffer.position(), length));
+        return (int) crc.getValue();
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // LIFECYCLE
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Force what was written and release the segment. Once the loop no
+     * longer runs the shop, any thread may call it.
+     */
+    @Override
+    public void close() {
+        if (segment != null && durability != Durability.NONE) {
+            force(System.currentTimeMillis());
+        }
+        closeChannel();
+        synchronized (this) {
+            segment = null;
+            durable = written;
+            notifyAll();
+        }
+    }
+
+    // Remove every file of the journal (the shop was closed or moved away)
+    public void delete() {
+        close();
+        deleteAll(dir);
+    }
+
+    public static void deleteAll(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(OrderJournal::deleteQuietly);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + dir, e);
+        }
+        deleteQuietly(dir);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();  // The mapping stays valid until it is collected
+            } catch (IOException e) {
+                log.warn("Could not close journal segment in {}", dir, e);
+            }
+            channel = null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
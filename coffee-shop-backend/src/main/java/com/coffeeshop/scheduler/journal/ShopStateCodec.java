@@ -0,0 +1,162 @@
+package com.coffeeshop.scheduler.journal;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.service.ShopState;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a {@link ShopState}, for journal snapshots.
+ * Arrival times keep their nanoseconds: orders that arrived at the same
+ * instant share a fairness rank, and a restored queue must rank alike.
+ */
+final class ShopStateCodec {
+
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    private ShopStateCodec() {
+    }
+
+    static void write(DataOutput out, ShopState state) throws IOException {
+        out.writeUTF(state.shopId);
+        out.writeLong(state.maxOrderId);
+
+        out.writeInt(state.queue.size());
+        for (ShopState.OrderState order : state.queue) {
+            writeOrder(out, order);
+        }
+
+        out.writeInt(state.baristas.size());
+        for (ShopState.BaristaState barista : state.baristas) {
+            out.writeLong(barista.id);
+            out.writeUTF(barista.name);
+            out.writeBoolean(barista.current != null);
+            if (barista.current != null) {
+                writeOrder(out, barista.current);
+            }
+            out.writeInt(barista.pending.size());
+            for (ShopState.OrderState order : barista.pending) {
+                writeOrder(out, order);
+            }
+            out.writeInt(barista.ordersCompleted);
+            out.writeInt(barista.totalWorkloadMinutes);
+        }
+
+        out.writeBoolean(state.globalStats != null);
+        if (state.globalStats != null) {
+            writeCounters(out, state.globalStats);
+        }
+        out.writeInt(state.userStats.size());
+        for (Map.Entry<String, ShopState.CounterState> entry : state.userStats.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeCounters(out, entry.getValue());
+        }
+    }
+
+    static ShopState read(DataInput in) throws IOException {
+        ShopState state = new ShopState();
+        state.shopId = in.readUTF();
+        state.maxOrderId = in.readLong();
+
+        readOrders(in, state.queue);
+
+        int baristas = in.readInt();
+        for (int i = 0; i < baristas; i++) {
+            ShopState.BaristaState barista = new ShopState.BaristaState();
+            barista.id = in.readLong();
+            barista.name = in.readUTF();
+            barista.current = in.readBoolean() ? readOrder(in) : null;
+            readOrders(in, barista.pending);
+            barista.ordersCompleted = in.readInt();
+            barista.totalWorkloadMinutes = in.readInt();
+            state.baristas.add(barista);
+        }
+
+        state.globalStats = in.readBoolean() ? readCounters(in) : null;
+        int users = in.readInt();
+        for (int i = 0; i < users; i++) {
+            String username = in.readUTF();
+            state.userStats.put(username, readCounters(in));
+        }
+        return state;
+    }
+
+    // ORDERS
+
+    private static void writeOrder(DataOutput out, ShopState.OrderState order) throws IOException {
+        out.writeLong(order.id);
+        out.writeLong(order.arrivalTime.getEpochSecond());
+        out.writeInt(order.arrivalTime.getNano());
+        out.writeUTF(order.drinkName);
+        out.writeByte(order.prepTimeMinutes);
+        out.writeByte(order.loyaltyTier);
+        out.writeBoolean(order.regularCustomer);
+        writeNullable(out, order.username);
+        out.writeInt(order.skipCount);
+        out.writeByte(order.status.ordinal());
+        out.writeLong(order.assignedBaristaId != null ? order.assignedBaristaId : -1);
+        out.writeLong(order.assignedTime != null ? order.assignedTime.toEpochMilli() : -1);
+        out.writeBoolean(order.autoComplaintRaised);
+    }
+
+    private static ShopState.OrderState readOrder(DataInput in) throws IOException {
+        ShopState.OrderState order = new ShopState.OrderState();
+        order.id = in.readLong();
+        long seconds = in.readLong();
+        order.arrivalTime = Instant.ofEpochSecond(seconds, in.readInt());
+        order.drinkName = in.readUTF();
+        order.prepTimeMinutes = in.readByte();
+        order.loyaltyTier = in.readByte();
+        order.regularCustomer = in.readBoolean();
+        order.username = readNullable(in);
+        order.skipCount = in.readInt();
+        order.status = STATUSES[in.readByte()];
+        long baristaId = in.readLong();
+        order.assignedBaristaId = baristaId >= 0 ? baristaId : null;
+        long assignedMs = in.readLong();
+        order.assignedTime = assignedMs >= 0 ? Instant.ofEpochMilli(assignedMs) : null;
+        order.autoComplaintRaised = in.readBoolean();
+        return order;
+    }
+
+    private static void readOrders(DataInput in, List<ShopState.OrderState> into) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            into.add(readOrder(in));
+        }
+    }
+
+    // STATS
+
+    private static void writeCounters(DataOutput out, ShopState.CounterState counters) throws IOException {
+        out.writeInt(counters.queued);
+        out.writeLong(counters.completed);
+        out.writeLong(counters.waitSumMs);
+        out.writeLong(counters.timeouts);
+    }
+
+    private static ShopState.CounterState readCounters(DataInput in) throws IOException {
+        ShopState.CounterState counters = new ShopState.CounterState();
+        counters.queued = in.readInt();
+        counters.completed = in.readLong();
+        counters.waitSumMs = in.readLong();
+        counters.timeouts = in.readLong();
+        return counters;
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
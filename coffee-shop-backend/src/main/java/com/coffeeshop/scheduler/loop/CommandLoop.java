@@ -0,0 +1,339 @@
+package com.coffeeshop.scheduler.loop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer event loop.
+ *
+ * Request threads submit commands into a bounded {@link CommandRing} and
+ * wait for the result; one thread drains the ring in batches and runs
+ * every command, so the state it owns needs no locks at all. Between
+ * batches it runs the owners' timers and sleeps until the next deadline
+ * or the next command, whichever comes first.
+ *
+ * Several owners can share one loop (e.g. the shops pinned to a worker).
+ * They never run concurrently; after a batch only the owners that got a
+ * command or reached their deadline are ticked.
+ *
+ * Commands are only accepted while the loop runs: before {@link #start()}
+ * and after {@link #stop()} they fail with an IllegalStateException, and
+ * so does any command still queued when the loop exits. A caller never
+ * runs a command itself, so the state stays single-writer even if a
+ * stopped loop's thread has not finished yet.
+ */
+public class CommandLoop {
+
+    /**
+     * The state the loop owns. All methods run on the loop thread.
+     */
+    public interface Owner {
+
+        /**
+         * Fire whatever is due at {@code nowMs}.
+         *
+         * @return the next deadline, or {@code Long.MAX_VALUE} if none
+         */
+        long onTick(long nowMs);
+
+        // Called after a batch that ran commands for this owner, or while it has pending work
+        void afterBatch(int commands);
+
+        // True if the loop must not sleep yet (work left for the end of a batch)
+        boolean hasPendingWork();
+    }
+
+    // How long a producer backs off while the ring is full
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    // How often a waiting producer checks that the loop thread is still there
+    private static final long EXIT_CHECK_MS = 100;
+
+    private final String name;
+    private final CommandRing<Command<?>> ring;
+    private final int maxBatch;
+
+    // Loop thread only
+    private final List<Registration> registrations = new ArrayList<>();
+
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile boolean sleeping;
+
+    public CommandLoop(String name, int capacity, int maxBatch) {
+        this.name = name;
+        this.ring = new CommandRing<>(capacity);
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Attach an owner; its commands go through the returned registration.
+     * It is ticked on the loop's next pass.
+     *
+     * @throws IllegalStateException if the loop is not running
+     */
+    public Registration register(Owner owner) {
+        Registration registration = new Registration(owner);
+        call(null, () -> registrations.add(registration));
+        return registration;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        Thread loopThread = new Thread(this::run, name);
+        loopThread.setDaemon(true);
+        thread = loopThread;
+        loopThread.start();
+    }
+
+    /**
+     * Stop taking commands and wait (up to 5 s) for the loop to finish the
+     * batch it is running. Commands still queued then fail. A stopped loop
+     * cannot be started again.
+     */
+    public void stop() {
+        Thread loopThread = thread;
+        running = false;
+        if (loopThread != null) {
+            LockSupport.unpark(loopThread);
+            try {
+                loopThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Run {@code body} on the loop thread and wait for its result.
+     * Blocks while the ring is full (backpressure). Exceptions thrown by
+     * the command are rethrown to the caller.
+     *
+     * @throws IllegalStateException if the loop is not running, or stops
+     *         before the command ran
+     */
+    public <T> T call(Supplier<T> body) {
+        return call(null, body);
+    }
+
+    private <T> T call(Registration target, Supplier<T> body) {
+        Thread loopThread = thread;
+        if (loopThread == Thread.currentThread()) {
+            return body.get();  // A command calling back into its own loop
+        }
+        if (loopThread == null || !running) {
+            throw new IllegalStateException(name + " is not running");
+        }
+
+        Command<T> command = new Command<>(target, body);
+        while (!ring.offer(command)) {
+            if (!running) {
+                throw new IllegalStateException(name + " is not running");
+            }
+            LockSupport.unpark(loopThread);
+            LockSupport.parkNanos(this, FULL_BACKOFF_NANOS);
+        }
+        wakeUp();
+        return await(command, loopThread);
+    }
+
+    // Result of a queued command. If the loop thread exits without running
+    // it (it was offered after the final drain), the command fails.
+    private <T> T await(Command<T> command, Thread loopThread) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return command.result.get(EXIT_CHECK_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (!loopThread.isAlive()) {
+                        command.fail(new IllegalStateException(name + " stopped before running the command"));
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;  // The command is in flight; keep waiting for it
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void run(Runnable body) {
+        call(() -> {
+            body.run();
+            return null;
+        });
+    }
+
+    // Make the loop check for work now (cheap when it is not sleeping)
+    public void wakeUp() {
+        Thread loopThread = thread;
+        if (sleeping && loopThread != null) {
+            LockSupport.unpark(loopThread);
+        }
+    }
+
+    public boolean isRunning() {
+        return running && thread != null;
+    }
+
+    public boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // LOOP THREAD
+
+    private void run() {
+        while (running) {
+            int commands = ring.drain(Command::run, maxBatch);
+            long nextDeadline = tickOwners(System.currentTimeMillis());
+            if (commands > 0) {
+                continue;
+            }
+
+            // Publish the intent to sleep, then re-check so no wake-up is lost
+            sleeping = true;
+            if (ring.isEmpty() && !hasPendingWork() && running) {
+                long delayMs = nextDeadline - System.currentTimeMillis();
+                if (delayMs > 0) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delayMs));  // Saturates
+                }
+            }
+            sleeping = false;
+        }
+
+        // Anything still queued fails; its owners may already be shut down
+        IllegalStateException stopped = new IllegalStateException(name + " stopped before running the command");
+        ring.drain(command -> command.fail(stopped), Integer.MAX_VALUE);
+    }
+
+    // Returns the earliest deadline of any owner
+    private long tickOwners(long nowMs) {
+        long nextDeadline = Long.MAX_VALUE;
+        for (int i = 0; i < registrations.size(); i++) {
+            Registration registration = registrations.get(i);
+            Owner owner = registration.owner;
+            if (registration.commands > 0 || registration.deadline <= nowMs) {
+                registration.deadline = owner.onTick(nowMs);
+            }
+            if (registration.commands > 0 || owner.hasPendingWork()) {
+                owner.afterBatch(registration.commands);
+                registration.commands = 0;
+            }
+            nextDeadline = Math.min(nextDeadline, registration.deadline);
+        }
+        return nextDeadline;
+    }
+
+    private boolean hasPendingWork() {
+        for (int i = 0; i < registrations.size(); i++) {
+            if (registrations.get(i).owner.hasPendingWork()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An owner attached to this loop.
+     */
+    public final class Registration {
+
+        private final Owner owner;
+        private volatile boolean active = true;
+
+        // Loop thread only
+        private long deadline = Long.MIN_VALUE;  // Ticked on the next pass
+        private int commands;
+
+        private Registration(Owner owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Run {@code body} for this owner on the loop thread and wait for
+         * its result. Fails once the owner has been cancelled.
+         */
+        public <T> T call(Supplier<T> body) {
+            return CommandLoop.this.call(this, () -> {
+                if (!active) {
+                    throw new IllegalStateException("Owner is no longer registered on " + name);
+                }
+                return body.get();
+            });
+        }
+
+        /**
+         * Detach the owner. Commands already submitted for it still run;
+         * later ones fail.
+         */
+        public void cancel() {
+            try {
+                CommandLoop.this.call(null, () -> {
+                    active = false;
+                    return registrations.remove(this);
+                });
+            } catch (IllegalStateException e) {
+                active = false;  // The loop has stopped; nothing runs for the owner anymore
+            }
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public CommandLoop getLoop() {
+            return CommandLoop.this;
+        }
+    }
+
+    private static final class Command<T> {
+        final Registration target;
+        final Supplier<T> body;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Command(Registration target, Supplier<T> body) {
+            this.target = target;
+            this.body = body;
+        }
+
+        void run() {
+            if (target != null) {
+                target.commands++;
+            }
+            try {
+                result.complete(body.get());
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        // No effect if it already ran
+        void fail(RuntimeException cause) {
+            result.completeExceptionally(cause);
+        }
+    }
+}
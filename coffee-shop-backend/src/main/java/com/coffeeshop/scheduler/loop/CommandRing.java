@@ -0,0 +1,89 @@
+package com.coffeeshop.scheduler.loop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer.
+ *
+ * Each slot carries a sequence number: producers claim a position with a
+ * CAS on the tail and publish by advancing the slot's sequence; the single
+ * consumer reads slots in order and hands them back one lap ahead. No
+ * locks, and a full ring is reported to the producer instead of growing.
+ */
+public class CommandRing<T> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();  // Next position to claim
+    private long head;                                // Consumer only
+
+    public CommandRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    public boolean offer(T item) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) (pos & mask);
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[slot] = item;
+                    sequences.set(slot, pos + 1);  // Publish
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;  // Consumer is a full lap behind
+            } else {
+                pos = tail.get();  // Another producer took this slot
+            }
+        }
+    }
+
+    /**
+     * Hand up to {@code max} items to {@code consumer}, oldest first.
+     * Consumer thread only.
+     *
+     * @return the number of items drained
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> consumer, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) (head & mask);
+            if (sequences.get(slot) != head + 1) {
+                break;  // Not yet published
+            }
+            T item = (T) buffer[slot];
+            buffer[slot] = null;
+            sequences.set(slot, head + mask + 1);  // Free for the next lap
+            head++;
+            drained++;
+            consumer.accept(item);
+        }
+        return drained;
+    }
+
+    // Consumer thread only
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+}
@@ -0,0 +1,231 @@
+package com.coffeeshop.scheduler.metrics;
+
+import com.coffeeshop.scheduler.model.Barista;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Micrometer meters of one shop, tagged with its id.
+ *
+ * Every meter is registered up front, so recording on the scheduler's hot
+ * path is a clock read and a few adds, with nothing allocated. Gauges are
+ * never computed from live state: the loop thread copies a handful of
+ * primitives here after each batch or tick ({@link #publish}), and a
+ * scrape reads those.
+ */
+public class ShopMetrics {
+
+    private static final long NO_ORDER = Long.MIN_VALUE;
+
+    private final MeterRegistry registry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final LongSupplier clock;
+    private final long tickBudgetMs;
+
+    private final Timer addOrder;
+    private final Timer addBatch;
+    private final DistributionSummary batchSize;
+    private final Timer assignmentPass;
+    private final DistributionSummary ordersMoved;
+    private final Timer tick;
+    private final Counter tickOverruns;
+    private final Timer recalculate;
+
+    private final Counter warnings;
+    private final Counter criticals;
+    private final Counter autoComplaints;
+    private final Counter completions;
+
+    // Written by the loop thread only, read on scrape
+    private volatile int queueDepth;
+    private volatile long oldestArrivalMs = NO_ORDER;
+    private volatile int boosted;
+    private final AtomicIntegerArray pendingMinutes;  // By barista position
+
+    /**
+     * @param baristas the shop's team; it must not change afterwards
+     * @param tickBudgetMs how late a deadline may be handled before the tick counts as an overrun
+     */
+    public ShopMetrics(MeterRegistry registry, String shopId, List<Barista> baristas, LongSupplier clock,
+                       long tickBudgetMs) {
+        this.registry = registry;
+        this.clock = clock;
+        this.tickBudgetMs = tickBudgetMs;
+        Tags shop = Tags.of("shop", shopId);
+
+        addOrder = timer("scheduler.order.add", "Time to take an order, from the caller's side", shop);
+        addBatch = timer("scheduler.order.batch", "Time to take a batch of orders, from the caller's side", shop);
+        batchSize = register(DistributionSummary.builder("scheduler.order.batch.size")
+                .description("Orders per batch")
+                .tags(shop)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(registry));
+        assignmentPass = timer("scheduler.assignment.pass", "Duration of one pass handing queued orders to baristas", shop);
+        ordersMoved = register(DistributionSummary.builder("scheduler.assignment.orders")
+                .description("Orders handed to baristas per assignment pass")
+                .tags(shop)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(registry));
+        tick = timer("scheduler.tick", "Duration of a deadline tick (prep completions, escalations, idle baristas)", shop);
+        tickOverruns = counter("scheduler.tick.overruns", "Ticks that finished more than the budget after their deadline", shop);
+        recalculate = timer("scheduler.recalculate", "Duration of a full queue rescore", shop);
+
+        warnings = counter("scheduler.alerts", "Escalations raised", shop.and("type", "warning"));
+        criticals = counter("scheduler.alerts", "Escalations raised", shop.and("type", "critical"));
+        autoComplaints = counter("scheduler.alerts", "Escalations raised", shop.and("type", "auto_complaint"));
+        completions = counter("scheduler.orders.completed", "Orders finished by a barista", shop);
+
+        register(Gauge.builder("scheduler.queue.depth", this, m -> m.queueDepth)
+                .description("Orders waiting for a barista")
+                .tags(shop)
+                .register(registry));
+        register(TimeGauge.builder("scheduler.queue.oldest.wait", this, TimeUnit.MILLISECONDS, ShopMetrics::oldestWaitMs)
+                .description("How long the oldest queued order has waited")
+                .tags(shop)
+                .register(registry));
+        register(Gauge.builder("scheduler.queue.boosted", this, m -> m.boosted)
+                .description("Queued orders past the fairness skip threshold")
+                .tags(shop)
+                .register(registry));
+
+        pendingMinutes = new AtomicIntegerArray(baristas.size());
+        for (int i = 0; i < baristas.size(); i++) {
+            int slot = i;
+            Tags barista = shop.and("barista", baristas.get(i).getName());
+            register(Gauge.builder("scheduler.barista.pending.minutes", this, m -> m.pendingMinutes.get(slot))
+                    .description("Prep minutes assigned to the barista and not yet finished")
+                    .tags(barista)
+                    .register(registry));
+            register(Gauge.builder("scheduler.barista.workload.ratio", this, m -> m.workloadRatio(slot))
+                    .description("Barista's pending minutes over the team average")
+                    .tags(barista)
+                    .register(registry));
+        }
+    }
+
+    // RECORDING (hot path, allocation-free)
+
+    public void recordAddOrder(long nanos) {
+        addOrder.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAddBatch(long nanos, int orders) {
+        addBatch.record(nanos, TimeUnit.NANOSECONDS);
+        batchSize.record(orders);
+    }
+
+    public void recordAssignmentPass(long nanos, int moved) {
+        assignmentPass.record(nanos, TimeUnit.NANOSECONDS);
+        ordersMoved.record(moved);
+    }
+
+    public void recordTick(long nanos) {
+        tick.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // A deadline-driven tick finished lateMs after the deadline
+    public void recordTickLateness(long lateMs) {
+        if (lateMs > tickBudgetMs) {
+            tickOverruns.increment();
+        }
+    }
+
+    public void recordRecalculation(long nanos) {
+        recalculate.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void onWarning() {
+        warnings.increment();
+    }
+
+    public void onCritical() {
+        criticals.increment();
+    }
+
+    public void onAutoComplaint() {
+        autoComplaints.increment();
+    }
+
+    public void onCompleted() {
+        completions.increment();
+    }
+
+    /**
+     * Copy the gauge values (loop thread only).
+     *
+     * @param oldestArrivalMs arrival of the oldest queued order, or Long.MIN_VALUE if the queue is empty
+     */
+    public void publish(int queueDepth, long oldestArrivalMs, int boosted, List<Barista> baristas) {
+        this.queueDepth = queueDepth;
+        this.oldestArrivalMs = oldestArrivalMs;
+        this.boosted = boosted;
+        int count = Math.min(baristas.size(), pendingMinutes.length());
+        for (int i = 0; i < count; i++) {
+            pendingMinutes.lazySet(i, baristas.get(i).getTotalPendingMinutes());
+        }
+    }
+
+    // Remove every meter, so a shop re-created under the same id starts fresh
+    public void close() {
+        for (Meter meter : meters) {
+            registry.remove(meter);
+        }
+        meters.clear();
+    }
+
+    // SCRAPE SIDE
+
+    private double oldestWaitMs() {
+        long oldest = oldestArrivalMs;
+        return oldest == NO_ORDER ? 0 : Math.max(0, clock.getAsLong() - oldest);
+    }
+
+    // Same ratio as /api/stats: 1.0 when nobody has any work
+    private double workloadRatio(int slot) {
+        long total = 0;
+        for (int i = 0; i < pendingMinutes.length(); i++) {
+            total += pendingMinutes.get(i);
+        }
+        double avgWorkload = (double) total / pendingMinutes.length();
+        return avgWorkload > 0 ? pendingMinutes.get(slot) / avgWorkload : 1.0;
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return register(Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry));
+    }
+
+    private Counter counter(String name, String description, Tags tags) {
+        return register(Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(registry));
+    }
+
+    private <M extends Meter> M register(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+}
@@ -1,88 +1,136 @@
 package com.coffeeshop.scheduler.model;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a barista in the coffee shop.
+ * Holds only live work: the order in progress and the ones assigned after it.
+ * Completed orders are handed back to the scheduler and not kept here.
  */
 public class Barista {
     
     private final long id;
     private final String name;
-    private final List<Order> assignedOrders;
+    private final String shopId;
+    private Order currentOrder;                  // IN_PROGRESS, or null
+    private final ArrayDeque<Order> pendingOrders; // ASSIGNED, in start order
+    private int pendingMinutes;                  // Prep time of current + pending
     private boolean available;
     private long busyUntilMs;  // Timestamp when barista will be free
     private int ordersCompleted;     // Track total completed orders
     private int totalWorkloadMinutes; // Track total workload handled
     
     public Barista(long id, String name) {
+        this(id, name, null);
+    }
+    
+    public Barista(long id, String name, String shopId) {
         this.id = id;
         this.name = name;
-        this.assignedOrders = new ArrayList<>();
+        this.shopId = shopId;
+        this.currentOrder = null;
+        this.pendingOrders = new ArrayDeque<>();
+        this.pendingMinutes = 0;
         this.available = true;
         this.busyUntilMs = 0;
         this.ordersCompleted = 0;
         this.totalWorkloadMinutes = 0;
     }
     
+    // Detached copy (orders included), for snapshots read outside the scheduler thread
+    public Barista(Barista other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.shopId = other.shopId;
+        this.currentOrder = other.currentOrder != null ? new Order(other.currentOrder) : null;
+        this.pendingOrders = new ArrayDeque<>(other.pendingOrders.size());
+        for (Order order : other.pendingOrders) {
+            this.pendingOrders.add(new Order(order));
+        }
+        this.pendingMinutes = other.pendingMinutes;
+        this.available = other.available;
+        this.busyUntilMs = other.busyUntilMs;
+        this.ordersCompleted = other.ordersCompleted;
+        this.totalWorkloadMinutes = other.totalWorkloadMinutes;
+    }
+    
     // Get total pending work time in minutes
     public int getTotalPendingMinutes() {
-        return assignedOrders.stream()
-                .filter(o -> o.getStatus() != Order.OrderStatus.COMPLETED)
-                .mapToInt(Order::getPrepTimeMinutes)
-                .sum();
+        return pendingMinutes;
     }
     
-    // Assign an order to this barista
-    public void assignOrder(Order order) {
+    // Assign an order to this barista at the shop's time (journal replay uses the recorded one)
+    public void assignOrder(Order order, long nowMs) {
         order.setAssignedBaristaId(this.id);
         order.setStatus(Order.OrderStatus.ASSIGNED);
-        assignedOrders.add(order);
+        pendingOrders.add(order);
+        pendingMinutes += order.getPrepTimeMinutes();
         
         if (available) {
-            startNextOrder();
+            startNextOrder(nowMs);
         }
     }
     
     // Start working on next order
-    public void startNextOrder() {
-        Order next = assignedOrders.stream()
-                .filter(o -> o.getStatus() == Order.OrderStatus.ASSIGNED)
-                .findFirst()
-                .orElse(null);
+    public void startNextOrder(long nowMs) {
+        if (currentOrder != null) {
+            return;  // Already working on one
+        }
+        Order next = pendingOrders.poll();
         
         if (next != null) {
+            currentOrder = next;
             next.setStatus(Order.OrderStatus.IN_PROGRESS);
-            next.setAssignedTime(Instant.now());  // Track when prep started
+            next.setAssignedTime(Instant.ofEpochMilli(nowMs));  // Track when prep started
             this.available = false;
-            this.busyUntilMs = System.currentTimeMillis() + (next.getPrepTimeMinutes() * 60000L);
+            this.busyUntilMs = nowMs + (next.getPrepTimeMinutes() * 60000L);
         } else {
             this.available = true;
         }
     }
     
+    /**
+     * Replace the live work with a restored state (handoff or recovery).
+     * The current order keeps its original assigned time.
+     */
+    public void restore(Order current, List<Order> pending, int ordersCompleted, int totalWorkloadMinutes) {
+        this.currentOrder = current;
+        this.pendingOrders.clear();
+        this.pendingOrders.addAll(pending);
+        this.pendingMinutes = current != null ? current.getPrepTimeMinutes() : 0;
+        for (Order order : pending) {
+            this.pendingMinutes += order.getPrepTimeMinutes();
+        }
+        this.ordersCompleted = ordersCompleted;
+        this.totalWorkloadMinutes = totalWorkloadMinutes;
+        this.available = current == null;
+        this.busyUntilMs = current != null
+                ? current.getAssignedTime().toEpochMilli() + current.getPrepTimeMinutes() * 60000L
+                : 0;
+    }
+    
     // Get current in-progress order
     public Order getCurrentOrder() {
-        return assignedOrders.stream()
-                .filter(o -> o.getStatus() == Order.OrderStatus.IN_PROGRESS)
-                .findFirst()
-                .orElse(null);
+        return currentOrder;
     }
     
-    // Complete current order
-    public Order completeCurrentOrder() {
-        Order current = getCurrentOrder();
+    // Complete current order at the given time; the next pending order starts then
+    public Order completeCurrentOrder(long nowMs) {
+        Order current = currentOrder;
         
         if (current != null) {
             current.setStatus(Order.OrderStatus.COMPLETED);
+            currentOrder = null;
+            this.pendingMinutes -= current.getPrepTimeMinutes();
             this.ordersCompleted++;
             this.totalWorkloadMinutes += current.getPrepTimeMinutes();
         }
         
         this.available = true;
-        startNextOrder();  // Start next if available
+        startNextOrder(nowMs);  // Start next if available
         
         return current;
     }
@@ -90,12 +138,27 @@ public class Barista {
     // Getters
     public long getId() { return id; }
     public String getName() { return name; }
-    public List<Order> getAssignedOrders() { return assignedOrders; }
+    public String getShopId() { return shopId; }
     public boolean isAvailable() { return available; }
     public long getBusyUntilMs() { return busyUntilMs; }
     public int getOrdersCompleted() { return ordersCompleted; }
     public int getTotalWorkloadMinutes() { return totalWorkloadMinutes; }
     
     public void setAvailable(boolean available) { this.available = available; }
+    
+    // Assigned orders waiting behind the current one, in start order
+    public List<Order> getPendingOrders() {
+        return new ArrayList<>(pendingOrders);
+    }
+    
+    // Live orders (in progress first, then pending), as shown on the dashboard
+    public List<Order> getAssignedOrders() {
+        List<Order> orders = new ArrayList<>(pendingOrders.size() + 1);
+        if (currentOrder != null) {
+            orders.add(currentOrder);
+        }
+        orders.addAll(pendingOrders);
+        return orders;
+    }
 }
 
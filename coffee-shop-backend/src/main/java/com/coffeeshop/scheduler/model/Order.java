@@ -1,6 +1,7 @@
 package com.coffeeshop.scheduler.model;
 
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a coffee order in the system.
@@ -8,7 +9,8 @@ import java.time.Instant;
  */
 public class Order implements Comparable<Order> {
     
-    private static long idCounter = 0;
+    // Ids are unique across shops; partitions create orders on different threads
+    private static final AtomicLong idCounter = new AtomicLong();
     
     private final long id;
     private final Instant arrivalTime;
@@ -17,61 +19,103 @@ public class Order implements Comparable<Order> {
     private final int loyaltyTier;          // 1 (new) to 5 (VIP)
     private final boolean isRegularCustomer;
     private String username;                 // User who created the order
+    private String shopId;                   // Shop whose queue holds it
     private double priority;                 // 0-100 score
     private int skipCount;                   // Fairness tracking
     private Long assignedBaristaId;
     private OrderStatus status;
-    private String priorityExplanation;      // Transparency
     private Instant assignedTime;            // When order was assigned to barista
     private boolean autoComplaintRaised;     // Prevent duplicate auto-complaints
     
-    public Order(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean isRegularCustomer, String username) {
-        this.id = ++idCounter;
-        this.arrivalTime = Instant.now();
+    // Components of the last score, kept for the explanation (rendered on demand)
+    private PriorityModel scoredBy;          // Weights; null until first scored
+    private long scoredAtMs;                 // Shop clock at the last score
+    private double waitTimeScore;
+    private double complexityScore;
+    private double loyaltyScore;
+    private double urgencyScore;
+    private double fairnessBoost;
+    
+    // Restored order (handoff or recovery): keeps its id and arrival time
+    public Order(long id, Instant arrivalTime, String drinkName, int prepTimeMinutes, int loyaltyTier,
+                 boolean isRegularCustomer, String username) {
+        this(id, arrivalTime, drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, username, true);
+    }
+    
+    private Order(long id, Instant arrivalTime, String drinkName, int prepTimeMinutes, int loyaltyTier,
+                  boolean isRegularCustomer, String username, boolean sharedId) {
+        this.id = id;
+        this.arrivalTime = arrivalTime;
         this.drinkName = drinkName;
         this.prepTimeMinutes = Math.max(2, Math.min(8, prepTimeMinutes)); // Clamp 2-8
         this.loyaltyTier = Math.max(1, Math.min(5, loyaltyTier)); // Clamp 1-5
         this.isRegularCustomer = isRegularCustomer;
         this.username = username;
-        this.priority = 0;
-        this.skipCount = 0;
-        this.assignedBaristaId = null;
         this.status = OrderStatus.QUEUED;
-        this.priorityExplanation = "";
-        this.assignedTime = null;
-        this.autoComplaintRaised = false;
+        if (sharedId) {
+            idCounter.accumulateAndGet(id, Math::max);  // New ids never collide with it
+        }
     }
     
-    // Backwards-compatible constructor (no username)
-    public Order(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean isRegularCustomer) {
-        this(drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, null);
+    /**
+     * New order with an id and arrival time chosen by the caller (the shop's
+     * id source and clock). Unlike a restored order it leaves the shared
+     * counter alone, so a simulated shop can number its orders from 1.
+     */
+    public static Order create(long id, Instant arrivalTime, String drinkName, int prepTimeMinutes, int loyaltyTier,
+                               boolean isRegularCustomer, String username) {
+        return new Order(id, arrivalTime, drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, username, false);
     }
     
-    // Convenience constructor for simple orders
-    public Order(String drinkName, int prepTimeMinutes) {
-        this(drinkName, prepTimeMinutes, 1, false);
+    // Detached copy, for snapshots read outside the scheduler thread
+    public Order(Order other) {
+        this.id = other.id;
+        this.arrivalTime = other.arrivalTime;
+        this.drinkName = other.drinkName;
+        this.prepTimeMinutes = other.prepTimeMinutes;
+        this.loyaltyTier = other.loyaltyTier;
+        this.isRegularCustomer = other.isRegularCustomer;
+        this.username = other.username;
+        this.shopId = other.shopId;
+        this.priority = other.priority;
+        this.skipCount = other.skipCount;
+        this.assignedBaristaId = other.assignedBaristaId;
+        this.status = other.status;
+        this.assignedTime = other.assignedTime;
+        this.autoComplaintRaised = other.autoComplaintRaised;
+        this.scoredBy = other.scoredBy;
+        this.scoredAtMs = other.scoredAtMs;
+        this.waitTimeScore = other.waitTimeScore;
+        this.complexityScore = other.complexityScore;
+        this.loyaltyScore = other.loyaltyScore;
+        this.urgencyScore = other.urgencyScore;
+        this.fairnessBoost = other.fairnessBoost;
     }
     
-    // Calculate wait time in seconds
+    // Next id from the counter shared by every live shop
+    public static long nextId() {
+        return idCounter.incrementAndGet();
+    }
+    
+    // Highest id handed out so far (journal snapshots keep it across restarts)
+    public static long lastIssuedId() {
+        return idCounter.get();
+    }
+
+    // New ids continue after the given one
+    public static void reserveIdsThrough(long id) {
+        idCounter.accumulateAndGet(id, Math::max);
+    }
+
+    // Wait up to the last score, by the shop's clock (0 until first scored)
     public double getWaitTimeSeconds() {
-        return (Instant.now().toEpochMilli() - arrivalTime.toEpochMilli()) / 1000.0;
+        return scoredBy != null ? Math.max(0, scoredAtMs - arrivalTime.toEpochMilli()) / 1000.0 : 0;
     }
     
-    // Calculate wait time in minutes
     public double getWaitTimeMinutes() {
         return getWaitTimeSeconds() / 60.0;
     }
     
-    // Check if order should be auto-completed
-    public boolean isAutoCompleteReady() {
-        if (assignedTime == null || status != OrderStatus.IN_PROGRESS) {
-            return false;
-        }
-        long elapsedMs = Instant.now().toEpochMilli() - assignedTime.toEpochMilli();
-        long prepTimeMs = prepTimeMinutes * 60 * 1000L;
-        return elapsedMs >= prepTimeMs;
-    }
-    
     // Priority comparison (higher priority = comes first in max-heap)
     @Override
     public int compareTo(Order other) {
@@ -89,21 +133,43 @@ public class Order implements Comparable<Order> {
     public int getSkipCount() { return skipCount; }
     public Long getAssignedBaristaId() { return assignedBaristaId; }
     public OrderStatus getStatus() { return status; }
-    public String getPriorityExplanation() { return priorityExplanation; }
     public String getUsername() { return username; }
+    public String getShopId() { return shopId; }
     public Instant getAssignedTime() { return assignedTime; }
     public boolean isAutoComplaintRaised() { return autoComplaintRaised; }
     
+    // How the current priority was reached; formatted only when asked for
+    public String getPriorityExplanation() {
+        if (scoredBy == null) {
+            return "";
+        }
+        return scoredBy.explain(waitTimeScore, complexityScore, loyaltyScore, urgencyScore, fairnessBoost, priority);
+    }
+    
     // Setters
     public void setPriority(double priority) { this.priority = priority; }
     public void incrementSkipCount() { this.skipCount++; }
+    public void setSkipCount(int skipCount) { this.skipCount = skipCount; }
     public void setAssignedBaristaId(Long id) { this.assignedBaristaId = id; }
     public void setStatus(OrderStatus status) { this.status = status; }
-    public void setPriorityExplanation(String explanation) { this.priorityExplanation = explanation; }
     public void setUsername(String username) { this.username = username; }
+    public void setShopId(String shopId) { this.shopId = shopId; }
     public void setAssignedTime(Instant assignedTime) { this.assignedTime = assignedTime; }
     public void setAutoComplaintRaised(boolean raised) { this.autoComplaintRaised = raised; }
     
+    // New score as of nowMs (shop clock), with the components that produced it
+    public void setScore(PriorityModel model, long nowMs, double waitTimeScore, double complexityScore, double loyaltyScore,
+                         double urgencyScore, double fairnessBoost, double priority) {
+        this.scoredBy = model;
+        this.scoredAtMs = nowMs;
+        this.waitTimeScore = waitTimeScore;
+        this.complexityScore = complexityScore;
+        this.loyaltyScore = loyaltyScore;
+        this.urgencyScore = urgencyScore;
+        this.fairnessBoost = fairnessBoost;
+        this.priority = priority;
+    }
+    
     public enum OrderStatus {
         QUEUED, ASSIGNED, IN_PROGRESS, COMPLETED
     }
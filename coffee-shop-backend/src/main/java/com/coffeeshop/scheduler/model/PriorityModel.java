@@ -0,0 +1,289 @@
+package com.coffeeshop.scheduler.model;
+
+import java.util.Arrays;
+
+/**
+ * The priority formula, as a function of wall-clock time.
+ *
+ * Priority = (0.40 × WaitTimeScore) + (0.25 × ComplexityScore)
+ *          + (0.10 × LoyaltyScore) + (0.25 × UrgencyScore) + FairnessBoost
+ *
+ * Complexity, loyalty and fairness are constant while an order waits; wait
+ * time and urgency are piecewise-linear in the wait with breakpoints at
+ * 6, 8, 9 and 10 minutes. That makes it possible to compute exactly when
+ * one order will overtake another (see {@link #overtakeTime}).
+ */
+public final class PriorityModel {
+
+    // Thresholds (in mins)
+    public static final double MODERATE_THRESHOLD_MINUTES = 6.0;
+    public static final double EMERGENCY_THRESHOLD_MINUTES = 8.0;
+    public static final double CRITICAL_THRESHOLD_MINUTES = 9.0;
+    public static final double MAX_WAIT_TIME_MINUTES = 10.0;
+
+    // Fairness threshold
+    public static final int FAIRNESS_SKIP_THRESHOLD = 3;
+    public static final double FAIRNESS_PENALTY_BOOST = 15.0;
+
+    public static final double MAX_PRIORITY = 100;
+
+    // Wait times (mins) where the time-dependent part changes slope
+    private static final double[] BREAKPOINTS_MINUTES = {
+        MODERATE_THRESHOLD_MINUTES, EMERGENCY_THRESHOLD_MINUTES,
+        CRITICAL_THRESHOLD_MINUTES, MAX_WAIT_TIME_MINUTES
+    };
+
+    private static final double MS_PER_MINUTE = 60000.0;
+
+    // Leads smaller than this count as a tie (e.g. both orders at the 100 cap)
+    private static final double TIE_EPSILON = 1e-9;
+
+    // The dashboard re-ranks with a copy of these weights and thresholds
+    // (livePriority in coffee-shop-frontend/src/App.js); change both together
+    public static final PriorityModel DEFAULT = new PriorityModel(0.40, 0.25, 0.10, 0.25);
+
+    private final double weightWaitTime;
+    private final double weightComplexity;
+    private final double weightLoyalty;
+    private final double weightUrgency;
+
+    public PriorityModel(double weightWaitTime, double weightComplexity, double weightLoyalty, double weightUrgency) {
+        this.weightWaitTime = weightWaitTime;
+        this.weightComplexity = weightComplexity;
+        this.weightLoyalty = weightLoyalty;
+        this.weightUrgency = weightUrgency;
+    }
+
+    // SCORES (each 0-100)
+
+    // Normalized based on 0-10 minute range
+    public static double waitTimeScore(double waitMinutes) {
+        return Math.min(100, (waitMinutes / MAX_WAIT_TIME_MINUTES) * 100);
+    }
+
+    // Shorter prep = higher score
+    public static double complexityScore(int prepTimeMinutes) {
+        return ((8.0 - prepTimeMinutes) / 6.0) * 100;
+    }
+
+    public static double loyaltyScore(int loyaltyTier, boolean isRegularCustomer) {
+        double loyaltyScore;
+        if (isRegularCustomer) {
+            // Regular customers: base 50 + tier bonus
+            loyaltyScore = 50 + (loyaltyTier * 10);
+        } else {
+            // New customers: just tier bonus (lower base)
+            loyaltyScore = loyaltyTier * 10;
+        }
+        return Math.min(100, loyaltyScore);
+    }
+
+    public static double urgencyScore(double waitMinutes) {
+        if (waitMinutes >= CRITICAL_THRESHOLD_MINUTES) {
+            return 100;  // Maximum urgency
+        } else if (waitMinutes >= EMERGENCY_THRESHOLD_MINUTES) {
+            // Linear scale from 75-99 between 8-9 minutes
+            return 75 + ((waitMinutes - 8) * 25);
+        } else if (waitMinutes >= MODERATE_THRESHOLD_MINUTES) {
+            // Moderate urgency (6-8 minutes): 25-74
+            return 25 + ((waitMinutes - 6) / 2 * 50);
+        } else {
+            // Low urgency (0-6 minutes): 0-24
+            return (waitMinutes / 6) * 25;
+        }
+    }
+
+    // If more than 3 later customers were served first
+    public static double fairnessBoost(int skipCount) {
+        if (skipCount > FAIRNESS_SKIP_THRESHOLD) {
+            return (skipCount - FAIRNESS_SKIP_THRESHOLD) * FAIRNESS_PENALTY_BOOST;
+        }
+        return 0;
+    }
+
+    public double getWeightWaitTime() { return weightWaitTime; }
+    public double getWeightComplexity() { return weightComplexity; }
+    public double getWeightLoyalty() { return weightLoyalty; }
+    public double getWeightUrgency() { return weightUrgency; }
+
+    // FINAL PRIORITY
+
+    public double priority(double waitMinutes, int prepTimeMinutes, int loyaltyTier,
+                           boolean isRegularCustomer, int skipCount) {
+        return combine(waitTimeScore(waitMinutes), complexityScore(prepTimeMinutes),
+                loyaltyScore(loyaltyTier, isRegularCustomer), urgencyScore(waitMinutes), fairnessBoost(skipCount));
+    }
+
+    // Weighted sum of the scores, capped; every scoring path goes through here so results agree bit for bit
+    public double combine(double waitTimeScore, double complexityScore, double loyaltyScore, double urgencyScore,
+                          double fairnessBoost) {
+        double basePriority =
+            (weightWaitTime * waitTimeScore) +
+            (weightComplexity * complexityScore) +
+            (weightLoyalty * loyaltyScore) +
+            (weightUrgency * urgencyScore);
+
+        return Math.min(MAX_PRIORITY, basePriority + fairnessBoost);
+    }
+
+    /**
+     * Human-readable breakdown of a score, e.g.
+     * "Wait: 50.0 (×0.40=20.0) + ... + Fairness: +15.0 = 72.5".
+     * Only formatted when someone reads it, never while scoring.
+     */
+    public String explain(double waitTimeScore, double complexityScore, double loyaltyScore, double urgencyScore,
+                          double fairnessBoost, double priority) {
+        String breakdown = String.format(
+            "Wait: %.1f (×%.2f=%.1f) + Complexity: %.1f (×%.2f=%.1f) + " +
+            "Loyalty: %.1f (×%.2f=%.1f) + Urgency: %.1f (×%.2f=%.1f)",
+            waitTimeScore, weightWaitTime, waitTimeScore * weightWaitTime,
+            complexityScore, weightComplexity, complexityScore * weightComplexity,
+            loyaltyScore, weightLoyalty, loyaltyScore * weightLoyalty,
+            urgencyScore, weightUrgency, urgencyScore * weightUrgency
+        );
+        // The total always gets its own argument, with or without a fairness term
+        return fairnessBoost > 0
+                ? breakdown + String.format(" + Fairness: +%.1f = %.1f", fairnessBoost, priority)
+                : breakdown + String.format(" = %.1f", priority);
+    }
+
+    public double priorityAt(Order order, long nowMs) {
+        double waitMinutes = waitMinutes(order, nowMs);
+        return priority(waitMinutes, order.getPrepTimeMinutes(), order.getLoyaltyTier(),
+                order.isRegularCustomer(), order.getSkipCount());
+    }
+
+    public static double waitMinutes(Order order, long nowMs) {
+        return waitMinutes(order.getArrivalTime().toEpochMilli(), nowMs);
+    }
+
+    public static double waitMinutes(long arrivalMs, long nowMs) {
+        return (nowMs - arrivalMs) / 1000.0 / 60.0;
+    }
+
+    /**
+     * True if {@code a} should be served before {@code b} at {@code nowMs}.
+     * Ties go to the lower id (earlier arrival).
+     */
+    public boolean isBefore(Order a, Order b, long nowMs) {
+        int byPriority = Double.compare(priorityAt(a, nowMs), priorityAt(b, nowMs));
+        return byPriority != 0 ? byPriority > 0 : a.getId() < b.getId();
+    }
+
+    // KINETIC CERTIFICATES
+
+    /**
+     * Earliest time after {@code fromMs} at which {@code follower} should
+     * be served before {@code leader}, or {@code Long.MAX_VALUE} if never
+     * (with their current skip counts).
+     *
+     * Returns {@code fromMs} if the follower is already ahead. Otherwise the
+     * result is a lower bound within a millisecond of the exact crossing, so
+     * callers should re-check with {@link #isBefore} when it comes due.
+     */
+    public long overtakeTime(Order leader, Order follower, long fromMs) {
+        if (!isBefore(leader, follower, fromMs)) {
+            return fromMs;
+        }
+        boolean followerWinsTies = follower.getId() < leader.getId();
+
+        // Both curves are linear between these times
+        double[] breaks = new double[12];
+        int count = addBreakpoints(leader, fromMs, breaks, 0);
+        count = addBreakpoints(follower, fromMs, breaks, count);
+        Arrays.sort(breaks, 0, count);
+
+        double t0 = fromMs;
+        double d0 = lead(leader, follower, t0);
+        if (d0 < 0 || (d0 == 0 && followerWinsTies)) {
+            // Exact comparison still favours the leader, but only just
+            return fromMs + 1;
+        }
+        for (int i = 0; i < count; i++) {
+            double t1 = breaks[i];
+            double d1 = lead(leader, follower, t1);
+            if (d1 < 0 || (d1 == 0 && followerWinsTies)) {
+                return crossing(t0, d0, t1, d1, fromMs);
+            }
+            t0 = t1;
+            d0 = d1;
+        }
+
+        // Past the last breakpoint the lead changes at a constant rate
+        double t1 = t0 + MS_PER_MINUTE;
+        double d1 = lead(leader, follower, t1);
+        if (d1 >= d0) {
+            return Long.MAX_VALUE;
+        }
+        return crossing(t0, d0, t1, d1, fromMs);
+    }
+
+    // Time where the lead reaches zero on the segment [t0, t1], extrapolated past t1 if needed
+    private static long crossing(double t0, double d0, double t1, double d1, long fromMs) {
+        if (d0 <= 0) {
+            // Tied at a breakpoint the leader still wins; it loses just after t0
+            return Math.max(fromMs + 1, (long) Math.floor(t0));
+        }
+        double at = t0 + d0 / (d0 - d1) * (t1 - t0);
+        if (at >= Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(fromMs + 1, (long) Math.floor(at));
+    }
+
+    private double lead(Order leader, Order follower, double atMs) {
+        double lead = continuousPriority(leader, atMs) - continuousPriority(follower, atMs);
+        return Math.abs(lead) < TIE_EPSILON ? 0 : lead;
+    }
+
+    // Same formula as priority(), split as constant + time-dependent part
+    private double continuousPriority(Order order, double atMs) {
+        double waitMinutes = (atMs - order.getArrivalTime().toEpochMilli()) / MS_PER_MINUTE;
+        return Math.min(MAX_PRIORITY, constantPart(order) + timePart(waitMinutes));
+    }
+
+    private double constantPart(Order order) {
+        return weightComplexity * complexityScore(order.getPrepTimeMinutes())
+             + weightLoyalty * loyaltyScore(order.getLoyaltyTier(), order.isRegularCustomer())
+             + fairnessBoost(order.getSkipCount());
+    }
+
+    private double timePart(double waitMinutes) {
+        return weightWaitTime * waitTimeScore(waitMinutes) + weightUrgency * urgencyScore(waitMinutes);
+    }
+
+    // Slope changes after fromMs, including where the order hits the 100 cap
+    private int addBreakpoints(Order order, long fromMs, double[] breaks, int count) {
+        long arrivalMs = order.getArrivalTime().toEpochMilli();
+        for (double minutes : BREAKPOINTS_MINUTES) {
+            double at = arrivalMs + minutes * MS_PER_MINUTE;
+            if (at > fromMs) {
+                breaks[count++] = at;
+            }
+        }
+
+        double headroom = MAX_PRIORITY - constantPart(order);
+        if (headroom > 0 && timePart(MAX_WAIT_TIME_MINUTES) > headroom) {
+            double at = arrivalMs + minutesToReach(headroom) * MS_PER_MINUTE;
+            if (at > fromMs) {
+                breaks[count++] = at;
+            }
+        }
+        return count;
+    }
+
+    // Wait (mins) at which the time-dependent part first reaches target
+    private double minutesToReach(double target) {
+        double w0 = 0;
+        double v0 = timePart(0);
+        for (double w1 : BREAKPOINTS_MINUTES) {
+            double v1 = timePart(w1);
+            if (v1 >= target) {
+                return w0 + (target - v0) / (v1 - v0) * (w1 - w0);
+            }
+            w0 = w1;
+            v0 = v1;
+        }
+        return w0;
+    }
+}
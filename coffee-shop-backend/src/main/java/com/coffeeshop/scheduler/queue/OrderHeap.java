@@ -0,0 +1,413 @@
+package com.coffeeshop.scheduler.queue;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+import com.coffeeshop.scheduler.util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongSupplier;
+
+/**
+ * Kinetic indexed max-heap of queued orders.
+ *
+ * Priorities grow with wait time, so instead of storing a key the heap
+ * compares orders by {@link PriorityModel#priorityAt} at the current time.
+ * Every parent/child edge carries a certificate ("parent stays ahead
+ * until t"); certificates live in a second min-heap keyed by failure
+ * time, and the heap is only re-ordered when one of them fails. Ordering
+ * is therefore always exact, and the cost of keeping it exact tracks the
+ * number of priority crossings rather than the queue size.
+ *
+ * The heap position of every order is tracked by order id, so insert,
+ * pop-max, remove and update are O(log² n) including certificate upkeep.
+ * Ties on priority go to the lower id (earlier arrival).
+ *
+ * Alongside each position the heap keeps the order's scoring inputs as
+ * primitive columns, so {@link ScoreBatch} can rescore the whole queue
+ * without touching the orders. They are written when an order is added or
+ * updated and copied along when it moves.
+ *
+ * Not thread-safe: only the scheduler loop thread may touch it.
+ */
+public class OrderHeap implements Iterable<Order> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PriorityModel model;
+    private final LongSupplier clock;
+    private long now;
+
+    Order[] heap = new Order[INITIAL_CAPACITY];
+    int size;
+
+    // Scoring inputs by heap position (read by ScoreBatch). A skip count at
+    // or under the fairness threshold may be stale: it adds no boost either
+    // way, and the shop updates an order as soon as its boost changes.
+    long[] arrivalMs = new long[INITIAL_CAPACITY];
+    int[] prepTimeMinutes = new int[INITIAL_CAPACITY];
+    int[] loyaltyTier = new int[INITIAL_CAPACITY];
+    boolean[] regular = new boolean[INITIAL_CAPACITY];
+    int[] skipCount = new int[INITIAL_CAPACITY];
+
+    // order id -> position in heap[]
+    private final LongIntHashMap positions = new LongIntHashMap(-1);
+
+    // Certificate of the edge (parent(pos), pos), indexed by heap position
+    private long[] failAt = new long[INITIAL_CAPACITY];
+
+    // Min-heap of heap positions ordered by failAt, plus reverse index
+    private int[] events = new int[INITIAL_CAPACITY];
+    private int[] eventIndex = new int[INITIAL_CAPACITY];
+    private int eventCount;
+
+    // Positions whose occupant changed during the current operation
+    private int[] dirty = new int[INITIAL_CAPACITY];
+    private int dirtyCount;
+
+    public OrderHeap() {
+        this(PriorityModel.DEFAULT, System::currentTimeMillis);
+    }
+
+    public OrderHeap(PriorityModel model, LongSupplier clock) {
+        this.model = model;
+        this.clock = clock;
+        this.now = clock.getAsLong();
+        Arrays.fill(eventIndex, -1);
+    }
+
+    // ORDER OPERATIONS
+
+    public void add(Order order) {
+        if (positions.containsKey(order.getId())) {
+            throw new IllegalArgumentException("Order #" + order.getId() + " is already queued");
+        }
+        advance();
+        if (size == heap.length) {
+            grow();
+        }
+        place(order, size);
+        size++;
+        siftUp(size - 1);
+        refreshCertificates();
+    }
+
+    // Highest priority order without removing it
+    public Order peek() {
+        advance();
+        return size == 0 ? null : heap[0];
+    }
+
+    // Remove and return the highest priority order
+    public Order poll() {
+        advance();
+        if (size == 0) {
+            return null;
+        }
+        return removeAt(0);
+    }
+
+    public Order remove(long orderId) {
+        if (!positions.containsKey(orderId)) {
+            return null;
+        }
+        advance();
+        return removeAt(positions.get(orderId));
+    }
+
+    public Order get(long orderId) {
+        int pos = positions.get(orderId);
+        return pos < 0 ? null : heap[pos];
+    }
+
+    public boolean contains(long orderId) {
+        return positions.containsKey(orderId);
+    }
+
+    /**
+     * Re-position an order after one of its constant priority inputs
+     * (its skip count) changed, and take the new value into its columns.
+     */
+    public void update(long orderId) {
+        if (!positions.containsKey(orderId)) {
+            throw new NoSuchElementException("Order #" + orderId + " is not queued");
+        }
+        advance();
+        int pos = positions.get(orderId);
+        markDirty(pos);
+        if (!siftUp(pos)) {
+            siftDown(pos);
+        }
+        refreshCertificates();
+    }
+
+    /**
+     * Apply every priority crossing up to the current time.
+     * All other operations do this first.
+     */
+    public void advance() {
+        long target = clock.getAsLong();
+        while (eventCount > 0 && failAt[events[0]] <= target) {
+            int pos = events[0];
+            now = Math.max(now, failAt[pos]);
+            markDirty(pos);
+            siftUp(pos);
+            refreshCertificates();
+        }
+        now = Math.max(now, target);
+    }
+
+    public long getNow() { return now; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    // Unordered copy of the queued orders
+    public List<Order> toList() {
+        List<Order> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(heap[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Copy of the queued orders, highest priority first.
+     * Refreshes each order's priority field to its current value.
+     */
+    public List<Order> toSortedList() {
+        return sortByPriority(toList());
+    }
+
+    /**
+     * Sort any subset of the queue (e.g. one user's orders) into the same
+     * order the heap serves them. O(k log k) for k orders.
+     */
+    public List<Order> sortByPriority(List<Order> orders) {
+        advance();
+        for (Order order : orders) {
+            order.setPriority(model.priorityAt(order, now));
+        }
+        orders.sort(OrderHeap::compare);
+        return orders;
+    }
+
+    /**
+     * Iterates in heap (not priority) order.
+     * The heap must not be modified while iterating.
+     */
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Order next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return heap[next++];
+            }
+        };
+    }
+
+    // Negative when a should be served before b, by stored priority
+    public static int compare(Order a, Order b) {
+        int byPriority = Double.compare(b.getPriority(), a.getPriority());
+        return byPriority != 0 ? byPriority : Long.compare(a.getId(), b.getId());
+    }
+
+    // HEAP INTERNALS
+
+    private Order removeAt(int pos) {
+        Order removed = heap[pos];
+        positions.remove(removed.getId());
+        size--;
+        removeEvent(size);
+
+        if (pos != size) {
+            move(size, pos);
+            if (!siftUp(pos)) {
+                siftDown(pos);
+            }
+        }
+        heap[size] = null;
+        refreshCertificates();
+        return removed;
+    }
+
+    // Returns true if the element moved
+    private boolean siftUp(int pos) {
+        Order order = heap[pos];
+        int start = pos;
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!model.isBefore(order, heap[parent], now)) {
+                break;
+            }
+            move(parent, pos);
+            pos = parent;
+        }
+        place(order, pos);
+        return pos != start;
+    }
+
+    private void siftDown(int pos) {
+        Order order = heap[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && model.isBefore(heap[right], heap[child], now)) {
+                child = right;
+            }
+            if (!model.isBefore(heap[child], order, now)) {
+                break;
+            }
+            move(child, pos);
+            pos = child;
+        }
+        place(order, pos);
+    }
+
+    // Put an order at pos, reading its scoring inputs into the columns
+    private void place(Order order, int pos) {
+        heap[pos] = order;
+        positions.put(order.getId(), pos);
+        markDirty(pos);
+        arrivalMs[pos] = order.getArrivalTime().toEpochMilli();
+        prepTimeMinutes[pos] = order.getPrepTimeMinutes();
+        loyaltyTier[pos] = order.getLoyaltyTier();
+        regular[pos] = order.isRegularCustomer();
+        skipCount[pos] = order.getSkipCount();
+    }
+
+    // Move the order at from to pos, columns included
+    private void move(int from, int pos) {
+        Order order = heap[from];
+        heap[pos] = order;
+        positions.put(order.getId(), pos);
+        markDirty(pos);
+        arrivalMs[pos] = arrivalMs[from];
+        prepTimeMinutes[pos] = prepTimeMinutes[from];
+        loyaltyTier[pos] = loyaltyTier[from];
+        regular[pos] = regular[from];
+        skipCount[pos] = skipCount[from];
+    }
+
+    private void grow() {
+        int capacity = heap.length * 2;
+        heap = Arrays.copyOf(heap, capacity);
+        arrivalMs = Arrays.copyOf(arrivalMs, capacity);
+        prepTimeMinutes = Arrays.copyOf(prepTimeMinutes, capacity);
+        loyaltyTier = Arrays.copyOf(loyaltyTier, capacity);
+        regular = Arrays.copyOf(regular, capacity);
+        skipCount = Arrays.copyOf(skipCount, capacity);
+        failAt = Arrays.copyOf(failAt, capacity);
+        events = Arrays.copyOf(events, capacity);
+        int oldLength = eventIndex.length;
+        eventIndex = Arrays.copyOf(eventIndex, capacity);
+        Arrays.fill(eventIndex, oldLength, capacity, -1);
+    }
+
+    // CERTIFICATES
+
+    private void markDirty(int pos) {
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        }
+        dirty[dirtyCount++] = pos;
+    }
+
+    // A moved order affects the edge to its parent and the edges to its children
+    private void refreshCertificates() {
+        for (int i = 0; i < dirtyCount; i++) {
+            int pos = dirty[i];
+            refreshCertificate(pos);
+            refreshCertificate(2 * pos + 1);
+            refreshCertificate(2 * pos + 2);
+        }
+        dirtyCount = 0;
+    }
+
+    private void refreshCertificate(int pos) {
+        if (pos == 0 || pos >= size) {
+            return;
+        }
+        Order parent = heap[(pos - 1) >>> 1];
+        long at = model.overtakeTime(parent, heap[pos], now);
+        if (at == Long.MAX_VALUE) {
+            removeEvent(pos);
+            return;
+        }
+        failAt[pos] = at;
+        if (eventIndex[pos] < 0) {
+            events[eventCount] = pos;
+            eventIndex[pos] = eventCount;
+            eventCount++;
+            eventUp(eventCount - 1);
+        } else {
+            int i = eventIndex[pos];
+            eventUp(i);
+            eventDown(eventIndex[pos]);
+        }
+    }
+
+    private void removeEvent(int pos) {
+        int i = eventIndex[pos];
+        if (i < 0) {
+            return;
+        }
+        eventIndex[pos] = -1;
+        eventCount--;
+        if (i != eventCount) {
+            int last = events[eventCount];
+            events[i] = last;
+            eventIndex[last] = i;
+            eventUp(i);
+            eventDown(eventIndex[last]);
+        }
+    }
+
+    private void eventUp(int i) {
+        int pos = events[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (failAt[events[parent]] <= failAt[pos]) {
+                break;
+            }
+            events[i] = events[parent];
+            eventIndex[events[i]] = i;
+            i = parent;
+        }
+        events[i] = pos;
+        eventIndex[pos] = i;
+    }
+
+    private void eventDown(int i) {
+        int pos = events[i];
+        int half = eventCount >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < eventCount && failAt[events[right]] < failAt[events[child]]) {
+                child = right;
+            }
+            if (failAt[pos] <= failAt[events[child]]) {
+                break;
+            }
+            events[i] = events[child];
+            eventIndex[events[i]] = i;
+            i = child;
+        }
+        events[i] = pos;
+        eventIndex[pos] = i;
+    }
+}
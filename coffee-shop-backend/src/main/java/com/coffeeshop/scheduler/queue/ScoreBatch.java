@@ -0,0 +1,187 @@
+package com.coffeeshop.scheduler.queue;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rescores a whole queue at once, struct-of-arrays style, split across a
+ * fork/join pool.
+ *
+ * The inputs are the scoring columns the {@link OrderHeap} keeps in step
+ * with its positions (arrival ms, prep time, loyalty tier, regular flag,
+ * skip count), so nothing is gathered from the orders. {@link #rescore}
+ * cuts the queue into slices; each is scored in one tight loop that
+ * touches no objects, and the scores are written back to its orders.
+ * Scores go through the same {@link PriorityModel} functions as the
+ * per-order path, so they match it bit for bit.
+ *
+ * Scoring is bound by its divisions, not by memory, so on one core this is
+ * no faster than scoring order by order; it pays off when the queue is
+ * large and the pool has workers to spare. {@link #getParallelThreshold()}
+ * is the queue size from which that is the case.
+ *
+ * Output arrays are kept between rescores and only grow. Not thread-safe:
+ * rescore from the heap's thread (the pool only runs inside rescore).
+ */
+public final class ScoreBatch {
+
+    // Below this many orders, splitting costs more than it saves
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 16_384;
+    private static final int LEAF_SIZE = 4_096;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    // The queue being scored (only during rescore)
+    private OrderHeap queue;
+
+    // Outputs: the components (for explanations) and the priority
+    private double[] waitTimeScore = new double[INITIAL_CAPACITY];
+    private double[] complexityScore = new double[INITIAL_CAPACITY];
+    private double[] loyaltyScore = new double[INITIAL_CAPACITY];
+    private double[] urgencyScore = new double[INITIAL_CAPACITY];
+    private double[] fairnessBoost = new double[INITIAL_CAPACITY];
+    private double[] priority = new double[INITIAL_CAPACITY];
+
+    // Splits on the rescore pool, if it has more than one worker
+    public ScoreBatch() {
+        this(RescorePool.POOL, RescorePool.POOL.getParallelism() > 1
+                ? DEFAULT_PARALLEL_THRESHOLD : Integer.MAX_VALUE);
+    }
+
+    public ScoreBatch(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Score every order in the queue as of nowMs and write the scores back,
+     * in parallel if there are at least the threshold. The queue must not
+     * change meanwhile. Scores stay readable by heap position through
+     * {@link #getPriority} until the next rescore.
+     */
+    public void rescore(OrderHeap queue, PriorityModel model, long nowMs) {
+        int size = queue.size();
+        if (priority.length < size) {
+            grow(size);
+        }
+        this.queue = queue;
+        try {
+            if (size >= parallelThreshold) {
+                pool.invoke(new Range(model, nowMs, 0, size));
+            } else {
+                // Same slices, one after the other, so each slice's arrays stay in cache
+                for (int from = 0; from < size; from += LEAF_SIZE) {
+                    score(model, nowMs, from, Math.min(size, from + LEAF_SIZE));
+                }
+            }
+        } finally {
+            this.queue = null;
+        }
+    }
+
+    public double getPriority(int index) {
+        return priority[index];
+    }
+
+    // One slice: score, write back
+    private void score(PriorityModel model, long nowMs, int from, int to) {
+        compute(model, nowMs, from, to);
+        Order[] orders = queue.heap;
+        for (int i = from; i < to; i++) {
+            orders[i].setScore(model, nowMs, waitTimeScore[i], complexityScore[i], loyaltyScore[i], urgencyScore[i],
+                    fairnessBoost[i], priority[i]);
+        }
+    }
+
+    // The hot loop: primitives in, primitives out (arrays in locals so they are loaded once)
+    private void compute(PriorityModel model, long nowMs, int from, int to) {
+        long[] arrivalMs = queue.arrivalMs;
+        int[] prepTimeMinutes = queue.prepTimeMinutes;
+        int[] loyaltyTier = queue.loyaltyTier;
+        boolean[] regular = queue.regular;
+        int[] skipCount = queue.skipCount;
+        double[] waitTimeScore = this.waitTimeScore;
+        double[] complexityScore = this.complexityScore;
+        double[] loyaltyScore = this.loyaltyScore;
+        double[] urgencyScore = this.urgencyScore;
+        double[] fairnessBoost = this.fairnessBoost;
+        double[] priority = this.priority;
+        for (int i = from; i < to; i++) {
+            double waitMinutes = PriorityModel.waitMinutes(arrivalMs[i], nowMs);
+            double wait = PriorityModel.waitTimeScore(waitMinutes);
+            double complexity = PriorityModel.complexityScore(prepTimeMinutes[i]);
+            double loyalty = PriorityModel.loyaltyScore(loyaltyTier[i], regular[i]);
+            double urgency = PriorityModel.urgencyScore(waitMinutes);
+            double fairness = PriorityModel.fairnessBoost(skipCount[i]);
+            waitTimeScore[i] = wait;
+            complexityScore[i] = complexity;
+            loyaltyScore[i] = loyalty;
+            urgencyScore[i] = urgency;
+            fairnessBoost[i] = fairness;
+            priority[i] = model.combine(wait, complexity, loyalty, urgency, fairness);
+        }
+    }
+
+    private void grow(int size) {
+        int capacity = Math.max(priority.length * 2, size);
+        waitTimeScore = Arrays.copyOf(waitTimeScore, capacity);
+        complexityScore = Arrays.copyOf(complexityScore, capacity);
+        loyaltyScore = Arrays.copyOf(loyaltyScore, capacity);
+        urgencyScore = Arrays.copyOf(urgencyScore, capacity);
+        fairnessBoost = Arrays.copyOf(fairnessBoost, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+    }
+
+    /**
+     * Workers for rescoring only. The shops' loops wait on it, so nothing
+     * else (simulations, parallel streams on the common pool) may queue
+     * work here. Created on first use.
+     */
+    private static final class RescorePool {
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("rescore-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    // Halves the index range down to LEAF_SIZE; slices never overlap
+    private final class Range extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PriorityModel model;
+        private final long nowMs;
+        private final int from;
+        private final int to;
+
+        Range(PriorityModel model, long nowMs, int from, int to) {
+            this.model = model;
+            this.nowMs = nowMs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                score(model, nowMs, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(model, nowMs, from, mid), new Range(model, nowMs, mid, to));
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.coffeeshop.scheduler.queue;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.util.LongIntHashMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fairness skip counts without scanning the queue.
+ *
+ * A queued order's skip count is the number of later arrivals assigned
+ * while it waited. Every queued order gets an arrival rank (orders that
+ * arrived at the same instant share one), and each skipping assignment
+ * adds 1 at its rank in a Fenwick tree, so a skip count is a suffix sum:
+ * O(log n) to record, O(log n) to read.
+ *
+ * Skip counts never increase with rank, so the orders past the fairness
+ * threshold are always a prefix of the queue in arrival order. Only that
+ * prefix (whose boost actually changes) is handed back on an assignment;
+ * everyone else's {@link Order#getSkipCount()} is filled in on demand by
+ * {@link #materialize}.
+ *
+ * Not thread-safe: only the scheduler loop thread may touch it. Other
+ * threads read skip counts from a {@link Counts} copy.
+ */
+public class SkipTracker {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int threshold;
+
+    // Queued orders in arrival order, and their ranks
+    private final TreeMap<Long, Order> queued = new TreeMap<>();
+    private final LongIntHashMap ranks = new LongIntHashMap(-1);
+    private int lastRank = -1;
+    private long lastArrivalMs = Long.MIN_VALUE;
+    private int lastArrivalNanos;
+
+    // Queued orders with id <= boostedThrough are past the threshold
+    private long boostedThrough = Long.MIN_VALUE;
+    private int boostedCount;  // How many of them
+
+    // Fenwick tree of skipping assignments per rank, for ranks >= base
+    private int base;
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private long belowBase;  // Assignments at ranks < base
+    private long total;
+    private Counts published = Counts.NONE;  // Null once the counts changed
+
+    public SkipTracker(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public void add(Order order) {
+        long arrivalMs = order.getArrivalTime().toEpochMilli();
+        int arrivalNanos = order.getArrivalTime().getNano();
+        if (arrivalMs != lastArrivalMs || arrivalNanos != lastArrivalNanos) {
+            lastRank++;
+            lastArrivalMs = arrivalMs;
+            lastArrivalNanos = arrivalNanos;
+        }
+        queued.put(order.getId(), order);
+        ranks.put(order.getId(), lastRank);
+        ensureCapacity(lastRank);
+    }
+
+    // Order left the queue (assigned or force-assigned); its count is final
+    public void remove(Order order) {
+        if (queued.remove(order.getId()) != null) {
+            if (order.getId() <= boostedThrough) {
+                boostedCount--;
+            }
+            materialize(order);
+            ranks.remove(order.getId());
+        }
+    }
+
+    /**
+     * Record that {@code assigned} left the queue ahead of everyone who
+     * arrived before it. Collects the queued orders whose skip count went
+     * past the threshold (or further past it), in arrival order, with their
+     * counts materialized.
+     */
+    public void recordSkip(Order assigned, List<Order> boosted) {
+        int rank = ranks.get(assigned.getId());
+        remove(assigned);
+        if (rank < 0) {
+            return;
+        }
+        increment(rank);
+
+        // Already boosted: every one that arrived earlier gained a skip
+        for (Order order : queued.headMap(boostedThrough, true).values()) {
+            if (ranks.get(order.getId()) >= rank) {
+                break;
+            }
+            materialize(order);
+            boosted.add(order);
+        }
+
+        // Newly past the threshold: extend the boosted prefix
+        Long from = queued.isEmpty() ? null : queued.higherKey(boostedThrough);
+        if (from == null) {
+            return;
+        }
+        for (Map.Entry<Long, Order> entry : queued.tailMap(from, true).entrySet()) {
+            Order order = entry.getValue();
+            int orderRank = ranks.get(order.getId());
+            if (orderRank >= rank || skipCount(orderRank) <= threshold) {
+                break;
+            }
+            boostedThrough = entry.getKey();
+            boostedCount++;
+            materialize(order);
+            boosted.add(order);
+        }
+    }
+
+    /**
+     * Carry over skip counts from another tracker (handoff or recovery).
+     * The orders must have been added already, in arrival order, with
+     * their old counts set; counts never increase with arrival order in
+     * any state this class produced.
+     */
+    public void restore(List<Order> inArrivalOrder) {
+        for (int i = 0; i < inArrivalOrder.size(); i++) {
+            Order order = inArrivalOrder.get(i);
+            int skips = order.getSkipCount();
+            int nextSkips = 0;
+            int nextRank;
+            if (i + 1 < inArrivalOrder.size()) {
+                nextSkips = inArrivalOrder.get(i + 1).getSkipCount();
+                nextRank = ranks.get(inArrivalOrder.get(i + 1).getId());
+            } else {
+                nextRank = ++lastRank;  // Stands for assignments after the last order
+                ensureCapacity(nextRank);
+            }
+            // Skips count assignments at later ranks
+            if (skips > nextSkips) {
+                increment(nextRank, skips - nextSkips);
+            }
+            if (skips > threshold) {
+                boostedThrough = order.getId();
+                boostedCount++;
+            }
+        }
+    }
+
+    // Write the current skip count into the order
+    public void materialize(Order order) {
+        int rank = ranks.get(order.getId());
+        if (rank >= 0) {
+            order.setSkipCount((int) skipCount(rank));
+        }
+    }
+
+    // Arrival rank of a queued order, or -1 if it is not queued
+    public int rank(Order order) {
+        return ranks.get(order.getId());
+    }
+
+    /**
+     * Read-only copy of the counts, safe to hand to other threads. Copied
+     * (one array copy of the window) only after an assignment skipped
+     * someone; otherwise the previous copy is returned.
+     */
+    public Counts counts() {
+        if (published == null) {
+            published = new Counts(base, belowBase, total, tree.clone());
+        }
+        return published;
+    }
+
+    public int size() {
+        return queued.size();
+    }
+
+    // Queued orders past the fairness threshold
+    public int boostedCount() {
+        return boostedCount;
+    }
+
+    // Earliest arrival still queued, or null
+    public Order oldest() {
+        return queued.isEmpty() ? null : queued.get(queued.firstKey());
+    }
+
+    // FENWICK TREE
+
+    // Skipping assignments at ranks above this one
+    private long skipCount(int rank) {
+        return total - belowBase - prefix(rank - base);
+    }
+
+    private void increment(int rank) {
+        increment(rank, 1);
+    }
+
+    private void increment(int rank, int amount) {
+        int index = rank - base;
+        counts[index] += amount;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += amount;
+        }
+        total += amount;
+        published = null;
+    }
+
+    // Sum of counts[0..index]
+    private long prefix(int index) {
+        return prefix(tree, index);
+    }
+
+    private static long prefix(int[] tree, int index) {
+        long sum = 0;
+        for (int i = index + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Slide the window up to the oldest queued rank, growing it if needed
+    private void ensureCapacity(int rank) {
+        if (rank - base < counts.length) {
+            return;
+        }
+        int newBase = ranks.get(queued.firstKey());
+        int shift = Math.min(newBase - base, counts.length);
+        for (int i = 0; i < shift; i++) {
+            belowBase += counts[i];
+        }
+
+        int capacity = counts.length;
+        while (rank - newBase >= capacity) {
+            capacity *= 2;
+        }
+        int[] newCounts = new int[capacity];
+        System.arraycopy(counts, shift, newCounts, 0, counts.length - shift);
+        counts = newCounts;
+        base = newBase;
+
+        // Rebuild in O(capacity)
+        tree = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Skip counts as they stood when copied. Immutable.
+     */
+    public static final class Counts {
+
+        public static final Counts NONE = new Counts(0, 0, 0, new int[1]);
+
+        private final int base;
+        private final long belowBase;
+        private final long total;
+        private final int[] tree;
+
+        private Counts(int base, long belowBase, long total, int[] tree) {
+            this.base = base;
+            this.belowBase = belowBase;
+            this.total = total;
+            this.tree = tree;
+        }
+
+        /**
+         * Skip count of the order with this arrival rank. A rank past the
+         * copied window arrived after every skip it holds, so it has none.
+         */
+        public int skipCount(int rank) {
+            int index = Math.min(rank - base, tree.length - 2);
+            return (int) (total - belowBase - prefix(tree, index));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.coffeeshop.scheduler.queue;
+
+import java.util.ArrayDeque;
+
+/**
+ * Hierarchical timer wheel with 1 ms resolution.
+ *
+ * Seven levels of 64 slots cover 2^42 ms (~139 years) of absolute time.
+ * A timer sits in the lowest level whose slot still lies in the current
+ * rotation of the level above, and is cascaded down as time reaches its
+ * slot, so it fires exactly at its deadline. Scheduling and cancellation
+ * are O(1); {@link #advance} skips empty slots using a per-level
+ * occupancy bitmap, so idle stretches cost nothing.
+ *
+ * Not thread-safe: only the scheduler loop thread may touch it.
+ */
+public class TimerWheel {
+
+    private static final int LEVELS = 7;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final Timeout[][] heads = new Timeout[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+
+    // Timers whose deadline has been reached but not yet run
+    private final ArrayDeque<Timeout> due = new ArrayDeque<>();
+
+    // Every timer with deadline <= current has been handed to due
+    private long current;
+    private int size;
+
+    public TimerWheel(long startMs) {
+        this.current = startMs;
+    }
+
+    /**
+     * Run {@code task} once, when the wheel is advanced to {@code deadlineMs}.
+     * Deadlines in the past fire on the next {@link #advance}.
+     */
+    public Timeout schedule(long deadlineMs, Runnable task) {
+        Timeout timeout = new Timeout(this, deadlineMs, task);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Fire every timer with deadline <= nowMs, in deadline order.
+     * Tasks may schedule or cancel other timers.
+     *
+     * @return the number of timers fired
+     */
+    public int advance(long nowMs) {
+        int fired = 0;
+        while (true) {
+            fired += runDue();
+
+            long next = nextSlotStart();
+            if (next > nowMs) {
+                break;
+            }
+            current = next;
+
+            // Entering a slot on an upper level: push its timers down
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((current & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, slotIndex(current, level));
+                }
+            }
+            int slot = slotIndex(current, 0);
+            for (Timeout t = detach(0, slot); t != null; ) {
+                Timeout next0 = t.next;
+                t.next = null;
+                t.level = -1;
+                due.add(t);
+                t = next0;
+            }
+        }
+        current = Math.max(current, nowMs);
+        return fired;
+    }
+
+    /**
+     * Lower bound on the next deadline (exact when it is within 64 ms),
+     * or {@code Long.MAX_VALUE} if nothing is scheduled.
+     */
+    public long nextDeadline() {
+        return due.isEmpty() ? nextSlotStart() : current;
+    }
+
+    public long getCurrent() { return current; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    // INTERNALS
+
+    private int runDue() {
+        int fired = 0;
+        Timeout t;
+        while ((t = due.poll()) != null) {
+            if (t.state != Timeout.PENDING) {
+                continue;
+            }
+            t.state = Timeout.EXPIRED;
+            size--;
+            fired++;
+            t.task.run();
+        }
+        return fired;
+    }
+
+    private void place(Timeout t) {
+        long deadline = t.deadline;
+        if (deadline <= current) {
+            t.level = -1;
+            due.add(t);
+            return;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(deadline ^ current);
+        int level = highestBit / SLOT_BITS;
+        if (level >= LEVELS) {
+            throw new IllegalArgumentException("Deadline " + deadline + " is beyond the wheel's range");
+        }
+        int slot = slotIndex(deadline, level);
+
+        Timeout head = heads[level][slot];
+        t.level = level;
+        t.slot = slot;
+        t.prev = null;
+        t.next = head;
+        if (head != null) {
+            head.prev = t;
+        }
+        heads[level][slot] = t;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void cascade(int level, int slot) {
+        for (Timeout t = detach(level, slot); t != null; ) {
+            Timeout next = t.next;
+            t.next = null;
+            place(t);
+            t = next;
+        }
+    }
+
+    // Remove a whole slot's list and return its head
+    private Timeout detach(int level, int slot) {
+        Timeout head = heads[level][slot];
+        heads[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        return head;
+    }
+
+    private void unlink(Timeout t) {
+        if (t.level < 0) {
+            return;  // already due; runDue skips it
+        }
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            heads[t.level][t.slot] = t.next;
+            if (t.next == null) {
+                occupied[t.level] &= ~(1L << t.slot);
+            }
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+        t.level = -1;
+    }
+
+    // Start time of the earliest occupied slot after current, on any level
+    private long nextSlotStart() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int index = slotIndex(current, level);
+            if (index == SLOT_MASK) {
+                continue;
+            }
+            long later = occupied[level] & (-1L << (index + 1));
+            if (later == 0) {
+                continue;
+            }
+            int shift = SLOT_BITS * level;
+            long rotationStart = (current >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS);
+            long start = rotationStart | ((long) Long.numberOfTrailingZeros(later) << shift);
+            next = Math.min(next, start);
+        }
+        return next;
+    }
+
+    private static int slotIndex(long time, int level) {
+        return (int) ((time >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimerWheel wheel;
+        private final long deadline;
+        private final Runnable task;
+        private int state = PENDING;
+
+        // Position in the wheel (level -1 = not in a slot)
+        private int level = -1;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, long deadline, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        // Returns false if the task already ran or was cancelled
+        public boolean cancel() {
+            if (state != PENDING) {
+                return false;
+            }
+            state = CANCELLED;
+            wheel.unlink(this);
+            wheel.size--;
+            return true;
+        }
+
+        public long getDeadline() { return deadline; }
+        public boolean isCancelled() { return state == CANCELLED; }
+        public boolean isExpired() { return state == EXPIRED; }
+    }
+}
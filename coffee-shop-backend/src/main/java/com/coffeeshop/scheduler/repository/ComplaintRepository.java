@@ -10,4 +10,7 @@ import java.util.List;
 public interface ComplaintRepository extends JpaRepository<Complaint, Long> {
     List<Complaint> findByBaristaName(String baristaName);
     List<Complaint> findAllByOrderByCreatedAtDesc();
+    List<Complaint> findByShopIdOrderByCreatedAtDesc(String shopId);
+    List<Complaint> findByShopIdAndBaristaName(String shopId, String baristaName);
+    boolean existsByOrderKey(String orderKey);
 }
@@ -44,6 +44,8 @@ public class SecurityConfig {
                 .requestMatchers("/oauth2/**", "/login/oauth2/**").permitAll()
                 // Allow scheduler endpoints (for demo purposes)
                 .requestMatchers("/api/**").permitAll()
+                // Health checks and the Prometheus scrape
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 // Secure everything else
                 .anyRequest().authenticated()
             )
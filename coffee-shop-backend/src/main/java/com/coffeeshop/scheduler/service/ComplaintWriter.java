@@ -0,0 +1,266 @@
+package com.coffeeshop.scheduler.service;
+
+import com.coffeeshop.scheduler.entity.Complaint;
+import com.coffeeshop.scheduler.loop.CommandRing;
+import com.coffeeshop.scheduler.repository.ComplaintRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stores auto-complaints off the scheduler loops.
+ *
+ * Shops hand complaints to a bounded lock-free ring and carry on; one
+ * background thread drains it and saves what it finds in one
+ * transaction, which Hibernate sends as a JDBC batch.
+ *
+ * Backpressure: when the ring is full but the database is keeping up, a
+ * shop waits up to {@code scheduler.complaints.offer-timeout-ms} for room.
+ * While the database is failing (the writer is retrying with backoff) a
+ * full ring drops new complaints at once, so an outage never stalls
+ * assignment. Drops are counted and logged.
+ *
+ * Each auto-complaint carries its order key under a unique constraint, so
+ * a batch that committed but whose acknowledgement was lost is not stored
+ * twice: the retry hits the constraint, falls back to one row at a time
+ * and skips the rows already there. Delivery is at most once per order.
+ * A row refused for any other reason is dropped with a warning, since
+ * retrying it would fail the same way.
+ */
+@Component
+public class ComplaintWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ComplaintWriter.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MIN_BACKOFF_MS = 100;
+
+    @Value("${scheduler.complaints.capacity:4096}")
+    private int capacity = 4096;
+
+    @Value("${scheduler.complaints.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${scheduler.complaints.offer-timeout-ms:10}")
+    private long offerTimeoutMs = 10;
+
+    @Value("${scheduler.complaints.max-backoff-ms:5000}")
+    private long maxBackoffMs = 5000;
+
+    @Autowired(required = false)
+    private ComplaintRepository complaintRepository;
+
+    @Autowired(required = false)
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private CommandRing<Complaint> ring;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean retrying;  // Last write failed; the database is down or refusing
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (complaintRepository == null) {
+            return;  // Nowhere to store them
+        }
+        alignIdSequence();
+        ring = new CommandRing<>(capacity);
+        running = true;
+        thread = new Thread(this::writeLoop, "complaint-writer");
+        thread.setDaemon(true);
+        thread.start();
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("scheduler.complaints.written", written, AtomicLong::get)
+                    .description("Auto-complaints stored")
+                    .register(meterRegistry);
+            FunctionCounter.builder("scheduler.complaints.dropped", dropped, AtomicLong::get)
+                    .description("Auto-complaints dropped because the writer was full")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // SCHEDULER SIDE
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Queue a complaint for storage. Never blocks longer than the offer
+     * timeout, and not at all while the database is failing.
+     *
+     * @return false if it was dropped (or there is no repository)
+     */
+    public boolean submit(Complaint complaint) {
+        if (!running) {
+            return false;
+        }
+        if (ring.offer(complaint)) {
+            return true;
+        }
+        if (!retrying) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+            LockSupport.unpark(thread);
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                if (ring.offer(complaint)) {
+                    return true;
+                }
+            }
+        }
+        long count = dropped.incrementAndGet();
+        if (count == 1 || count % 100 == 0) {
+            log.warn("Complaint writer is full; {} auto-complaints dropped so far (latest: {})", count,
+                    complaint.getOrderKey());
+        }
+        return false;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // WRITER THREAD
+    // ════════════════════════════════════════════════════════════════
+
+    private void writeLoop() {
+        List<Complaint> batch = new ArrayList<>(batchSize);
+        long backoffMs = 0;
+        while (running || !batch.isEmpty() || !ring.isEmpty()) {
+            if (batch.size() < batchSize) {
+                ring.drain(batch::add, batchSize - batch.size());
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            if (write(batch)) {
+                retrying = false;
+                backoffMs = 0;
+                continue;
+            }
+            if (!running) {
+                log.warn("Complaint writer stopping with {} auto-complaints unsaved", batch.size());
+                break;
+            }
+            retrying = true;
+            backoffMs = Math.min(maxBackoffMs, Math.max(MIN_BACKOFF_MS, backoffMs * 2));
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+        }
+        log.info("Complaint writer stopped: {} stored, {} skipped as already stored, {} rejected, {} dropped",
+                written.get(), duplicates.get(), rejected.get(), dropped.get());
+    }
+
+    // Saves the batch; what is left in it afterwards still needs saving
+    private boolean write(List<Complaint> batch) {
+        try {
+            complaintRepository.saveAll(batch);
+            written.addAndGet(batch.size());
+            batch.clear();
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Some were stored by an attempt whose outcome we never saw
+            clearIds(batch);
+            return writeEach(batch);
+        } catch (RuntimeException e) {
+            clearIds(batch);
+            log.warn("Could not store {} auto-complaints, will retry: {}", batch.size(), e.toString());
+            return false;
+        }
+    }
+
+    private boolean writeEach(List<Complaint> batch) {
+        for (Iterator<Complaint> it = batch.iterator(); it.hasNext(); ) {
+            Complaint complaint = it.next();
+            try {
+                try {
+                    complaintRepository.save(complaint);
+                    written.incrementAndGet();
+                } catch (DataIntegrityViolationException e) {
+                    // Only the order key tells our earlier attempt from a bad row
+                    if (complaint.getOrderKey() != null && complaintRepository.existsByOrderKey(complaint.getOrderKey())) {
+                        duplicates.incrementAndGet();
+                        log.debug("Auto-complaint {} already stored", complaint.getOrderKey());
+                    } else {
+                        rejected.incrementAndGet();
+                        log.warn("Auto-complaint {} refused by the database, dropping it: {}",
+                                complaint.getOrderKey(), e.toString());
+                    }
+                }
+            } catch (RuntimeException e) {
+                complaint.setId(null);
+                log.warn("Could not store auto-complaint {}, will retry: {}", complaint.getOrderKey(), e.toString());
+                return false;
+            }
+            it.remove();
+        }
+        return true;
+    }
+
+    // A failed transaction leaves generated ids on the entities; the retry must get fresh ones
+    private static void clearIds(List<Complaint> batch) {
+        for (Complaint complaint : batch) {
+            complaint.setId(null);
+        }
+    }
+
+    /**
+     * Rows written while ids came from an IDENTITY column must not collide
+     * with sequence-generated ones: move the sequence (a table on MySQL)
+     * past the highest id in use. It only ever moves forward.
+     */
+    private void alignIdSequence() {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("UPDATE complaints_seq SET next_val = GREATEST(next_val, "
+                    + "(SELECT COALESCE(MAX(id), 0) + ? FROM complaints))", Complaint.ID_ALLOCATION + 1);
+        } catch (DataAccessException e) {
+            log.warn("Could not align the complaint id sequence: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.coffeeshop.scheduler.service;
+
+import com.coffeeshop.scheduler.model.Barista;
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.queue.SkipTracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What request threads read, kept current by the scheduler loop.
+ *
+ * Nothing here is rebuilt from scratch. At the end of each command the
+ * loop republishes only what the command changed: a copy of each order
+ * that joined or left the queue, the queue list of each user involved,
+ * the skip counts if an assignment skipped someone, and the barista
+ * copies if a barista's work changed. A read after a write therefore
+ * costs the loop nothing beyond the write itself.
+ *
+ * Readers never wait: each piece is reached through a concurrent map or
+ * a volatile reference to something immutable. The pieces are published
+ * one after another, so a reader may see a command's effect on the
+ * baristas just before its effect on the queue; each piece is whole.
+ */
+final class SchedulerView {
+
+    // Queued orders by id, and each user's (immutable lists)
+    final Map<Long, QueuedOrder> queue = new ConcurrentHashMap<>();
+    final Map<String, List<QueuedOrder>> queueByUser = new ConcurrentHashMap<>();
+
+    // Skip counts of the queued orders, by arrival rank
+    volatile SkipTracker.Counts skips = SkipTracker.Counts.NONE;
+
+    volatile Team team = Team.EMPTY;
+
+    // Loop thread only
+    private final List<Order> changed = new ArrayList<>();
+    private final Map<String, Map<Long, QueuedOrder>> userIndex = new HashMap<>();
+    private final Set<String> changedUsers = new HashSet<>();
+
+    // An order joined or left the queue, or changed while queued (loop thread)
+    void orderChanged(Order order) {
+        changed.add(order);
+    }
+
+    // Publish the queue changes collected since the last call (loop thread)
+    void publishQueue(SkipTracker skipTracker) {
+        skips = skipTracker.counts();
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (Order order : changed) {
+            int rank = skipTracker.rank(order);
+            String username = order.getUsername();
+            if (rank >= 0) {
+                QueuedOrder copy = new QueuedOrder(new Order(order), rank);
+                queue.put(order.getId(), copy);
+                if (username != null) {
+                    userIndex.computeIfAbsent(username, k -> new HashMap<>()).put(order.getId(), copy);
+                    changedUsers.add(username);
+                }
+            } else if (queue.remove(order.getId()) != null && username != null) {
+                Map<Long, QueuedOrder> own = userIndex.get(username);
+                if (own != null) {
+                    own.remove(order.getId());
+                }
+                changedUsers.add(username);
+            }
+        }
+        changed.clear();
+
+        // Only the users whose queue changed get a new list
+        for (String username : changedUsers) {
+            Map<Long, QueuedOrder> own = userIndex.get(username);
+            if (own == null || own.isEmpty()) {
+                userIndex.remove(username);
+                queueByUser.remove(username);
+            } else {
+                queueByUser.put(username, List.copyOf(own.values()));
+            }
+        }
+        changedUsers.clear();
+    }
+
+    /**
+     * A queued order as published: a detached copy, and its arrival rank
+     * for looking up its skip count in {@link #skips}.
+     */
+    static final class QueuedOrder {
+        final Order order;
+        final int rank;
+
+        QueuedOrder(Order order, int rank) {
+            this.order = order;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * Detached copies of the baristas and their orders. Immutable.
+     */
+    static final class Team {
+
+        static final Team EMPTY = new Team(List.of(), Map.of(), Map.of());
+
+        final List<Barista> baristas;
+        final Map<Long, Order> assigned;  // Their orders, by id
+        final Map<Long, Long> timeouts;   // Completed orders that had waited over the limit, by barista id
+
+        Team(List<Barista> baristas, Map<Long, Order> assigned, Map<Long, Long> timeouts) {
+            this.baristas = baristas;
+            this.assigned = assigned;
+            this.timeouts = timeouts;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.coffeeshop.scheduler.service;
+
+/**
+ * The shop was handed to another node while the request was on its way.
+ * The client should retry; the cluster will route it to the new owner.
+ */
+public class ShopMovedException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ShopMovedException(String shopId) {
+        super("Shop " + shopId + " has moved to another node");
+    }
+}
@@ -0,0 +1,376 @@
+package com.coffeeshop.scheduler.service;
+
+import com.coffeeshop.scheduler.alert.AlertLog;
+import com.coffeeshop.scheduler.journal.Durability;
+import com.coffeeshop.scheduler.journal.OrderJournal;
+import com.coffeeshop.scheduler.loop.CommandLoop;
+import com.coffeeshop.scheduler.stats.CompletedOrderStore;
+import com.coffeeshop.scheduler.stream.DeltaPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Shops and the worker threads they run on.
+ *
+ * A fixed pool of worker loops (one per core by default) is started up
+ * front; every shop partition is pinned to the least loaded worker when it
+ * is created and stays there until it is destroyed. Lookups are lock-free;
+ * creating and destroying shops is rare and serialized.
+ *
+ * In a cluster a node only holds the shops it owns, so the default shop
+ * is created on first use rather than at startup.
+ *
+ * With the journal enabled every shop writes one under its own directory,
+ * and the shops found there are recovered at startup.
+ */
+@Component
+public class ShopRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopRegistry.class);
+
+    private static final Pattern SHOP_ID = Pattern.compile("[A-Za-z0-9_-]{1,50}");
+
+    @Value("${scheduler.workers:0}")
+    private int workerCount = 0;  // 0 = one per core
+
+    @Value("${scheduler.loop.capacity:4096}")
+    private int loopCapacity = 4096;
+
+    @Value("${scheduler.loop.max-batch:256}")
+    private int loopMaxBatch = 256;
+
+    @Value("${scheduler.completed.capacity:10000}")
+    private int completedCapacity = 10000;
+
+    @Value("${scheduler.completed.overflow:DROP}")
+    private CompletedOrderStore.OverflowPolicy completedOverflow = CompletedOrderStore.OverflowPolicy.DROP;
+
+    @Value("${scheduler.completed.spill-file:completed-orders.bin}")
+    private String completedSpillFile = "completed-orders.bin";
+
+    @Value("${scheduler.alerts.capacity:1024}")
+    private int alertCapacity = 1024;
+
+    @Value("${scheduler.shops.default-id:main}")
+    private String defaultShopId = "main";
+
+    @Value("${scheduler.shops.default-baristas:Alice,Bob,Charlie}")
+    private String[] defaultBaristas = {"Alice", "Bob", "Charlie"};
+
+    // Every shop holds a loop registration, timers and a completed-order ring
+    @Value("${scheduler.shops.max:100}")
+    private int maxShops = 100;
+
+    @Value("${scheduler.cluster.enabled:false}")
+    private boolean clustered = false;
+
+    @Value("${scheduler.journal.enabled:false}")
+    private boolean journaled = false;
+
+    @Value("${scheduler.journal.dir:journal}")
+    private String journalDir = "journal";
+
+    @Value("${scheduler.journal.durability:INTERVAL}")
+    private Durability journalDurability = Durability.INTERVAL;
+
+    @Value("${scheduler.journal.sync-interval-ms:50}")
+    private long journalSyncIntervalMs = 50;
+
+    @Value("${scheduler.journal.segment-mb:64}")
+    private int journalSegmentMb = 64;
+
+    @Value("${scheduler.journal.snapshot-every:100000}")
+    private long journalSnapshotEvery = 100000;
+
+    @Value("${scheduler.metrics.tick-budget-ms:100}")
+    private long tickBudgetMs = 100;
+
+    private DeltaPublisher deltas = DeltaPublisher.NONE;
+
+    @Autowired(required = false)
+    private ComplaintWriter complaintWriter;
+
+    // Per-shop meters (Actuator); standalone shops are not instrumented
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private CommandLoop[] workers = new CommandLoop[0];
+    private int[] shopsPerWorker = new int[0];  // Guarded by this
+
+    private final Map<String, ShopScheduler> shops = new ConcurrentHashMap<>();
+    private final Map<String, Integer> workerOf = new ConcurrentHashMap<>();
+
+    public ShopRegistry() {
+    }
+
+    // Standalone use (benchmarks): a fixed number of workers
+    public ShopRegistry(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    @Autowired(required = false)
+    public void setDeltaPublisher(DeltaPublisher deltas) {
+        this.deltas = deltas;
+    }
+
+    @PostConstruct
+    public void init() {
+        int count = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        workers = new CommandLoop[count];
+        shopsPerWorker = new int[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new CommandLoop("scheduler-worker-" + i, loopCapacity, loopMaxBatch);
+            workers[i].start();
+        }
+
+        if (journaled) {
+            recoverShops();
+        }
+        if (!clustered && !shops.containsKey(defaultShopId)) {
+            create(defaultShopId, Arrays.asList(defaultBaristas));
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        for (ShopScheduler shop : shops.values()) {
+            shop.stop();
+        }
+        shops.clear();
+        workerOf.clear();
+        for (CommandLoop worker : workers) {
+            worker.stop();  // Commands still queued fail; the shops above are already stopped
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // SHOPS
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Create a shop and pin it to the least loaded worker.
+     *
+     * @throws IllegalArgumentException if the id is invalid or taken, or there are no baristas
+     * @throws IllegalStateException if this node already holds the maximum number of shops
+     */
+    public synchronized ShopScheduler create(String shopId, List<String> baristaNames) {
+        if (shopId == null || !SHOP_ID.matcher(shopId).matches()) {
+            throw new IllegalArgumentException("Shop id must be 1-50 letters, digits, '-' or '_'");
+        }
+        if (shops.containsKey(shopId)) {
+            throw new IllegalArgumentException("Shop " + shopId + " already exists");
+        }
+        if (baristaNames == null || baristaNames.isEmpty()) {
+            throw new IllegalArgumentException("Shop " + shopId + " needs at least one barista");
+        }
+        if (shops.size() >= maxShops && !shopId.equals(defaultShopId)) {
+            throw new IllegalStateException("This node already holds the maximum of " + maxShops + " shops");
+        }
+
+        ShopScheduler shop = newShop(shopId, new ArrayList<>(baristaNames));
+        startJournal(shop);
+        return register(shop);
+    }
+
+    /**
+     * Take over a shop handed from another node. An idle local shop with
+     * the same id (e.g. a default shop created before the cluster settled)
+     * is replaced.
+     *
+     * @throws IllegalStateException if a busy shop with that id exists here
+     */
+    public synchronized ShopScheduler adopt(ShopState state) {
+        ShopScheduler existing = shops.get(state.shopId);
+        if (existing != null) {
+            if (!existing.isIdle()) {
+                throw new IllegalStateException("Shop " + state.shopId + " is already active on this node");
+            }
+            remove(state.shopId);
+        }
+        List<String> names = new ArrayList<>();
+        for (ShopState.BaristaState barista : state.baristas) {
+            names.add(barista.name);
+        }
+        ShopScheduler shop = newShop(state.shopId, names);
+        shop.restore(state);
+        startJournal(shop);
+        return register(shop);
+    }
+
+    /**
+     * Stop serving a shop here and return what changed since a snapshot
+     * (see {@link ShopScheduler#handOff}). Null if there is no such shop.
+     */
+    public synchronized ShopState.Tail detach(String shopId, long sinceOrderId) {
+        ShopScheduler shop = shops.get(shopId);
+        if (shop == null) {
+            return null;
+        }
+        shops.remove(shopId);
+        shopsPerWorker[workerOf.remove(shopId)]--;
+        ShopState.Tail tail = shop.handOff(sinceOrderId);
+        deleteJournal(shopId);  // The new owner journals it from here on
+        deltas.remove(shopId);
+        return tail;
+    }
+
+    private ShopScheduler newShop(String shopId, List<String> baristaNames) {
+        return new ShopScheduler(shopId, baristaNames,
+                new CompletedOrderStore(completedCapacity, completedOverflow, spillFileFor(shopId)),
+                new AlertLog(alertCapacity), deltas, complaintWriter);
+    }
+
+    // Pin to the least loaded worker and publish
+    private ShopScheduler register(ShopScheduler shop) {
+        int worker = 0;
+        for (int i = 1; i < workers.length; i++) {
+            if (shopsPerWorker[i] < shopsPerWorker[worker]) {
+                worker = i;
+            }
+        }
+        if (meterRegistry != null) {
+            shop.enableMetrics(meterRegistry, tickBudgetMs);
+        }
+        shop.start(workers[worker]);
+        shopsPerWorker[worker]++;
+        workerOf.put(shop.getShopId(), worker);
+        shops.put(shop.getShopId(), shop);
+        return shop;
+    }
+
+    /**
+     * Remove a shop. Requests already queued for it still complete; its
+     * queued and in-progress orders are dropped with it.
+     *
+     * @return false if there is no such shop
+     * @throws IllegalArgumentException for the default shop
+     */
+    public synchronized boolean destroy(String shopId) {
+        if (defaultShopId.equals(shopId)) {
+            throw new IllegalArgumentException("The default shop cannot be removed");
+        }
+        return remove(shopId);
+    }
+
+    private boolean remove(String shopId) {
+        ShopScheduler shop = shops.remove(shopId);
+        if (shop == null) {
+            return false;
+        }
+        shopsPerWorker[workerOf.remove(shopId)]--;
+        shop.stop();
+        deleteJournal(shopId);
+        deltas.remove(shopId);
+        return true;
+    }
+
+    // Lock-free; null if there is no such shop
+    public ShopScheduler get(String shopId) {
+        return shopId != null ? shops.get(shopId) : null;
+    }
+
+    public ShopScheduler getDefault() {
+        ShopScheduler shop = shops.get(defaultShopId);
+        return shop != null ? shop : createDefault();
+    }
+
+    private synchronized ShopScheduler createDefault() {
+        ShopScheduler shop = shops.get(defaultShopId);
+        return shop != null ? shop : create(defaultShopId, Arrays.asList(defaultBaristas));
+    }
+
+    public String getDefaultShopId() {
+        return defaultShopId;
+    }
+
+    public Collection<ShopScheduler> getShops() {
+        return Collections.unmodifiableCollection(shops.values());
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    // The default shop keeps the configured file; others get their own
+    private Path spillFileFor(String shopId) {
+        if (shopId.equals(defaultShopId)) {
+            return Path.of(completedSpillFile);
+        }
+        Path base = Path.of(completedSpillFile);
+        String name = base.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return base.resolveSibling(dot > 0
+                ? name.substring(0, dot) + "-" + shopId + name.substring(dot)
+                : name + "-" + shopId);
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // JOURNAL
+    // ════════════════════════════════════════════════════════════════
+
+    // Rebuild every shop that has a journal snapshot
+    private void recoverShops() {
+        Path root = Path.of(journalDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> dirs;
+        try (Stream<Path> files = Files.list(root)) {
+            dirs = files.filter(Files::isDirectory).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + root, e);
+        }
+
+        for (Path dir : dirs) {
+            String shopId = dir.getFileName().toString();
+            OrderJournal journal = newJournal(shopId);
+            if (!SHOP_ID.matcher(shopId).matches() || !journal.hasSnapshot()) {
+                continue;
+            }
+            long started = System.nanoTime();
+            ShopScheduler shop = newShop(shopId, List.of());  // Baristas come from the snapshot
+            shop.openJournal(journal);
+            register(shop);
+            log.info("Recovered shop {} from {} in {} ms", shopId, dir, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    // A fresh journal for a new or adopted shop; old files under its id are dropped
+    private void startJournal(ShopScheduler shop) {
+        if (journaled) {
+            deleteJournal(shop.getShopId());
+            shop.openJournal(newJournal(shop.getShopId()));
+        }
+    }
+
+    private OrderJournal newJournal(String shopId) {
+        return new OrderJournal(Path.of(journalDir, shopId), journalDurability,
+                journalSegmentMb * 1024 * 1024, journalSyncIntervalMs, journalSnapshotEvery);
+    }
+
+    private void deleteJournal(String shopId) {
+        if (journaled) {
+            OrderJournal.deleteAll(Path.of(journalDir, shopId));
+        }
+    }
+}
@@ -0,0 +1,1298 @@
+package com.coffeeshop.scheduler.service;
+
+import com.coffeeshop.scheduler.alert.Alert;
+import com.coffeeshop.scheduler.alert.Alert.AlertType;
+import com.coffeeshop.scheduler.alert.AlertLog;
+import com.coffeeshop.scheduler.model.Barista;
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+
+import java.time.Instant;
+import java.util.*;
+import com.coffeeshop.scheduler.entity.Complaint;
+import com.coffeeshop.scheduler.journal.Durability;
+import com.coffeeshop.scheduler.journal.OrderJournal;
+import com.coffeeshop.scheduler.metrics.ShopMetrics;
+import com.coffeeshop.scheduler.queue.OrderHeap;
+import com.coffeeshop.scheduler.queue.ScoreBatch;
+import com.coffeeshop.scheduler.queue.SkipTracker;
+import com.coffeeshop.scheduler.queue.TimerWheel;
+import com.coffeeshop.scheduler.queue.TimerWheel.Timeout;
+import com.coffeeshop.scheduler.stats.CompletedOrderStore;
+import com.coffeeshop.scheduler.stats.OrderStats;
+import com.coffeeshop.scheduler.stream.DeltaPublisher;
+import com.coffeeshop.scheduler.stream.DeltaType;
+import com.coffeeshop.scheduler.loop.CommandLoop;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.coffeeshop.scheduler.model.PriorityModel.*;
+
+/**
+ * Scheduler partition for one shop: its queue, baristas, timers, stats
+ * and alerts. Shops share nothing mutable; each partition is pinned to
+ * one worker loop of the {@link ShopRegistry} for its whole life, and
+ * every mutation runs there.
+ *
+ * Main formula to understand
+ * Priority = (0.40 × WaitTimeScore) + (0.25 × ComplexityScore) 
+ *          + (0.10 × LoyaltyScore) + (0.25 × UrgencyScore)
+ */
+public class ShopScheduler {
+    
+    private static final Logger log = LoggerFactory.getLogger(ShopScheduler.class);
+    
+    private final String shopId;
+    
+    // Weights, thresholds and fairness rules live in PriorityModel
+    private final PriorityModel priorityModel;
+    
+    private static final long MAX_WAIT_MS = (long) (MAX_WAIT_TIME_MINUTES * 60000);
+    
+    // Workload thresholds
+    private static final double OVERLOADED_THRESHOLD = 1.2;
+    private static final double UNDERUTILIZED_THRESHOLD = 0.8;
+    
+    // Time (ms) and order ids: wall clock and the shared counter, or
+    // virtual ones when the simulator drives the shop
+    private final LongSupplier clock;
+    private final LongSupplier orderIds;
+    
+    // Main order queue (kinetic max-heap, always ordered by current priority)
+    private final OrderHeap orderQueue;
+    
+    // Exact deadlines: prep completion, WARNING, CRITICAL, auto-complaint
+    private final TimerWheel timerWheel;
+    private final Map<Long, Timeout> prepTimers = new HashMap<>();        // by barista id
+    private final Map<Long, Timeout[]> escalationTimers = new HashMap<>(); // by order id
+    
+    // Single writer: every mutation runs on the shop's worker loop, which
+    // also fires the timer wheel, so the state below needs no lock
+    private CommandLoop.Registration loop;
+    
+    // What readers see; each command republishes only what it changed
+    private final SchedulerView view = new SchedulerView();
+    private boolean teamChanged = true;  // A barista's work changed since the last publish
+    
+    // Fairness skip counts (Fenwick tree over arrival order)
+    private final SkipTracker skipTracker = new SkipTracker(FAIRNESS_SKIP_THRESHOLD);
+    private final List<Order> boostedScratch = new ArrayList<>();
+    
+    // Whole-queue rescoring for recalculatePriorities on big queues
+    private final ScoreBatch rescoreBatch = new ScoreBatch();
+    
+    // Baristas
+    private final List<Barista> baristas = new ArrayList<>();
+    
+    // Recent completed orders (for stats), bounded ring of primitive columns
+    private final CompletedOrderStore completedOrders;
+    
+    // Running totals behind /api/stats, global and per user
+    private final OrderStats orderStats = new OrderStats(MAX_WAIT_MS);
+    
+    // Completed orders that had waited over the limit, by barista id
+    private final Map<Long, Long> baristaTimeouts = new HashMap<>();
+    
+    // Alerts for manager (bounded, de-duplicated per order and type)
+    private final AlertLog alerts;
+    
+    // Versioned deltas pushed to dashboards (GET /api/stream)
+    private final DeltaPublisher deltas;
+    
+    private final ComplaintWriter complaints;  // May be null
+    
+    // Set (on the loop) once the shop has been handed to another node
+    private volatile boolean closed;
+    
+    // Write-ahead journal of every decision, or null if not journaled
+    private OrderJournal journal;
+    
+    // Meters, or null if the shop is not instrumented (simulations)
+    private ShopMetrics metrics;
+    private long tickDueMs = Long.MAX_VALUE;  // Deadline the loop was last given
+    
+    public ShopScheduler(String shopId, List<String> baristaNames, CompletedOrderStore completedOrders,
+                         AlertLog alerts, DeltaPublisher deltas, ComplaintWriter complaints) {
+        this(shopId, baristaNames, completedOrders, alerts, deltas, complaints,
+                PriorityModel.DEFAULT, System::currentTimeMillis, Order::nextId);
+    }
+    
+    /**
+     * Shop with its own weights, clock and id source. Never started, it
+     * runs every call on the calling thread, so a simulator can drive the
+     * same code as a live shop: set the clock, add orders, and call
+     * {@link #autoCompleteCheck()} at each {@link #nextDeadline()}.
+     */
+    public ShopScheduler(String shopId, List<String> baristaNames, CompletedOrderStore completedOrders,
+                         AlertLog alerts, DeltaPublisher deltas, ComplaintWriter complaints,
+                         PriorityModel priorityModel, LongSupplier clock, LongSupplier orderIds) {
+        this.shopId = shopId;
+        this.priorityModel = priorityModel;
+        this.clock = clock;
+        this.orderIds = orderIds;
+        this.orderQueue = new OrderHeap(priorityModel, clock);
+        this.timerWheel = new TimerWheel(clock.getAsLong());
+        this.completedOrders = completedOrders;
+        this.alerts = alerts;
+        this.deltas = deltas != null ? deltas : DeltaPublisher.NONE;
+        this.complaints = complaints;
+        
+        long baristaId = 1;
+        for (String name : baristaNames) {
+            baristas.add(new Barista(baristaId++, name, shopId));
+        }
+    }
+    
+    /**
+     * Pin the shop to a worker loop. Until then every call runs on the
+     * calling thread; after {@link #stop()} mutations fail.
+     */
+    public void start(CommandLoop worker) {
+        publishView();  // Whatever a restore left unpublished
+        loop = worker.register(new LoopOwner());
+    }
+    
+    /**
+     * Register the shop's meters (tagged with its id). Call before
+     * {@link #start}, once the team is final (after a restore).
+     *
+     * @param tickBudgetMs how late a deadline may be handled before it counts as an overrun
+     */
+    public void enableMetrics(MeterRegistry registry, long tickBudgetMs) {
+        metrics = new ShopMetrics(registry, shopId, baristas, clock, tickBudgetMs);
+        publishMetrics();
+    }
+    
+    public void stop() {
+        if (loop != null) {
+            loop.cancel();  // Runs after whatever is already queued for the shop
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+        completedOrders.close();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+    
+    public String getShopId() {
+        return shopId;
+    }
+    
+    // Name of the worker the shop is pinned to, or null before start()
+    public String getWorkerName() {
+        return loop != null ? loop.getLoop().getName() : null;
+    }
+
+    //PRIORITY CALCULATION
+
+
+
+    // Rescore an order; the explanation is kept as components and only formatted when read
+    private void refreshPriority(Order order, long nowMs) {
+        double waitMinutes = PriorityModel.waitMinutes(order, nowMs);
+        
+        double waitTimeScore = PriorityModel.waitTimeScore(waitMinutes);
+        double complexityScore = PriorityModel.complexityScore(order.getPrepTimeMinutes());
+        double loyaltyScore = PriorityModel.loyaltyScore(order.getLoyaltyTier(), order.isRegularCustomer());
+        double urgencyScore = PriorityModel.urgencyScore(waitMinutes);
+        double fairnessBoost = PriorityModel.fairnessBoost(order.getSkipCount());
+        
+        double finalPriority = priorityModel.combine(waitTimeScore, complexityScore, loyaltyScore, urgencyScore,
+                fairnessBoost);
+        
+        order.setScore(priorityModel, nowMs, waitTimeScore, complexityScore, loyaltyScore, urgencyScore, fairnessBoost,
+                finalPriority);
+    }
+    
+
+    // ORDER MANAGEMENT
+    
+    public Order addOrder(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean isRegularCustomer, String username) {
+        if (metrics == null) {
+            return write(() -> enqueue(drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, username));
+        }
+        long started = System.nanoTime();
+        Order order = write(() -> enqueue(drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, username));
+        metrics.recordAddOrder(System.nanoTime() - started);
+        return order;
+    }
+    
+    // Returns a copy: the live order belongs to the loop
+    private Order enqueue(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean isRegularCustomer, String username) {
+        Order order = enqueueOnly(drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, username);
+        assignQueued();
+        return new Order(order);
+    }
+    
+    /**
+     * Queue several orders in one command and run a single assignment pass
+     * once they are all in, instead of one pass per order.
+     *
+     * @return copies of the orders as they stand after that pass, and the
+     *         delta version the caller can resume the stream from
+     */
+    public BatchResult addOrders(List<NewOrder> requests) {
+        long started = metrics != null ? System.nanoTime() : 0;
+        BatchResult result = write(() -> {
+            if (journal != null) {
+                for (NewOrder request : requests) {
+                    journal.checkEnqueued(request.drinkName, request.username);  // All or none
+                }
+            }
+            List<Order> added = new ArrayList<>(requests.size());
+            for (NewOrder request : requests) {
+                added.add(enqueueOnly(request.drinkName, request.prepTimeMinutes, request.loyaltyTier,
+                        request.regularCustomer, request.username));
+            }
+            assignQueued();
+            
+            List<Order> copies = new ArrayList<>(added.size());
+            for (Order order : added) {
+                copies.add(new Order(order));
+            }
+            return new BatchResult(copies, deltas.getVersion(shopId));
+        });
+        if (metrics != null) {
+            metrics.recordAddBatch(System.nanoTime() - started, requests.size());
+        }
+        return result;
+    }
+    
+    // Queue a new order without an assignment pass
+    private Order enqueueOnly(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean isRegularCustomer, String username) {
+        long now = clock.getAsLong();
+        Order order = Order.create(orderIds.getAsLong(), Instant.ofEpochMilli(now), drinkName, prepTimeMinutes,
+                loyaltyTier, isRegularCustomer, username);
+        if (journal != null) {
+            journal.logEnqueued(order);  // First: a failed append leaves the shop as it was
+        }
+        admit(order);
+        refreshPriority(order, now);
+        deltas.publish(shopId, DeltaType.ORDER_ENQUEUED, order.getUsername(), order);
+        return order;
+    }
+    
+    /**
+     * One order of a batch.
+     */
+    public static class NewOrder {
+        final String drinkName;
+        final int prepTimeMinutes;
+        final int loyaltyTier;
+        final boolean regularCustomer;
+        final String username;
+        
+        public NewOrder(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean regularCustomer, String username) {
+            this.drinkName = drinkName;
+            this.prepTimeMinutes = prepTimeMinutes;
+            this.loyaltyTier = loyaltyTier;
+            this.regularCustomer = regularCustomer;
+            this.username = username;
+        }
+    }
+    
+    /**
+     * Outcome of a batch: the orders in request order, and the delta
+     * version after the batch.
+     */
+    public static class BatchResult {
+        private final List<Order> orders;
+        private final long version;
+        
+        BatchResult(List<Order> orders, long version) {
+            this.orders = orders;
+            this.version = version;
+        }
+        
+        public List<Order> getOrders() { return orders; }
+        public long getVersion() { return version; }
+    }
+    
+    // Queue a new order (live or replayed)
+    private void admit(Order order) {
+        order.setShopId(shopId);
+        orderQueue.add(order);
+        skipTracker.add(order);
+        orderStats.onEnqueued(order.getUsername());
+        scheduleEscalations(order);
+        view.orderChanged(order);
+    }
+    
+    // Backwards-compatible overloads
+    public Order addOrder(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean isRegularCustomer) {
+        return addOrder(drinkName, prepTimeMinutes, loyaltyTier, isRegularCustomer, null);
+    }
+    
+    public Order addOrder(String drinkName, int prepTimeMinutes) {
+        return addOrder(drinkName, prepTimeMinutes, 1, false, null);
+    }
+    
+    public List<Order> getQueue() {
+        return getQueue(null);
+    }
+    
+    public List<Order> getQueue(String username) {
+        SchedulerView view = readView();
+        // A user's view only touches their own orders
+        Collection<SchedulerView.QueuedOrder> source = username != null && !username.isEmpty()
+                ? view.queueByUser.getOrDefault(username, List.of())
+                : view.queue.values();
+        
+        // Fresh copies, ranked by their priority right now
+        SkipTracker.Counts skips = view.skips;
+        long now = clock.getAsLong();
+        List<Order> sorted = new ArrayList<>(source.size());
+        for (SchedulerView.QueuedOrder queued : source) {
+            Order order = new Order(queued.order);
+            order.setSkipCount(skips.skipCount(queued.rank));
+            refreshPriority(order, now);
+            sorted.add(order);
+        }
+        sorted.sort(OrderHeap::compare);
+        return sorted;
+    }
+    
+    public Order getOrder(long orderId) {
+        SchedulerView view = readView();
+        SchedulerView.QueuedOrder queued = view.queue.get(orderId);
+        if (queued != null) {
+            Order order = new Order(queued.order);
+            order.setSkipCount(view.skips.skipCount(queued.rank));
+            refreshPriority(order, clock.getAsLong());
+            return order;
+        }
+        Order assigned = view.team.assigned.get(orderId);
+        return assigned != null ? new Order(assigned) : null;
+    }
+
+    // ASSIGNMENT LOGIC WITH WORKLOAD BALANCING
+
+    
+    public void tryAssignOrders() {
+        write(() -> {
+            assignQueued();
+            return null;
+        });
+    }
+    
+    private void assignQueued() {
+        long started = metrics != null ? System.nanoTime() : 0;
+        int moved = 0;
+        
+        // Highest priority first; stop as soon as no barista can take it
+        while (!orderQueue.isEmpty()) {
+            Order order = orderQueue.peek();
+            Barista available = getAvailableBarista(order);
+            if (available == null) {
+                break;
+            }
+            long now = clock.getAsLong();
+            logAssigned(available, order, true, now);
+            orderQueue.poll();
+            updateSkipCounts(order);
+            assign(available, order, now);
+            moved++;
+        }
+        
+        if (metrics != null) {
+            metrics.recordAssignmentPass(System.nanoTime() - started, moved);
+        }
+    }
+    
+    /**
+     * Journal an assignment before the order leaves the queue. skipCounted
+     * tells whether it counts toward fairness.
+     */
+    private void logAssigned(Barista barista, Order order, boolean skipCounted, long nowMs) {
+        if (journal != null) {
+            journal.logAssigned(order.getId(), barista.getId(), skipCounted, nowMs);
+        }
+    }
+    
+    /**
+     * Hand a dequeued order to a barista and keep the timers in step.
+     */
+    private void assign(Barista barista, Order order, long nowMs) {
+        place(barista, order, nowMs);
+        refreshPriority(order, orderQueue.getNow());
+        deltas.publish(shopId, DeltaType.ORDER_ASSIGNED, order.getUsername(), order);
+        deltas.publish(shopId, DeltaType.BARISTA_UPDATED, null, barista);
+    }
+    
+    private void place(Barista barista, Order order, long nowMs) {
+        cancelEscalations(order);
+        skipTracker.remove(order);
+        orderStats.onAssigned(order.getUsername());
+        barista.assignOrder(order, nowMs);
+        schedulePrepCompletion(barista);
+        view.orderChanged(order);
+        teamChanged = true;
+    }
+    
+    /**
+     * Complete a barista's current order; the next assigned one (if any) starts.
+     */
+    private Order complete(Barista barista) {
+        long now = clock.getAsLong();
+        if (journal != null && barista.getCurrentOrder() != null) {
+            journal.logCompleted(barista.getId(), now);
+        }
+        Order completed = finish(barista, now);
+        if (completed != null) {
+            if (metrics != null) {
+                metrics.onCompleted();
+            }
+            deltas.publish(shopId, DeltaType.ORDER_COMPLETED, completed.getUsername(), completed);
+        }
+        deltas.publish(shopId, DeltaType.BARISTA_UPDATED, null, barista);
+        return completed;
+    }
+    
+    private Order finish(Barista barista, long nowMs) {
+        Order completed = barista.completeCurrentOrder(nowMs);
+        if (completed != null) {
+            completedOrders.add(completed);
+            long waitMs = completed.getAssignedTime().toEpochMilli() - completed.getArrivalTime().toEpochMilli();
+            orderStats.onCompleted(completed.getUsername(), waitMs);
+            if (waitMs > MAX_WAIT_MS) {
+                baristaTimeouts.merge(barista.getId(), 1L, Long::sum);
+            }
+        }
+        schedulePrepCompletion(barista);
+        teamChanged = true;
+        return completed;
+    }
+    
+    /**
+     * Get available barista considering workload balance rules:
+     * - If overloaded (> 1.2× average): prefer shorter orders
+     * - If underutilized (< 0.8× average): allow complex orders
+     */
+    private Barista getAvailableBarista(Order order) {
+        double avgWorkload = getAverageWorkloadMinutes();
+        
+        List<Barista> availableBaristas = new ArrayList<>();
+        for (Barista b : baristas) {
+            if (b.isAvailable()) {
+                availableBaristas.add(b);
+            }
+        }
+        
+        if (availableBaristas.isEmpty()) {
+            return null;
+        }
+        
+        // Sort by workload (least loaded first)
+        availableBaristas.sort(Comparator.comparingInt(Barista::getTotalPendingMinutes));
+        
+        for (Barista barista : availableBaristas) {
+            double workloadRatio = avgWorkload > 0 ? 
+                barista.getTotalPendingMinutes() / avgWorkload : 1.0;
+            
+            // Workload balancing rules
+            if (workloadRatio > OVERLOADED_THRESHOLD) {
+                // Overloaded: only accept short orders (≤ 3 min)
+                if (order.getPrepTimeMinutes() <= 3) {
+                    return barista;
+                }
+                // Skip this barista for complex orders
+            } else if (workloadRatio < UNDERUTILIZED_THRESHOLD) {
+                // Underutilized: accept any order (including complex)
+                return barista;
+            } else {
+                // Normal workload: accept any order
+                return barista;
+            }
+        }
+        
+        // Fallback: return least loaded if no ideal match
+        return availableBaristas.get(0);
+    }
+    
+    private double getAverageWorkloadMinutes() {
+        return getAverageWorkloadMinutes(baristas);
+    }
+    
+    private static double getAverageWorkloadMinutes(List<Barista> team) {
+        int total = team.stream()
+                .mapToInt(Barista::getTotalPendingMinutes)
+                .sum();
+        return (double) total / team.size();
+    }
+    
+    // ════════════════════════════════════════════════════════════════
+    // FAIRNESS TRACKING
+    // ════════════════════════════════════════════════════════════════
+    
+    /**
+     * Track when later arrivals are served before earlier ones.
+     * Call before assign(); O(log n) plus the orders
+     * whose fairness boost actually changes.
+     */
+    private void updateSkipCounts(Order assignedOrder) {
+        boostedScratch.clear();
+        skipTracker.recordSkip(assignedOrder, boostedScratch);
+        
+        for (Order order : boostedScratch) {
+            // Alert if fairness threshold exceeded
+            if (order.getSkipCount() == FAIRNESS_SKIP_THRESHOLD + 1) {
+                raiseAlert(AlertType.FAIRNESS, order, null, String.format(
+                    "FAIRNESS: Order #%d has been skipped %d times. Priority boosted.",
+                    order.getId(), order.getSkipCount()
+                ));
+            }
+            
+            // A changed fairness boost moves the order in the heap
+            orderQueue.update(order.getId());
+            refreshPriority(order, orderQueue.getNow());
+            deltas.publish(shopId, DeltaType.ORDER_RERANKED, order.getUsername(), order);
+        }
+    }
+    
+
+    // RECALCULATION
+    // The heap re-orders itself when priorities cross, so there is no
+    // periodic rescore.
+
+    
+    /**
+     * Full rescore of the queue on demand (POST /api/recalculate).
+     * Refreshes displayed priorities and runs any due deadlines.
+     */
+    public void recalculatePriorities() {
+        write(() -> {
+            long started = metrics != null ? System.nanoTime() : 0;
+            long now = clock.getAsLong();
+            if (orderQueue.size() < rescoreBatch.getParallelThreshold()) {
+                for (Order order : orderQueue) {
+                    skipTracker.materialize(order);
+                    refreshPriority(order, now);
+                }
+            } else {
+                // Big queue: scored from the heap's columns, split across the pool
+                rescoreBatch.rescore(orderQueue, priorityModel, now);
+            }
+            if (metrics != null) {
+                metrics.recordRecalculation(System.nanoTime() - started);
+            }
+            timerWheel.advance(now);
+            
+            assignQueued();
+            return null;
+        });
+    }
+    
+
+    // DEADLINES (timer wheel)
+    // Every deadline fires once, at its exact millisecond, so nothing
+    // polls baristas or scans the queue on a fixed tick.
+
+    
+    /**
+     * Fire every deadline that is due and make sure no barista idles
+     * while orders are waiting. The scheduler loop does this after every
+     * batch and whenever the next deadline is reached.
+     */
+    public void autoCompleteCheck() {
+        write(() -> tick(clock.getAsLong()));
+    }
+    
+    /**
+     * When the next deadline (prep completion or escalation) is due, or
+     * Long.MAX_VALUE if there is none. May be early by a few ms; calling
+     * {@link #autoCompleteCheck()} then is harmless.
+     */
+    public long nextDeadline() {
+        return write(timerWheel::nextDeadline);
+    }
+    
+    // Returns true if anything changed
+    private boolean tick(long nowMs) {
+        long started = metrics != null ? System.nanoTime() : 0;
+        
+        // 1. Prep completions, WARNING, CRITICAL and auto-complaints
+        boolean changed = timerWheel.advance(nowMs) > 0;
+        
+        // 2. Ensure no barista is idle if there are orders
+        for (Barista barista : baristas) {
+            if (barista.isAvailable() && !orderQueue.isEmpty()) {
+                assignNextOrderToBarista(barista);
+                changed = true;
+            }
+        }
+        
+        if (metrics != null) {
+            metrics.recordTick(System.nanoTime() - started);
+        }
+        return changed;
+    }
+    
+    /**
+     * Auto-complete the barista's current order when its prep time has elapsed.
+     */
+    private void schedulePrepCompletion(Barista barista) {
+        Timeout previous = prepTimers.remove(barista.getId());
+        if (previous != null) {
+            previous.cancel();
+        }
+        
+        Order current = barista.getCurrentOrder();
+        if (current != null) {
+            long dueMs = current.getAssignedTime().toEpochMilli() + current.getPrepTimeMinutes() * 60000L;
+            prepTimers.put(barista.getId(), timerWheel.schedule(dueMs, () -> onPrepComplete(barista, current)));
+        }
+    }
+    
+    private void onPrepComplete(Barista barista, Order order) {
+        prepTimers.remove(barista.getId());
+        if (barista.getCurrentOrder() != order) {
+            return;
+        }
+        complete(barista);
+        
+        // Immediately try to assign next order to this now-free barista
+        if (barista.isAvailable()) {
+            assignNextOrderToBarista(barista);
+        }
+    }
+    
+    /**
+     * WARNING at 8 min, CRITICAL at 9 min and auto-complaint at 10 min,
+     * all cancelled as soon as the order leaves the queue.
+     */
+    private void scheduleEscalations(Order order) {
+        long arrivalMs = order.getArrivalTime().toEpochMilli();
+        long warningMs = arrivalMs + (long) (EMERGENCY_THRESHOLD_MINUTES * 60000);
+        long criticalMs = arrivalMs + (long) (CRITICAL_THRESHOLD_MINUTES * 60000);
+        long timeoutMs = arrivalMs + (long) (MAX_WAIT_TIME_MINUTES * 60000);
+        
+        escalationTimers.put(order.getId(), new Timeout[] {
+            timerWheel.schedule(warningMs, () -> onWarning(order)),
+            timerWheel.schedule(criticalMs, () -> onCritical(order)),
+            timerWheel.schedule(timeoutMs, () -> onTimeout(order))
+        });
+    }
+    
+    private void cancelEscalations(Order order) {
+        Timeout[] timers = escalationTimers.remove(order.getId());
+        if (timers != null) {
+            for (Timeout timer : timers) {
+                timer.cancel();
+            }
+        }
+    }
+    
+    private void onWarning(Order order) {
+        if (metrics != null) {
+            metrics.onWarning();
+        }
+        raiseAlert(AlertType.WARNING, order, null, String.format(
+            "WARNING: Order #%d approaching timeout (%.1f min wait)",
+            order.getId(), waitMinutes(order)
+        ));
+    }
+    
+    // EMERGENCY HANDLING
+    private void onCritical(Order order) {
+        double waitMinutes = waitMinutes(order);
+        forceAssign(order);
+        if (metrics != null) {
+            metrics.onCritical();
+        }
+        raiseAlert(AlertType.CRITICAL, order, order.getAssignedBaristaId(), String.format(
+            "CRITICAL: Order #%d (%.1f min wait) force-assigned! Manager alerted.",
+            order.getId(), waitMinutes
+        ));
+    }
+    
+    private void onTimeout(Order order) {
+        escalationTimers.remove(order.getId());
+        if (!order.isAutoComplaintRaised()) {
+            raiseAutoComplaint(order);
+        }
+    }
+    
+    private double waitMinutes(Order order) {
+        return PriorityModel.waitMinutes(order, clock.getAsLong());
+    }
+    
+    /**
+     * Assign the highest priority order to a specific barista
+     */
+    private void assignNextOrderToBarista(Barista barista) {
+        if (!barista.isAvailable() || orderQueue.isEmpty()) {
+            return;
+        }
+        
+        // Get highest priority order
+        Order nextOrder = orderQueue.peek();
+        long now = clock.getAsLong();
+        logAssigned(barista, nextOrder, true, now);
+        orderQueue.poll();
+        updateSkipCounts(nextOrder);
+        assign(barista, nextOrder, now);
+    }
+    
+    /**
+     * Auto-raise complaint for timeout (wait >= 10 min)
+     */
+    private void raiseAutoComplaint(Order order) {
+        if (journal != null) {
+            journal.logComplained(order.getId());
+        }
+        order.setAutoComplaintRaised(true);
+        view.orderChanged(order);
+        if (metrics != null) {
+            metrics.onAutoComplaint();
+        }
+        
+        // Find which barista should have handled faster or is responsible
+        String baristaName = "Unassigned";
+        if (order.getAssignedBaristaId() != null) {
+            Barista b = findBarista(order.getAssignedBaristaId());
+            if (b != null) baristaName = b.getName();
+        } else {
+            // Pick a barista to "blame" or just mark as System
+            baristaName = "System (Auto-Raised)";
+        }
+        
+        // Create the complaint; it is stored in the background (never on the loop)
+        Complaint complaint = new Complaint(
+            shopId,
+            baristaName,
+            order.getUsername() != null ? order.getUsername() : "anonymous",
+            "Auto-Raised (Timeout): Order #" + order.getId() + " (" + order.getDrinkName() + ") waited " + 
+            Math.round(waitMinutes(order) * 10) / 10.0 + " minutes."
+        );
+        
+        if (complaints != null) {
+            complaint.setOrderKey(shopId + ":" + order.getId() + ":" + order.getArrivalTime().toEpochMilli());
+            complaints.submit(complaint);
+        }
+        
+        // Log the auto-complaint
+        raiseAlert(AlertType.AUTO_COMPLAINT, order, order.getAssignedBaristaId(), String.format(
+            "AUTO-COMPLAINT: Order #%d exceeded 10 min wait (%.1f min). Complaint filed against %s.",
+            order.getId(), waitMinutes(order), baristaName
+        ));
+    }
+    
+
+    /**
+     * Force assign critical order to next available barista
+     */
+    private void forceAssign(Order order) {
+        Barista soonest = baristas.stream()
+                .min(Comparator.comparingLong(Barista::getBusyUntilMs))
+                .orElse(baristas.get(0));
+        
+        long now = clock.getAsLong();
+        logAssigned(soonest, order, false, now);
+        orderQueue.remove(order.getId());
+        assign(soonest, order, now);
+    }
+    
+
+    // BARISTA OPERATIONS
+
+    
+    public List<Barista> getBaristas() {
+        return readView().team.baristas;
+    }
+    
+    public Barista getBarista(long id) {
+        return readView().team.baristas.stream()
+                .filter(b -> b.getId() == id)
+                .findFirst()
+                .orElse(null);
+    }
+    
+    // Live barista, for the loop thread
+    private Barista findBarista(long id) {
+        for (Barista b : baristas) {
+            if (b.getId() == id) {
+                return b;
+            }
+        }
+        return null;
+    }
+    
+    public Order completeOrder(long baristaId) {
+        return write(() -> {
+            Barista barista = findBarista(baristaId);
+            if (barista != null) {
+                Order completed = complete(barista);
+                if (completed != null) {
+                    assignQueued();
+                }
+                return completed;
+            }
+            return null;
+        });
+    }
+    
+
+    // STATISTICS
+
+    
+    public Map<String, Object> getStats() {
+        return getStats(null);
+    }
+    
+    public Map<String, Object> getStats(String username) {
+        SchedulerView view = readView();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("shopId", shopId);
+        
+        // Running totals, for one user if a username is given
+        OrderStats.Counters counters = username != null && !username.isEmpty()
+                ? orderStats.getUser(username)
+                : orderStats.getGlobal();
+        
+        stats.put("queueSize", counters.getQueued());
+        stats.put("completedCount", counters.getCompleted());
+        stats.put("averageWaitMinutes", Math.round(counters.getAverageWaitMinutes() * 10) / 10.0);
+        stats.put("timeoutCount", counters.getTimeouts());
+        
+        // Barista workloads with ratio (global - not user-specific)
+        stats.put("baristaWorkloads", computeWorkloads(view.team.baristas));
+        
+        return stats;
+    }
+    
+    private static Map<String, Object> computeWorkloads(List<Barista> team) {
+        Map<String, Object> workloads = new HashMap<>();
+        double avgWorkload = getAverageWorkloadMinutes(team);
+        for (Barista b : team) {
+            Map<String, Object> bData = new HashMap<>();
+            bData.put("minutes", b.getTotalPendingMinutes());
+            bData.put("ratio", avgWorkload > 0 ? 
+                Math.round((b.getTotalPendingMinutes() / avgWorkload) * 100) / 100.0 : 1.0);
+            workloads.put(b.getName(), bData);
+        }
+        return workloads;
+    }
+    
+    private void raiseAlert(AlertType type, Order order, Long baristaId, String message) {
+        Alert alert = alerts.append(new Alert(type, order.getId(), baristaId, clock.getAsLong(), message));
+        if (alert != null) {
+            deltas.publish(shopId, DeltaType.ALERT_RAISED, null, alert);
+        }
+    }
+    
+    // Lock-free: the alert log never blocks the scheduler
+    public List<Alert> getAlerts() {
+        return alerts.all();
+    }
+    
+    // Alerts after the given sequence number, oldest first
+    public List<Alert> getAlertsSince(long seq) {
+        return alerts.since(seq);
+    }
+    
+    public void clearAlerts() {
+        alerts.clear();
+    }
+    
+
+    // BARISTA STATISTICS
+
+    
+    /**
+     * Get detailed statistics for each barista
+     */
+    public List<Map<String, Object>> getBaristaStats() {
+        SchedulerView.Team team = readView().team;
+        List<Map<String, Object>> baristaStats = new ArrayList<>();
+        double avgWorkload = getAverageWorkloadMinutes(team.baristas);
+        
+        for (Barista b : team.baristas) {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("shopId", shopId);
+            stats.put("id", b.getId());
+            stats.put("name", b.getName());
+            stats.put("ordersCompleted", b.getOrdersCompleted());
+            stats.put("totalWorkloadMinutes", b.getTotalPendingMinutes());
+            
+            // Calculate average time per order
+            double avgTimePerOrder = b.getOrdersCompleted() > 0 ? 
+                b.getTotalWorkloadMinutes() / (double) b.getOrdersCompleted() : 0;
+            stats.put("avgTimePerOrder", Math.round(avgTimePerOrder * 10) / 10.0);
+            
+            // Workload balance ratio
+            double ratio = avgWorkload > 0 ? b.getTotalPendingMinutes() / avgWorkload : 1.0;
+            stats.put("workloadRatio", Math.round(ratio * 100) / 100.0);
+            
+            // Timeouts while assigned (orders that waited > 10 min)
+            stats.put("timeouts", team.timeouts.getOrDefault(b.getId(), 0L));
+            
+            stats.put("available", b.isAvailable());
+            baristaStats.add(stats);
+        }
+        
+        return baristaStats;
+    }
+    
+    // ════════════════════════════════════════════════════════════════
+    // HANDOFF (state moves between nodes as a snapshot plus a tail)
+    // ════════════════════════════════════════════════════════════════
+    
+    /**
+     * Full copy of the live state. The shop keeps serving afterwards;
+     * {@link #handOff} later captures what changed.
+     */
+    public ShopState exportState() {
+        return write(this::captureState);
+    }
+    
+    // Loop thread only
+    private ShopState captureState() {
+        ShopState state = new ShopState();
+        state.shopId = shopId;
+        for (Order order : queuedInArrivalOrder()) {
+            state.queue.add(ShopState.OrderState.of(order));
+            state.maxOrderId = Math.max(state.maxOrderId, order.getId());
+        }
+        for (Barista barista : baristas) {
+            state.baristas.add(ShopState.BaristaState.of(barista));
+            for (Order order : barista.getAssignedOrders()) {
+                state.maxOrderId = Math.max(state.maxOrderId, order.getId());
+            }
+        }
+        state.globalStats = ShopState.CounterState.of(orderStats.getGlobal());
+        for (Map.Entry<String, OrderStats.Counters> entry : orderStats.getUsers().entrySet()) {
+            state.userStats.put(entry.getKey(), ShopState.CounterState.of(entry.getValue()));
+        }
+        return state;
+    }
+    
+    /**
+     * Stop serving and return everything that changed since a snapshot
+     * whose highest order id was {@code sinceOrderId}. Requests that reach
+     * the shop afterwards fail with a {@link ShopMovedException}; the
+     * partition is detached from its worker.
+     */
+    public ShopState.Tail handOff(long sinceOrderId) {
+        ShopState.Tail tail = write(() -> {
+            ShopState.Tail changes = new ShopState.Tail();
+            changes.sinceOrderId = sinceOrderId;
+            changes.maxOrderId = sinceOrderId;
+            
+            List<Order> queued = queuedInArrivalOrder();
+            changes.queuedIds = new long[queued.size()];
+            changes.skipCounts = new int[queued.size()];
+            List<Long> complained = new ArrayList<>();
+            for (int i = 0; i < queued.size(); i++) {
+                Order order = queued.get(i);
+                changes.queuedIds[i] = order.getId();
+                changes.skipCounts[i] = order.getSkipCount();
+                if (order.isAutoComplaintRaised()) {
+                    complained.add(order.getId());
+                }
+                if (order.getId() > sinceOrderId) {
+                    changes.newOrders.add(ShopState.OrderState.of(order));
+                    changes.maxOrderId = Math.max(changes.maxOrderId, order.getId());
+                }
+            }
+            changes.complainedIds = complained.stream().mapToLong(Long::longValue).toArray();
+            
+            for (Barista barista : baristas) {
+                changes.baristas.add(ShopState.BaristaState.of(barista));
+            }
+            changes.globalStats = ShopState.CounterState.of(orderStats.getGlobal());
+            for (Map.Entry<String, OrderStats.Counters> entry : orderStats.getUsers().entrySet()) {
+                changes.userStats.put(entry.getKey(), ShopState.CounterState.of(entry.getValue()));
+            }
+            closed = true;
+            return changes;
+        });
+        stop();
+        return tail;
+    }
+    
+    /**
+     * Load a handed-over (or recovered) state into a fresh partition,
+     * before {@link #start}. Queued orders keep their ids, arrival times
+     * and skip counts; in-progress orders keep their assigned times, so
+     * prep completion and escalations fire when they originally would.
+     */
+    public void restore(ShopState state) {
+        write(() -> {
+            long now = clock.getAsLong();
+            baristas.clear();
+            for (ShopState.BaristaState saved : state.baristas) {
+                Barista barista = new Barista(saved.id, saved.name, shopId);
+                List<Order> pending = new ArrayList<>(saved.pending.size());
+                for (ShopState.OrderState order : saved.pending) {
+                    pending.add(order.toOrder(shopId));
+                }
+                barista.restore(saved.current != null ? saved.current.toOrder(shopId) : null,
+                        pending, saved.ordersCompleted, saved.totalWorkloadMinutes);
+                baristas.add(barista);
+                schedulePrepCompletion(barista);
+            }
+            teamChanged = true;
+            
+            List<Order> queued = new ArrayList<>(state.queue.size());
+            for (ShopState.OrderState saved : state.queue) {
+                Order order = saved.toOrder(shopId);
+                refreshPriority(order, now);
+                orderQueue.add(order);
+                skipTracker.add(order);
+                scheduleEscalations(order);
+                view.orderChanged(order);
+                queued.add(order);
+            }
+            skipTracker.restore(queued);
+            
+            if (state.globalStats != null) {
+                restoreCounters(null, state.globalStats);
+            }
+            for (Map.Entry<String, ShopState.CounterState> entry : state.userStats.entrySet()) {
+                restoreCounters(entry.getKey(), entry.getValue());
+            }
+            return null;
+        });
+    }
+    
+    // True once nothing is queued or in progress
+    public boolean isIdle() {
+        SchedulerView view = readView();
+        return view.queue.isEmpty() && view.team.assigned.isEmpty();
+    }
+    
+    private void restoreCounters(String username, ShopState.CounterState counters) {
+        orderStats.restore(username, counters.queued, counters.completed, counters.waitSumMs, counters.timeouts);
+    }
+    
+    // Queued orders with their skip counts filled in, oldest first
+    private List<Order> queuedInArrivalOrder() {
+        List<Order> queued = orderQueue.toList();
+        queued.sort(Comparator.comparingLong(Order::getId));
+        for (Order order : queued) {
+            skipTracker.materialize(order);
+        }
+        return queued;
+    }
+    
+    // ════════════════════════════════════════════════════════════════
+    // JOURNAL (write-ahead log plus snapshots, for crash recovery)
+    // ════════════════════════════════════════════════════════════════
+    
+    /**
+     * Recover whatever the journal holds (last snapshot, then the records
+     * after it), take a fresh snapshot and log every decision from now on.
+     * Call before {@link #start}. In-progress orders keep their original
+     * start times, so prep completions fire when they originally would.
+     *
+     * @return true if there was a snapshot to recover
+     */
+    public boolean openJournal(OrderJournal journal) {
+        return write(() -> {
+            ShopState saved = journal.readSnapshot(completedOrders);
+            if (saved != null) {
+                restore(saved);
+                journal.replay(new JournalReplay());
+                // Seed the running timeout counts from the recovered history
+                for (Barista barista : baristas) {
+                    baristaTimeouts.put(barista.getId(),
+                            (long) completedOrders.countWaitsOverForBarista(barista.getId(), MAX_WAIT_MS));
+                }
+            }
+            journal.snapshot(captureState(), completedOrders);
+            this.journal = journal;
+            return saved != null;
+        });
+    }
+    
+    /**
+     * Applies replayed records with the same steps as the live path, minus
+     * alerts and deltas (nobody is listening yet).
+     */
+    private class JournalReplay implements OrderJournal.Replay {
+        
+        @Override
+        public void enqueued(Order order) {
+            admit(order);
+        }
+        
+        @Override
+        public void assigned(long orderId, long baristaId, boolean skipCounted, long atMs) {
+            Order order = orderQueue.remove(orderId);
+            Barista barista = findBarista(baristaId);
+            if (order == null || barista == null) {
+                throw new IllegalStateException("Journal of shop " + shopId + " assigns unknown order #" + orderId);
+            }
+            if (skipCounted) {
+                boostedScratch.clear();
+                skipTracker.recordSkip(order, boostedScratch);
+                for (Order boosted : boostedScratch) {
+                    orderQueue.update(boosted.getId());
+                }
+            }
+            place(barista, order, atMs);
+            refreshPriority(order, atMs);
+        }
+        
+        @Override
+        public void completed(long baristaId, long atMs) {
+            Barista barista = findBarista(baristaId);
+            if (barista != null) {
+                finish(barista, atMs);
+            }
+        }
+        
+        @Override
+        public void complained(long orderId) {
+            Order order = orderQueue.get(orderId);
+            if (order != null) {
+                order.setAutoComplaintRaised(true);
+                view.orderChanged(order);
+            }
+        }
+    }
+    
+    // Force or snapshot as the journal asks (loop thread)
+    private void syncJournal(long nowMs) {
+        journal.sync(nowMs);
+        if (journal.isSnapshotDue() && !journal.isFailed()) {
+            journal.snapshot(captureState(), completedOrders);
+        }
+    }
+    
+    // ════════════════════════════════════════════════════════════════
+    // SCHEDULER LOOP AND SNAPSHOTS
+    // ════════════════════════════════════════════════════════════════
+    
+    // Run a mutation on the shop's worker loop and wait for its result
+    // (and, with BATCH durability, for the journal force that covers it)
+    private <T> T write(Supplier<T> command) {
+        long[] logged = new long[1];
+        Supplier<T> tracked = () -> {
+            if (closed) {
+                throw new ShopMovedException(shopId);
+            }
+            if (journal != null && journal.isFailed()) {
+                throw new IllegalStateException("Journal of shop " + shopId + " failed; the shop takes no more changes");
+            }
+            try {
+                return command.get();
+            } finally {
+                if (loop != null) {
+                    publishView();  // Before the caller sees the result
+                }
+                if (journal != null) {
+                    logged[0] = journal.getPosition();
+                }
+            }
+        };
+        T result;
+        try {
+            result = loop != null ? loop.call(tracked) : tracked.get();
+        } catch (IllegalStateException e) {
+            if (closed && !(e instanceof ShopMovedException)) {
+                throw new ShopMovedException(shopId);  // Detached from its loop by the handoff
+            }
+            throw e;
+        }
+        
+        OrderJournal attached = journal;
+        if (attached != null && logged[0] > 0) {
+            if (loop == null || loop.getLoop().inLoop()) {
+                syncJournal(System.currentTimeMillis());  // No loop to do it after the batch
+            } else if (attached.getDurability() == Durability.BATCH) {
+                attached.awaitDurable(logged[0]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * The published view. A shop that was never started has no loop to
+     * publish for it, so the caller (its only thread) publishes first.
+     */
+    private SchedulerView readView() {
+        if (loop == null) {
+            publishView();
+        }
+        return view;
+    }
+    
+    // Republish what changed since the last call (loop thread)
+    private void publishView() {
+        // Baristas first: an order moving to one is never missing from both
+        if (teamChanged) {
+            teamChanged = false;
+            List<Barista> copies = new ArrayList<>(baristas.size());
+            Map<Long, Order> assigned = new HashMap<>();
+            for (Barista barista : baristas) {
+                Barista copy = new Barista(barista);
+                copies.add(copy);
+                for (Order order : copy.getAssignedOrders()) {
+                    assigned.put(order.getId(), order);
+                }
+            }
+            view.team = new SchedulerView.Team(Collections.unmodifiableList(copies),
+                    Collections.unmodifiableMap(assigned), Map.copyOf(baristaTimeouts));
+        }
+        view.publishQueue(skipTracker);
+    }
+    
+    // Gauge values for the next scrape (loop thread)
+    private void publishMetrics() {
+        Order oldest = skipTracker.oldest();
+        metrics.publish(orderQueue.size(), oldest != null ? oldest.getArrivalTime().toEpochMilli() : Long.MIN_VALUE,
+                skipTracker.boostedCount(), baristas);
+    }
+    
+    private class LoopOwner implements CommandLoop.Owner {
+        
+        @Override
+        public long onTick(long nowMs) {
+            if (journal != null && journal.isFailed()) {
+                return Long.MAX_VALUE;  // Timers would change what can no longer be logged
+            }
+            long dueMs = tickDueMs;
+            try {
+                tick(nowMs);
+            } catch (RuntimeException e) {
+                if (journal == null || !journal.isFailed()) {
+                    throw e;
+                }
+                log.error("Journal of shop {} failed; the shop takes no more changes", shopId, e);
+            }
+            publishView();
+            long next = timerWheel.nextDeadline();
+            if (journal != null) {
+                syncJournal(nowMs);
+                next = Math.min(next, journal.nextSyncMs());
+            }
+            tickDueMs = next;
+            
+            if (metrics != null) {
+                if (dueMs <= nowMs) {  // Woken by the deadline, not by commands
+                    metrics.recordTickLateness(System.currentTimeMillis() - dueMs);
+                }
+                publishMetrics();
+            }
+            return next;
+        }
+        
+        @Override
+        public void afterBatch(int commands) {
+            if (journal != null) {
+                syncJournal(System.currentTimeMillis());
+            }
+        }
+        
+        @Override
+        public boolean hasPendingWork() {
+            return false;  // Every command publishes its own changes
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.coffeeshop.scheduler.service;
+
+import com.coffeeshop.scheduler.model.Barista;
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.stats.OrderStats;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain-data copy of one shop's live state: queued orders (with skip
+ * counts), baristas with their assigned orders, and the running stats.
+ * It is what a shop partition hands to another node, and what it is
+ * rebuilt from.
+ *
+ * A {@link Tail} brings a snapshot up to date: everything a queued order
+ * can change is its skip count and complaint flag, and new orders always
+ * have higher ids, so the tail only carries those plus the (small)
+ * barista and stats state.
+ */
+public class ShopState {
+
+    public String shopId;
+    public List<OrderState> queue = new ArrayList<>();  // Arrival order
+    public List<BaristaState> baristas = new ArrayList<>();
+    public CounterState globalStats;
+    public Map<String, CounterState> userStats = new HashMap<>();
+
+    // Highest order id in the snapshot; a tail adds the queued orders above it
+    public long maxOrderId;
+
+    /**
+     * Changes since a snapshot, captured when the shop stops serving.
+     */
+    public static class Tail {
+        public long sinceOrderId;
+        public List<OrderState> newOrders = new ArrayList<>();  // Queued, id > sinceOrderId
+        public long[] queuedIds = new long[0];                  // Every queued order, arrival order
+        public int[] skipCounts = new int[0];                   // Matches queuedIds
+        public long[] complainedIds = new long[0];              // Queued orders with an auto-complaint
+        public List<BaristaState> baristas = new ArrayList<>();
+        public CounterState globalStats;
+        public Map<String, CounterState> userStats = new HashMap<>();
+        public long maxOrderId;
+    }
+
+    /**
+     * The snapshot with a tail applied: orders that left the queue are
+     * dropped, the rest get their current skip counts and flags.
+     */
+    public ShopState apply(Tail tail) {
+        Map<Long, OrderState> known = new HashMap<>();
+        for (OrderState order : queue) {
+            known.put(order.id, order);
+        }
+        for (OrderState order : tail.newOrders) {
+            known.put(order.id, order);
+        }
+        Map<Long, Boolean> complained = new HashMap<>();
+        for (long id : tail.complainedIds) {
+            complained.put(id, true);
+        }
+
+        ShopState merged = new ShopState();
+        merged.shopId = shopId;
+        for (int i = 0; i < tail.queuedIds.length; i++) {
+            OrderState order = known.get(tail.queuedIds[i]);
+            if (order == null) {
+                throw new IllegalArgumentException("Tail names order #" + tail.queuedIds[i] + " missing from the snapshot");
+            }
+            order.skipCount = tail.skipCounts[i];
+            order.autoComplaintRaised = complained.containsKey(order.id);
+            merged.queue.add(order);
+        }
+        merged.baristas = tail.baristas;
+        merged.globalStats = tail.globalStats;
+        merged.userStats = tail.userStats;
+        merged.maxOrderId = Math.max(maxOrderId, tail.maxOrderId);
+        return merged;
+    }
+
+    /**
+     * One order, queued or assigned.
+     */
+    public static class OrderState {
+        public long id;
+        public Instant arrivalTime;
+        public String drinkName;
+        public int prepTimeMinutes;
+        public int loyaltyTier;
+        public boolean regularCustomer;
+        public String username;
+        public int skipCount;
+        public Order.OrderStatus status;
+        public Long assignedBaristaId;
+        public Instant assignedTime;
+        public boolean autoComplaintRaised;
+
+        public static OrderState of(Order order) {
+            OrderState state = new OrderState();
+            state.id = order.getId();
+            state.arrivalTime = order.getArrivalTime();
+            state.drinkName = order.getDrinkName();
+            state.prepTimeMinutes = order.getPrepTimeMinutes();
+            state.loyaltyTier = order.getLoyaltyTier();
+            state.regularCustomer = order.isRegularCustomer();
+            state.username = order.getUsername();
+            state.skipCount = order.getSkipCount();
+            state.status = order.getStatus();
+            state.assignedBaristaId = order.getAssignedBaristaId();
+            state.assignedTime = order.getAssignedTime();
+            state.autoComplaintRaised = order.isAutoComplaintRaised();
+            return state;
+        }
+
+        public Order toOrder(String shopId) {
+            Order order = new Order(id, arrivalTime, drinkName, prepTimeMinutes, loyaltyTier, regularCustomer, username);
+            order.setShopId(shopId);
+            order.setSkipCount(skipCount);
+            order.setStatus(status);
+            order.setAssignedBaristaId(assignedBaristaId);
+            order.setAssignedTime(assignedTime);
+            order.setAutoComplaintRaised(autoComplaintRaised);
+            return order;
+        }
+    }
+
+    /**
+     * One barista: the order in progress, the ones assigned after it,
+     * and lifetime totals.
+     */
+    public static class BaristaState {
+        public long id;
+        public String name;
+        public OrderState current;
+        public List<OrderState> pending = new ArrayList<>();
+        public int ordersCompleted;
+        public int totalWorkloadMinutes;
+
+        public static BaristaState of(Barista barista) {
+            BaristaState state = new BaristaState();
+            state.id = barista.getId();
+            state.name = barista.getName();
+            state.current = barista.getCurrentOrder() != null ? OrderState.of(barista.getCurrentOrder()) : null;
+            for (Order order : barista.getPendingOrders()) {
+                state.pending.add(OrderState.of(order));
+            }
+            state.ordersCompleted = barista.getOrdersCompleted();
+            state.totalWorkloadMinutes = barista.getTotalWorkloadMinutes();
+            return state;
+        }
+    }
+
+    /**
+     * One set of running totals (see {@link OrderStats.Counters}).
+     */
+    public static class CounterState {
+        public int queued;
+        public long completed;
+        public long waitSumMs;
+        public long timeouts;
+
+        public static CounterState of(OrderStats.Counters counters) {
+            CounterState state = new CounterState();
+            state.queued = counters.getQueued();
+            state.completed = counters.getCompleted();
+            state.waitSumMs = counters.getWaitSumMs();
+            state.timeouts = counters.getTimeouts();
+            return state;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.coffeeshop.scheduler.simulation;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The menu the simulator orders from, with how often each drink is
+ * ordered (problem statement). Shared with the HTTP load generator so
+ * both put the same work on the scheduler.
+ */
+public final class DrinkMix {
+
+    // Cumulative frequencies
+    private static final String[] NAMES = {"Cold Brew", "Espresso", "Americano", "Cappuccino", "Latte", "Mocha"};
+    private static final int[] PREP_TIMES = {1, 2, 2, 4, 4, 6};
+    private static final double[] FREQUENCIES = {0.25, 0.45, 0.60, 0.80, 0.92, 1.00};
+
+    private DrinkMix() {
+    }
+
+    // Index of a random drink, weighted by frequency
+    public static int pick(RandomGenerator random) {
+        double r = random.nextDouble();
+        int drink = 0;
+        while (r > FREQUENCIES[drink]) {
+            drink++;
+        }
+        return drink;
+    }
+
+    public static String name(int drink) {
+        return NAMES[drink];
+    }
+
+    public static int prepTimeMinutes(int drink) {
+        return PREP_TIMES[drink];
+    }
+}
@@ -0,0 +1,77 @@
+package com.coffeeshop.scheduler.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many independent test cases of a {@link SimulationEngine} on a
+ * fork/join pool.
+ *
+ * Every case gets its own {@link SplittableRandom}, split off a master
+ * generator in case order before anything runs, and results are kept by
+ * case index. A given seed therefore produces the same results bit for
+ * bit, whatever the pool size or the order in which cases finish.
+ */
+public class MonteCarloRunner {
+
+    private final ForkJoinPool pool;
+
+    public MonteCarloRunner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @throws IllegalArgumentException if cases is not positive
+     */
+    public List<SimulationResult> run(SimulationEngine engine, int cases, long seed) {
+        if (cases < 1) {
+            throw new IllegalArgumentException("At least one test case is needed");
+        }
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[cases];
+        for (int i = 0; i < cases; i++) {
+            streams[i] = master.split();
+        }
+        SimulationResult[] results = new SimulationResult[cases];
+        pool.invoke(new Cases(engine, streams, results, 0, cases));
+        return Arrays.asList(results);
+    }
+
+    public SimulationSummary summarize(SimulationEngine engine, int cases, long seed) {
+        return new SimulationSummary(seed, run(engine, cases, seed));
+    }
+
+    // Halves the case range until one case is left; a case is plenty of work
+    private static final class Cases extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SimulationEngine engine;
+        private final SplittableRandom[] streams;
+        private final SimulationResult[] results;
+        private final int from;
+        private final int to;
+
+        Cases(SimulationEngine engine, SplittableRandom[] streams, SimulationResult[] results, int from, int to) {
+            this.engine = engine;
+            this.streams = streams;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = engine.run(streams[from]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Cases(engine, streams, results, from, mid),
+                    new Cases(engine, streams, results, mid, to));
+        }
+    }
+}
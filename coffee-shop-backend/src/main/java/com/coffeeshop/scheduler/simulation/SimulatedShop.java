@@ -0,0 +1,141 @@
+package com.coffeeshop.scheduler.simulation;
+
+import com.coffeeshop.scheduler.alert.Alert;
+import com.coffeeshop.scheduler.alert.AlertLog;
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.stats.CompletedOrderStore;
+import com.coffeeshop.scheduler.stream.DeltaPublisher;
+import com.coffeeshop.scheduler.stream.DeltaType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A production {@link ShopScheduler} on a virtual clock, plus the tally of
+ * what happened to its orders.
+ *
+ * The shop is never started, so every call runs inline; time only moves
+ * when the driver calls {@link #advanceTo}, which jumps from deadline to
+ * deadline (prep completions and escalations) instead of stepping. Orders
+ * are numbered from 1 and nothing is persisted or published.
+ *
+ * Wait is measured as the live stats do, from arrival until preparation
+ * starts. Production never drops an order, so "abandoned" counts the new
+ * customers who waited 8 minutes or more (the ones who would have walked
+ * out), and timeouts are waits over 10 minutes.
+ *
+ * Not thread-safe: one per run.
+ */
+final class SimulatedShop implements DeltaPublisher {
+
+    static final long MINUTE_MS = 60_000L;
+    static final long ABANDON_MS = 8 * MINUTE_MS;
+    static final long TIMEOUT_MS = (long) (PriorityModel.MAX_WAIT_TIME_MINUTES * MINUTE_MS);
+
+    private final ShopScheduler shop;
+    private final int[] baristaOrders;
+
+    private long now;                  // Virtual ms since the shop opened
+    private long nextOrderId;
+    private long version;
+
+    private double[] waits = new double[256];  // Minutes, per completed order
+    private int completed;
+    private double totalWaitMinutes;
+    private int timeouts;
+    private int abandoned;
+    private int forceAssigned;
+    private long steps;
+
+    SimulatedShop(int baristas, PriorityModel model) {
+        List<String> names = new ArrayList<>(baristas);
+        for (int b = 1; b <= baristas; b++) {
+            names.add("Barista " + b);
+        }
+        this.baristaOrders = new int[baristas];
+        // Completed orders and alerts are never read here; keep them small
+        this.shop = new ShopScheduler("simulation", names,
+                new CompletedOrderStore(1, CompletedOrderStore.OverflowPolicy.DROP, null),
+                new AlertLog(16), this, null, model, () -> now, () -> ++nextOrderId);
+    }
+
+    // Fire every deadline up to timeMs, in order, and leave the clock there
+    void advanceTo(long timeMs) {
+        while (true) {
+            long deadline = shop.nextDeadline();
+            if (deadline > timeMs) {
+                break;
+            }
+            now = Math.max(now, deadline);
+            shop.autoCompleteCheck();  // Whatever is due, then idle baristas
+            steps++;
+        }
+        now = Math.max(now, timeMs);
+    }
+
+    // Run until every order has been made
+    void drain() {
+        advanceTo(Long.MAX_VALUE - 1);
+    }
+
+    void addOrder(String drinkName, int prepTimeMinutes, int loyaltyTier, boolean regular) {
+        shop.addOrder(drinkName, prepTimeMinutes, loyaltyTier, regular, null);
+        steps++;
+    }
+
+    // A barista marking their order done early; ignored for baristas the shop does not have
+    void completeOrder(long baristaId) {
+        if (baristaId >= 1 && baristaId <= baristaOrders.length) {
+            shop.completeOrder(baristaId);
+            steps++;
+        }
+    }
+
+    SimulationResult result() {
+        int n = completed;
+        double[] sorted = Arrays.copyOf(waits, n);
+        Arrays.sort(sorted);
+        return new SimulationResult(n, totalWaitMinutes, percentile(sorted, 0.50), percentile(sorted, 0.95),
+                percentile(sorted, 0.99), timeouts, abandoned, forceAssigned, baristaOrders.clone(), steps);
+    }
+
+    // Nearest rank; 0 if there are no values
+    private static double percentile(double[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.max(0, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    @Override
+    public long publish(String shopId, DeltaType type, String username, Object payload) {
+        if (type == DeltaType.ORDER_COMPLETED) {
+            onCompleted((Order) payload);
+        } else if (type == DeltaType.ALERT_RAISED && ((Alert) payload).getType() == Alert.AlertType.CRITICAL) {
+            forceAssigned++;
+        }
+        return ++version;
+    }
+
+    @Override
+    public long getVersion(String shopId) {
+        return version;
+    }
+
+    private void onCompleted(Order order) {
+        long waitMs = order.getAssignedTime().toEpochMilli() - order.getArrivalTime().toEpochMilli();
+        double waitMinutes = waitMs / 60000.0;
+        if (completed == waits.length) {
+            waits = Arrays.copyOf(waits, completed * 2);
+        }
+        waits[completed++] = waitMinutes;
+        totalWaitMinutes += waitMinutes;
+        if (waitMs > TIMEOUT_MS) {
+            timeouts++;
+        }
+        if (!order.isRegularCustomer() && waitMs >= ABANDON_MS) {
+            abandoned++;
+        }
+        baristaOrders[(int) (order.getAssignedBaristaId() - 1)]++;
+    }
+}
@@ -0,0 +1,65 @@
+package com.coffeeshop.scheduler.simulation;
+
+import com.coffeeshop.scheduler.model.PriorityModel;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Discrete-event simulation of one shop, run by the production scheduler.
+ *
+ * Each run builds a real {@link ShopScheduler} on a virtual clock (see
+ * {@link SimulatedShop}), so priorities, fairness boosts, workload
+ * balancing, escalations and force-assignment are exactly the live code
+ * path. Customers arrive as a Poisson stream over the horizon; between
+ * arrivals the clock jumps straight to the scheduler's next deadline, and
+ * the run ends once every order has been made.
+ *
+ * A run is single-threaded; engines are immutable and can be shared.
+ */
+public class SimulationEngine {
+
+    private static final long MINUTE_MS = SimulatedShop.MINUTE_MS;
+
+    private final int baristas;
+    private final double arrivalsPerMinute;
+    private final long horizonMs;
+
+    /**
+     * @throws IllegalArgumentException if any parameter is not positive
+     */
+    public SimulationEngine(int baristas, double arrivalsPerMinute, long horizonMinutes) {
+        if (baristas < 1 || !(arrivalsPerMinute > 0) || horizonMinutes < 1) {
+            throw new IllegalArgumentException("Baristas, arrival rate and horizon must be positive");
+        }
+        this.baristas = baristas;
+        this.arrivalsPerMinute = arrivalsPerMinute;
+        this.horizonMs = horizonMinutes * MINUTE_MS;
+    }
+
+    public SimulationResult run(RandomGenerator random) {
+        SimulatedShop shop = new SimulatedShop(baristas, PriorityModel.DEFAULT);
+        long arrival = nextArrival(random, 0);
+        while (arrival != Long.MAX_VALUE) {
+            shop.advanceTo(arrival);
+            arrive(random, shop);
+            arrival = nextArrival(random, arrival);
+        }
+        shop.drain();
+        return shop.result();
+    }
+
+    // Long.MAX_VALUE once past the horizon
+    private long nextArrival(RandomGenerator random, long fromMs) {
+        double interArrival = -Math.log(1.0 - random.nextDouble()) / arrivalsPerMinute;
+        long at = fromMs + (long) (interArrival * MINUTE_MS);
+        return at < horizonMs ? at : Long.MAX_VALUE;
+    }
+
+    private static void arrive(RandomGenerator random, SimulatedShop shop) {
+        int drink = DrinkMix.pick(random);
+        int loyaltyTier = 1 + random.nextInt(5);
+        boolean regular = random.nextDouble() < 0.4;
+        shop.addOrder(DrinkMix.name(drink), DrinkMix.prepTimeMinutes(drink), loyaltyTier, regular);
+    }
+}
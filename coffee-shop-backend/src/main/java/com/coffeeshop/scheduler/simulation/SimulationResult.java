@@ -0,0 +1,86 @@
+package com.coffeeshop.scheduler.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outcome of one simulated test case.
+ */
+public class SimulationResult {
+
+    private final int totalOrders;
+    private final double totalWaitMinutes;
+    private final double p50WaitMinutes;
+    private final double p95WaitMinutes;
+    private final double p99WaitMinutes;
+    private final int timeouts;
+    private final int abandoned;
+    private final int forceAssigned;
+    private final int[] baristaOrders;
+    private final long events;
+
+    SimulationResult(int totalOrders, double totalWaitMinutes, double p50WaitMinutes, double p95WaitMinutes,
+                     double p99WaitMinutes, int timeouts, int abandoned, int forceAssigned, int[] baristaOrders,
+                     long events) {
+        this.totalOrders = totalOrders;
+        this.totalWaitMinutes = totalWaitMinutes;
+        this.p50WaitMinutes = p50WaitMinutes;
+        this.p95WaitMinutes = p95WaitMinutes;
+        this.p99WaitMinutes = p99WaitMinutes;
+        this.timeouts = timeouts;
+        this.abandoned = abandoned;
+        this.forceAssigned = forceAssigned;
+        this.baristaOrders = baristaOrders;
+        this.events = events;
+    }
+
+    public double getAvgWaitMinutes() {
+        return totalOrders == 0 ? 0 : totalWaitMinutes / totalOrders;
+    }
+
+    public double getTimeoutRate() {
+        return totalOrders == 0 ? 0 : (double) timeouts / totalOrders;
+    }
+
+    public double getAbandonRate() {
+        return totalOrders == 0 ? 0 : (double) abandoned / totalOrders;
+    }
+
+    public double getForceAssignRate() {
+        return totalOrders == 0 ? 0 : (double) forceAssigned / totalOrders;
+    }
+
+    // Share of the orders made by one barista
+    public double getBaristaLoad(int barista) {
+        return totalOrders == 0 ? 0 : (double) baristaOrders[barista] / totalOrders;
+    }
+
+    // Row of the simulation report: b1Orders, b2Orders, ... per barista
+    public Map<String, Object> toMap(int testCase) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("testCase", testCase);
+        result.put("totalOrders", totalOrders);
+        result.put("avgWaitTime", Math.round(getAvgWaitMinutes() * 10) / 10.0);
+        result.put("p95WaitTime", Math.round(p95WaitMinutes * 10) / 10.0);
+        result.put("timeouts", timeouts);
+        result.put("abandoned", abandoned);
+        result.put("forceAssigned", forceAssigned);
+        for (int b = 0; b < baristaOrders.length; b++) {
+            result.put("b" + (b + 1) + "Orders", baristaOrders[b]);
+        }
+        result.put("events", events);
+        return result;
+    }
+
+    public int getTotalOrders() { return totalOrders; }
+    public double getTotalWaitMinutes() { return totalWaitMinutes; }
+    public double getP50WaitMinutes() { return p50WaitMinutes; }
+    public double getP95WaitMinutes() { return p95WaitMinutes; }
+    public double getP99WaitMinutes() { return p99WaitMinutes; }
+    public int getTimeouts() { return timeouts; }
+    public int getAbandoned() { return abandoned; }
+    public int getForceAssigned() { return forceAssigned; }
+    public int getBaristaOrders(int barista) { return baristaOrders[barista]; }
+    public int getBaristaCount() { return baristaOrders.length; }
+    public long getEvents() { return events; }
+}
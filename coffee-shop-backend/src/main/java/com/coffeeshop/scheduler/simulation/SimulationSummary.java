@@ -0,0 +1,91 @@
+package com.coffeeshop.scheduler.simulation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Aggregate of many test cases.
+ *
+ * Each case is one independent replication, so every metric is the mean
+ * of the per-case values with a 95% confidence interval from Student's t
+ * over the cases (normal beyond 30 cases). Waits are in minutes; rates
+ * and barista loads are fractions of the case's orders.
+ */
+public class SimulationSummary {
+
+    // Two-sided 95% t quantiles for 1..30 degrees of freedom
+    private static final double[] T95 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z95 = 1.960;
+
+    private final long seed;
+    private final List<SimulationResult> cases;
+
+    public SimulationSummary(long seed, List<SimulationResult> cases) {
+        this.seed = seed;
+        this.cases = cases;
+    }
+
+    public Map<String, Object> toMap() {
+        long orders = 0;
+        long events = 0;
+        for (SimulationResult r : cases) {
+            orders += r.getTotalOrders();
+            events += r.getEvents();
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("seed", seed);
+        summary.put("cases", cases.size());
+        summary.put("totalOrders", orders);
+        summary.put("events", events);
+        summary.put("avgWait", interval(SimulationResult::getAvgWaitMinutes));
+        summary.put("p50Wait", interval(SimulationResult::getP50WaitMinutes));
+        summary.put("p95Wait", interval(SimulationResult::getP95WaitMinutes));
+        summary.put("p99Wait", interval(SimulationResult::getP99WaitMinutes));
+        summary.put("timeoutRate", interval(SimulationResult::getTimeoutRate));
+        summary.put("abandonRate", interval(SimulationResult::getAbandonRate));
+        summary.put("forceAssignRate", interval(SimulationResult::getForceAssignRate));
+
+        List<Map<String, Object>> load = new ArrayList<>();
+        int baristas = cases.isEmpty() ? 0 : cases.get(0).getBaristaCount();
+        for (int b = 0; b < baristas; b++) {
+            int barista = b;
+            Map<String, Object> row = interval(r -> r.getBaristaLoad(barista));
+            row.put("barista", b + 1);
+            load.add(row);
+        }
+        summary.put("baristaLoad", load);
+        return summary;
+    }
+
+    // {mean, low, high}; the interval collapses to the mean for a single case
+    private Map<String, Object> interval(ToDoubleFunction<SimulationResult> metric) {
+        int n = cases.size();
+        double sum = 0;
+        for (SimulationResult r : cases) {
+            sum += metric.applyAsDouble(r);
+        }
+        double mean = n == 0 ? 0 : sum / n;
+        double squares = 0;
+        for (SimulationResult r : cases) {
+            double d = metric.applyAsDouble(r) - mean;
+            squares += d * d;
+        }
+        double halfWidth = n < 2 ? 0 : quantile(n - 1) * Math.sqrt(squares / (n - 1) / n);
+
+        Map<String, Object> interval = new LinkedHashMap<>();
+        interval.put("mean", mean);
+        interval.put("low", mean - halfWidth);
+        interval.put("high", mean + halfWidth);
+        return interval;
+    }
+
+    private static double quantile(int degreesOfFreedom) {
+        return degreesOfFreedom <= T95.length ? T95[degreesOfFreedom - 1] : Z95;
+    }
+}
@@ -0,0 +1,105 @@
+package com.coffeeshop.scheduler.simulation;
+
+import com.coffeeshop.scheduler.model.PriorityModel;
+import com.coffeeshop.scheduler.trace.TraceFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pushes a recorded order trace through the production scheduler in
+ * virtual time, with a different number of baristas or different
+ * priority weights than the shop had when it was recorded.
+ *
+ * Orders arrive at their recorded offsets from the start of the trace and
+ * manual completions are applied when they were made (for baristas the
+ * replayed shop has); everything else is left to the scheduler's own
+ * timers. The replay then runs until every order has been made.
+ */
+public class TraceReplay {
+
+    private final int baristas;
+    private final PriorityModel model;
+
+    /**
+     * @throws IllegalArgumentException if there are no baristas
+     */
+    public TraceReplay(int baristas, PriorityModel model) {
+        if (baristas < 1) {
+            throw new IllegalArgumentException("A shop needs at least one barista");
+        }
+        this.baristas = baristas;
+        this.model = model;
+    }
+
+    /**
+     * Replay the records of one shop.
+     *
+     * @return the outcome, plus how much recorded time was replayed and how fast
+     * @throws IOException if the trace cannot be read
+     */
+    public Map<String, Object> replay(Path trace, String shopId) throws IOException {
+        long started = System.nanoTime();
+        SimulatedShop shop = new SimulatedShop(baristas, model);
+        long[] span = {Long.MAX_VALUE, Long.MIN_VALUE};  // First and last record of the shop
+
+        TraceFile.read(trace, new TraceFile.Visitor() {
+            @Override
+            public void order(long atMs, String shop_, String drinkName, int prepTimeMinutes, int loyaltyTier,
+                              boolean regular) {
+                if (shopId.equals(shop_)) {
+                    shop.advanceTo(offset(atMs));
+                    shop.addOrder(drinkName, prepTimeMinutes, loyaltyTier, regular);
+                }
+            }
+
+            @Override
+            public void completed(long atMs, String shop_, long baristaId) {
+                if (shopId.equals(shop_)) {
+                    shop.advanceTo(offset(atMs));
+                    shop.completeOrder(baristaId);
+                }
+            }
+
+            // Virtual time runs from the shop's first record
+            private long offset(long atMs) {
+                if (span[0] == Long.MAX_VALUE) {
+                    span[0] = atMs;
+                }
+                span[1] = atMs;
+                return atMs - span[0];
+            }
+        });
+        shop.drain();
+
+        SimulationResult result = shop.result();
+        double tookMs = (System.nanoTime() - started) / 1e6;
+        double tracedMs = span[0] == Long.MAX_VALUE ? 0 : span[1] - span[0];
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("trace", trace.getFileName().toString());
+        report.put("shopId", shopId);
+        report.put("baristas", baristas);
+        report.put("weights", new double[] {model.getWeightWaitTime(), model.getWeightComplexity(),
+                model.getWeightLoyalty(), model.getWeightUrgency()});
+        report.put("tracedMinutes", Math.round(tracedMs / 60000.0 * 10) / 10.0);
+        report.put("replayMs", Math.round(tookMs * 10) / 10.0);
+        report.put("speedup", tookMs > 0 ? Math.round(tracedMs / tookMs) : 0);
+        report.put("totalOrders", result.getTotalOrders());
+        report.put("avgWait", Math.round(result.getAvgWaitMinutes() * 10) / 10.0);
+        report.put("p50Wait", Math.round(result.getP50WaitMinutes() * 10) / 10.0);
+        report.put("p95Wait", Math.round(result.getP95WaitMinutes() * 10) / 10.0);
+        report.put("p99Wait", Math.round(result.getP99WaitMinutes() * 10) / 10.0);
+        report.put("timeouts", result.getTimeouts());
+        report.put("forceAssigned", result.getForceAssigned());
+        report.put("abandoned", result.getAbandoned());
+        int[] load = new int[baristas];
+        for (int b = 0; b < baristas; b++) {
+            load[b] = result.getBaristaOrders(b);
+        }
+        report.put("baristaOrders", load);
+        return report;
+    }
+}
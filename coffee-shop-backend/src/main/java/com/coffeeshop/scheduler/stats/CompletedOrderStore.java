@@ -0,0 +1,228 @@
+package com.coffeeshop.scheduler.stats;
+
+import com.coffeeshop.scheduler.model.Order;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent completed orders, kept as primitive columns in a fixed-capacity
+ * ring buffer. Once full, the oldest row is dropped or spilled to an
+ * append-only file, depending on the {@link OverflowPolicy}.
+ *
+ * Wait is measured from arrival until preparation started.
+ * Not thread-safe: only the scheduler loop thread may touch it.
+ */
+public class CompletedOrderStore implements Closeable {
+
+    public enum OverflowPolicy {
+        DROP,   // Forget the oldest row
+        SPILL   // Append the oldest row to the spill file first
+    }
+
+    // Row layout in the spill file
+    // id, arrivalMs, startMs, prepMinutes, baristaId, waitMs, username (UTF)
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Path spillFile;
+    private DataOutputStream spill;
+
+    // Columns
+    private final long[] ids;
+    private final long[] arrivalMs;
+    private final long[] startMs;
+    private final int[] prepMinutes;
+    private final long[] baristaIds;
+    private final long[] waitMs;
+    private final int[] userIds;
+
+    private long appended;  // Rows ever added; next slot = appended % capacity
+
+    // Interned usernames (id 0 = no username). An id is freed once no row
+    // uses it, so the table never outgrows the ring.
+    private final Map<String, Integer> userIdsByName = new HashMap<>();
+    private final List<String> usernames = new ArrayList<>(List.of(""));
+    private int[] userRows = new int[16];  // Rows per username id
+    private int[] freeUserIds = new int[16];
+    private int freeUserCount;
+
+    public CompletedOrderStore(int capacity, OverflowPolicy policy, Path spillFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (policy == OverflowPolicy.SPILL && spillFile == null) {
+            throw new IllegalArgumentException("SPILL policy needs a spill file");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.spillFile = spillFile;
+        this.ids = new long[capacity];
+        this.arrivalMs = new long[capacity];
+        this.startMs = new long[capacity];
+        this.prepMinutes = new int[capacity];
+        this.baristaIds = new long[capacity];
+        this.waitMs = new long[capacity];
+        this.userIds = new int[capacity];
+    }
+
+    public void add(Order order) {
+        long arrival = order.getArrivalTime().toEpochMilli();
+        long start = order.getAssignedTime() != null ? order.getAssignedTime().toEpochMilli() : arrival;
+        addRow(order.getId(), arrival, start, order.getPrepTimeMinutes(),
+                order.getAssignedBaristaId() != null ? order.getAssignedBaristaId() : -1,
+                start - arrival, order.getUsername());
+    }
+
+    private void addRow(long id, long arrival, long start, int prep, long baristaId, long wait, String username) {
+        int slot = (int) (appended % capacity);
+        if (appended >= capacity) {
+            if (policy == OverflowPolicy.SPILL) {
+                spillRow(slot);
+            }
+            release(userIds[slot]);
+        }
+
+        ids[slot] = id;
+        arrivalMs[slot] = arrival;
+        startMs[slot] = start;
+        prepMinutes[slot] = prep;
+        baristaIds[slot] = baristaId;
+        waitMs[slot] = wait;
+        userIds[slot] = intern(username);
+        appended++;
+    }
+
+    // Rows currently held
+    public int size() {
+        return (int) Math.min(appended, capacity);
+    }
+
+    public long getAppendedCount() { return appended; }
+    public int getCapacity() { return capacity; }
+
+    // AGGREGATES
+
+    public int countWaitsOverForBarista(long baristaId, long thresholdMs) {
+        int count = 0;
+        for (int i = 0, n = size(); i < n; i++) {
+            if (baristaIds[i] == baristaId && waitMs[i] > thresholdMs) count++;
+        }
+        return count;
+    }
+
+    // PERSISTENCE (journal snapshots)
+
+    // Rows held, oldest first, in the spill file layout behind a row count
+    public void writeTo(DataOutput out) throws IOException {
+        int rows = size();
+        out.writeInt(rows);
+        for (long i = appended - rows; i < appended; i++) {
+            writeRow(out, (int) (i % capacity));
+        }
+    }
+
+    // Append rows written by writeTo
+    public void readFrom(DataInput in) throws IOException {
+        int rows = in.readInt();
+        for (int i = 0; i < rows; i++) {
+            long id = in.readLong();
+            long arrival = in.readLong();
+            long start = in.readLong();
+            int prep = in.readInt();
+            long baristaId = in.readLong();
+            long wait = in.readLong();
+            String username = in.readUTF();
+            addRow(id, arrival, start, prep, baristaId, wait, username.isEmpty() ? null : username);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close " + spillFile, e);
+            }
+            spill = null;
+        }
+    }
+
+    private int intern(String username) {
+        if (username == null) {
+            return 0;
+        }
+        Integer known = userIdsByName.get(username);
+        int id;
+        if (known != null) {
+            id = known;
+        } else if (freeUserCount > 0) {
+            id = freeUserIds[--freeUserCount];
+            usernames.set(id, username);
+            userIdsByName.put(username, id);
+        } else {
+            id = usernames.size();
+            usernames.add(username);
+            userIdsByName.put(username, id);
+            if (id == userRows.length) {
+                userRows = Arrays.copyOf(userRows, id * 2);
+            }
+        }
+        userRows[id]++;
+        return id;
+    }
+
+    // A row using the username id was overwritten
+    private void release(int id) {
+        if (id == 0 || --userRows[id] > 0) {
+            return;
+        }
+        userIdsByName.remove(usernames.get(id));
+        usernames.set(id, null);
+        if (freeUserCount == freeUserIds.length) {
+            freeUserIds = Arrays.copyOf(freeUserIds, freeUserCount * 2);
+        }
+        freeUserIds[freeUserCount++] = id;
+    }
+
+    // Distinct usernames currently held
+    int internedCount() {
+        return userIdsByName.size();
+    }
+
+    private void spillRow(int slot) {
+        try {
+            if (spill == null) {
+                spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+            }
+            writeRow(spill, slot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill completed order to " + spillFile, e);
+        }
+    }
+
+    private void writeRow(DataOutput out, int slot) throws IOException {
+        out.writeLong(ids[slot]);
+        out.writeLong(arrivalMs[slot]);
+        out.writeLong(startMs[slot]);
+        out.writeInt(prepMinutes[slot]);
+        out.writeLong(baristaIds[slot]);
+        out.writeLong(waitMs[slot]);
+        out.writeUTF(usernames.get(userIds[slot]));
+    }
+}
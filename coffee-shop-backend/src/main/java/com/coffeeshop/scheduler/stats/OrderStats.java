@@ -0,0 +1,114 @@
+package com.coffeeshop.scheduler.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running order statistics, kept globally and per username.
+ *
+ * Updated on every enqueue, assignment and completion, so reading them
+ * is O(1) regardless of history size. Wait is measured from arrival
+ * until preparation started; a timeout is a wait over the limit.
+ *
+ * Only the scheduler loop thread updates it, but any thread may read it:
+ * an update replaces the affected {@link Counters} (they are immutable)
+ * instead of changing them, so readers never need a copy of the whole
+ * set, however many users it holds.
+ */
+public class OrderStats {
+
+    private final long timeoutThresholdMs;
+    private volatile Counters global = Counters.EMPTY;
+    private final Map<String, Counters> byUser = new ConcurrentHashMap<>();
+
+    public OrderStats(long timeoutThresholdMs) {
+        this.timeoutThresholdMs = timeoutThresholdMs;
+    }
+
+    public void onEnqueued(String username) {
+        global = global.withQueued(1);
+        byUser.put(key(username), user(username).withQueued(1));
+    }
+
+    // Left the queue for a barista
+    public void onAssigned(String username) {
+        global = global.withQueued(-1);
+        byUser.put(key(username), user(username).withQueued(-1));
+    }
+
+    public void onCompleted(String username, long waitMs) {
+        global = global.withCompleted(waitMs, timeoutThresholdMs);
+        byUser.put(key(username), user(username).withCompleted(waitMs, timeoutThresholdMs));
+    }
+
+    // Overwrite counters with restored values (username null = global)
+    public void restore(String username, int queued, long completed, long waitSumMs, long timeouts) {
+        Counters counters = new Counters(queued, completed, waitSumMs, timeouts);
+        if (username != null) {
+            byUser.put(key(username), counters);
+        } else {
+            global = counters;
+        }
+    }
+
+    public Counters getGlobal() {
+        return global;
+    }
+
+    // Every user's counters, keyed by username ("" for orders without one)
+    public Map<String, Counters> getUsers() {
+        return Collections.unmodifiableMap(byUser);
+    }
+
+    // Counters for one user (all zero if they never ordered)
+    public Counters getUser(String username) {
+        return user(username);
+    }
+
+    private Counters user(String username) {
+        return byUser.getOrDefault(key(username), Counters.EMPTY);
+    }
+
+    private static String key(String username) {
+        return username != null ? username : "";
+    }
+
+    /**
+     * Queue size, completed count, wait sum and timeout count. Immutable.
+     */
+    public static final class Counters {
+
+        static final Counters EMPTY = new Counters(0, 0, 0, 0);
+
+        private final int queued;
+        private final long completed;
+        private final long waitSumMs;
+        private final long timeouts;
+
+        private Counters(int queued, long completed, long waitSumMs, long timeouts) {
+            this.queued = queued;
+            this.completed = completed;
+            this.waitSumMs = waitSumMs;
+            this.timeouts = timeouts;
+        }
+
+        private Counters withQueued(int delta) {
+            return new Counters(queued + delta, completed, waitSumMs, timeouts);
+        }
+
+        private Counters withCompleted(long waitMs, long timeoutThresholdMs) {
+            return new Counters(queued, completed + 1, waitSumMs + waitMs,
+                    waitMs > timeoutThresholdMs ? timeouts + 1 : timeouts);
+        }
+
+        public int getQueued() { return queued; }
+        public long getCompleted() { return completed; }
+        public long getWaitSumMs() { return waitSumMs; }
+        public long getTimeouts() { return timeouts; }
+
+        public double getAverageWaitMinutes() {
+            return completed > 0 ? waitSumMs / (double) completed / 60000.0 : 0;
+        }
+    }
+}
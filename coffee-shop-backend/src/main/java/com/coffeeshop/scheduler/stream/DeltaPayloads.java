@@ -0,0 +1,101 @@
+package com.coffeeshop.scheduler.stream;
+
+import com.coffeeshop.scheduler.model.Barista;
+import com.coffeeshop.scheduler.model.Order;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a delta carries, copied from the live objects on the scheduler
+ * loop. Plain fields only: no priority explanation and nothing derived
+ * from the wall clock, so building one is a handful of field reads and
+ * encoding it later (off the loop) needs no access to live state.
+ */
+final class DeltaPayloads {
+
+    private DeltaPayloads() {
+    }
+
+    // Loop thread; immutable payloads (alerts) pass through
+    static Object of(Object live) {
+        if (live instanceof Order order) {
+            return new OrderPayload(order);
+        }
+        if (live instanceof Barista barista) {
+            return new BaristaPayload(barista);
+        }
+        return live;
+    }
+
+    /**
+     * An order, with the fields the dashboard ranks by.
+     */
+    static final class OrderPayload {
+        public final long id;
+        public final String shopId;
+        public final String username;
+        public final String drinkName;
+        public final int prepTimeMinutes;
+        public final int loyaltyTier;
+        public final boolean regularCustomer;
+        public final Instant arrivalTime;
+        public final double priority;
+        public final int skipCount;
+        public final Order.OrderStatus status;
+        public final Long assignedBaristaId;
+        public final Instant assignedTime;
+        public final boolean autoComplaintRaised;
+
+        OrderPayload(Order order) {
+            id = order.getId();
+            shopId = order.getShopId();
+            username = order.getUsername();
+            drinkName = order.getDrinkName();
+            prepTimeMinutes = order.getPrepTimeMinutes();
+            loyaltyTier = order.getLoyaltyTier();
+            regularCustomer = order.isRegularCustomer();
+            arrivalTime = order.getArrivalTime();
+            priority = order.getPriority();
+            skipCount = order.getSkipCount();
+            status = order.getStatus();
+            assignedBaristaId = order.getAssignedBaristaId();
+            assignedTime = order.getAssignedTime();
+            autoComplaintRaised = order.isAutoComplaintRaised();
+        }
+    }
+
+    /**
+     * A barista and the orders assigned to it.
+     */
+    static final class BaristaPayload {
+        public final long id;
+        public final String name;
+        public final String shopId;
+        public final boolean available;
+        public final long busyUntilMs;
+        public final int totalPendingMinutes;
+        public final int ordersCompleted;
+        public final int totalWorkloadMinutes;
+        public final List<OrderPayload> assignedOrders;
+
+        BaristaPayload(Barista barista) {
+            id = barista.getId();
+            name = barista.getName();
+            shopId = barista.getShopId();
+            available = barista.isAvailable();
+            busyUntilMs = barista.getBusyUntilMs();
+            totalPendingMinutes = barista.getTotalPendingMinutes();
+            ordersCompleted = barista.getOrdersCompleted();
+            totalWorkloadMinutes = barista.getTotalWorkloadMinutes();
+            List<Order> assigned = barista.getAssignedOrders();
+            List<OrderPayload> orders = new ArrayList<>(assigned.size());
+            for (Order order : assigned) {
+                orders.add(new OrderPayload(order));
+            }
+            assignedOrders = Collections.unmodifiableList(orders);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.coffeeshop.scheduler.stream;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sink for scheduler state changes. Every published delta gets the next
+ * version number of its shop; versions are per shop and strictly
+ * increasing, so shops never contend on them.
+ */
+public interface DeltaPublisher {
+
+    /**
+     * Publisher that only counts versions (no subscribers, nothing encoded).
+     */
+    DeltaPublisher NONE = new DeltaPublisher() {
+        private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+        @Override
+        public long publish(String shopId, DeltaType type, String username, Object payload) {
+            return versions.computeIfAbsent(shopId, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        @Override
+        public long getVersion(String shopId) {
+            AtomicLong version = versions.get(shopId);
+            return version != null ? version.get() : 0;
+        }
+
+        @Override
+        public void remove(String shopId) {
+            versions.remove(shopId);
+        }
+    };
+
+    /**
+     * Called from the shop's scheduler loop only; the payload is live state
+     * and must not be kept past the call.
+     *
+     * @param shopId shop the change belongs to
+     * @param username owner of the change, or null if every dashboard should see it
+     * @return the version assigned to this delta
+     */
+    long publish(String shopId, DeltaType type, String username, Object payload);
+
+    // Version of the shop's latest published delta
+    long getVersion(String shopId);
+
+    /**
+     * Forget a shop that was closed or moved away, once its loop no longer
+     * publishes. Its versions start over if it comes back.
+     */
+    default void remove(String shopId) {
+    }
+}
@@ -0,0 +1,294 @@
+package com.coffeeshop.scheduler.stream;
+
+import com.coffeeshop.scheduler.loop.CommandRing;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-sent event stream of versioned scheduler deltas.
+ *
+ * Every shop has its own version counter, history ring and subscriber
+ * list, so shop loops never contend with each other here (the shop's lock
+ * is only ever shared with clients subscribing to it). While nobody
+ * watches a shop, a delta only takes a version number; nothing is copied.
+ * Otherwise the loop copies the change into a small payload and offers it
+ * to each matching subscriber's bounded queue; JSON encoding and all
+ * client I/O happen on sender threads, one at a time per subscriber.
+ *
+ * Clients resume with the last version they saw; if it has fallen out of
+ * the shop's history they are told to resync from the REST endpoints. A
+ * subscriber whose queue fills up (a slow or stalled client) loses what
+ * was queued and gets a resync instead, so it never holds back the loop
+ * or the other subscribers.
+ */
+@Component
+public class DeltaStream implements DeltaPublisher {
+
+    private static final int SEND_BATCH = 64;
+
+    private final ObjectMapper objectMapper;
+    private final int historySize;
+    private final int queueCapacity;
+
+    private final Map<String, ShopStream> shops = new ConcurrentHashMap<>();
+
+    // Sender threads exist only while some subscriber has deltas to send
+    private final AtomicInteger senderCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "delta-stream-" + senderCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeltaStream(ObjectMapper objectMapper,
+                       @Value("${scheduler.stream.history:4096}") int historySize,
+                       @Value("${scheduler.stream.subscriber-queue:1024}") int queueCapacity) {
+        this.objectMapper = objectMapper;
+        this.historySize = historySize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public long publish(String shopId, DeltaType type, String username, Object payload) {
+        ShopStream shop = shop(shopId);
+        synchronized (shop) {
+            long version = shop.version.incrementAndGet();
+            if (shop.subscribers.isEmpty()) {
+                return version;
+            }
+            Event delta = new Event(version, type.getWireName(), username, DeltaPayloads.of(payload));
+            shop.history[(int) (delta.version % historySize)] = delta;
+            for (Subscriber subscriber : shop.subscribers) {
+                if (subscriber.accepts(delta)) {
+                    offer(subscriber, delta);
+                }
+            }
+            return delta.version;
+        }
+    }
+
+    @Override
+    public long getVersion(String shopId) {
+        return shop(shopId).version.get();
+    }
+
+    /**
+     * Open a stream for one dashboard.
+     *
+     * @param shopId only this shop's deltas are sent
+     * @param username only this user's order deltas are sent (null = all)
+     * @param sinceVersion last version the client has seen, or null for a fresh start
+     */
+    public SseEmitter subscribe(String shopId, String username, Long sinceVersion) {
+        ShopStream shop = shop(shopId);
+        SseEmitter emitter = new SseEmitter(0L);  // No timeout; EventSource reconnects anyway
+        Subscriber subscriber = new Subscriber(shop, emitter, username, new CommandRing<>(queueCapacity));
+        emitter.onCompletion(() -> shop.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> shop.subscribers.remove(subscriber));
+        emitter.onError(e -> shop.subscribers.remove(subscriber));
+
+        synchronized (shop) {
+            // Registered under the lock: every later delta is recorded and
+            // queued for it, after the replay queued here
+            shop.subscribers.add(subscriber);
+
+            long current = shop.version.get();
+            boolean resync = false;
+            if (sinceVersion != null && sinceVersion != current) {
+                // Too far behind, or a version from before a restart
+                resync = sinceVersion > current || current - sinceVersion > historySize;
+                for (long v = sinceVersion + 1; v <= current && !resync; v++) {
+                    Event delta = shop.history[(int) (v % historySize)];
+                    resync = delta == null || delta.version != v;  // Published while nobody listened
+                }
+            }
+
+            if (sinceVersion == null || resync) {
+                // Client should (re)load full state from the REST endpoints
+                offer(subscriber, Event.control(resync ? "resync" : "hello", current));
+            } else {
+                for (long v = sinceVersion + 1; v <= current; v++) {
+                    Event delta = shop.history[(int) (v % historySize)];
+                    if (subscriber.accepts(delta)) {
+                        offer(subscriber, delta);
+                    }
+                }
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Drop a closed or departed shop's history and end its streams. Clients
+     * reconnect and resync from wherever the shop is now served.
+     */
+    @Override
+    public void remove(String shopId) {
+        ShopStream shop = shops.remove(shopId);
+        if (shop == null) {
+            return;
+        }
+        synchronized (shop) {
+            for (Subscriber subscriber : shop.subscribers) {
+                subscriber.emitter.complete();
+            }
+            shop.subscribers.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (ShopStream shop : shops.values()) {
+            for (Subscriber subscriber : shop.subscribers) {
+                subscriber.emitter.complete();
+            }
+            shop.subscribers.clear();
+        }
+    }
+
+    private ShopStream shop(String shopId) {
+        return shops.computeIfAbsent(shopId, k -> new ShopStream(historySize));
+    }
+
+    // Under the shop's lock; a full queue turns into a resync
+    private void offer(Subscriber subscriber, Event event) {
+        if (!subscriber.queue.offer(event)) {
+            subscriber.overflowed = true;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> sendQueued(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the subscriber is being closed
+            }
+        }
+    }
+
+    // SENDER THREADS (one at a time per subscriber)
+
+    private void sendQueued(Subscriber subscriber) {
+        try {
+            while (true) {
+                if (subscriber.overflowed) {
+                    subscriber.overflowed = false;
+                    long current = subscriber.shop.version.get();
+                    subscriber.queue.drain(dropped -> { }, Integer.MAX_VALUE);
+                    send(subscriber, Event.control("resync", current));
+                }
+                if (subscriber.queue.drain(event -> send(subscriber, event), SEND_BATCH) > 0) {
+                    continue;
+                }
+
+                // Idle: stand down, unless something arrived in the meantime
+                subscriber.scheduled.set(false);
+                if ((subscriber.queue.isEmpty() && !subscriber.overflowed)
+                        || !subscriber.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (UncheckedIOException | IllegalStateException e) {
+            subscriber.shop.subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void send(Subscriber subscriber, Event event) {
+        try {
+            subscriber.emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.version))
+                    .name(event.name)
+                    .data(event.json(objectMapper), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One shop's version counter, history and subscribers. The history is
+     * only written under the shop's lock.
+     */
+    private static final class ShopStream {
+        final AtomicLong version = new AtomicLong();
+        final Event[] history;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        ShopStream(int historySize) {
+            this.history = new Event[historySize];
+        }
+    }
+
+    /**
+     * A delta (or a hello/resync control event). Encoded once, by whichever
+     * sender needs it first.
+     */
+    private static final class Event {
+        final long version;
+        final String name;
+        final String username;
+        final Object payload;
+        private volatile String json;
+
+        Event(long version, String name, String username, Object payload) {
+            this.version = version;
+            this.name = name;
+            this.username = username;
+            this.payload = payload;
+        }
+
+        static Event control(String name, long version) {
+            return new Event(version, name, null, Map.of("version", version));
+        }
+
+        String json(ObjectMapper objectMapper) {
+            String encoded = json;
+            if (encoded == null) {
+                try {
+                    encoded = objectMapper.writeValueAsString(payload);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Could not encode delta payload", e);
+                }
+                json = encoded;
+            }
+            return encoded;
+        }
+    }
+
+    private static final class Subscriber {
+        final ShopStream shop;
+        final SseEmitter emitter;
+        final String username;
+        final CommandRing<Event> queue;
+        final AtomicBoolean scheduled = new AtomicBoolean();  // A sender is on it
+        volatile boolean overflowed;
+
+        Subscriber(ShopStream shop, SseEmitter emitter, String username, CommandRing<Event> queue) {
+            this.shop = shop;
+            this.emitter = emitter;
+            this.username = username;
+            this.queue = queue;
+        }
+
+        boolean accepts(Event delta) {
+            return username == null || delta.username == null || username.equals(delta.username);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.coffeeshop.scheduler.stream;
+
+/**
+ * Kinds of state change pushed to dashboards.
+ * The wire name is used as the SSE event name.
+ */
+public enum DeltaType {
+    ORDER_ENQUEUED("order-enqueued"),
+    ORDER_RERANKED("order-reranked"),     // Fairness boost changed its rank
+    ORDER_ASSIGNED("order-assigned"),
+    ORDER_COMPLETED("order-completed"),
+    BARISTA_UPDATED("barista-updated"),
+    ALERT_RAISED("alert-raised");
+
+    private final String wireName;
+
+    DeltaType(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public String getWireName() { return wireName; }
+}
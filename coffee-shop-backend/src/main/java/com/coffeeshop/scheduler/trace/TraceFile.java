@@ -0,0 +1,229 @@
+package com.coffeeshop.scheduler.trace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary trace of the order stream: arrivals and manual completions.
+ *
+ * Layout: magic, version, start time (epoch ms), then records of
+ * [type byte][time since previous record, varint ms][fields]. Shop ids
+ * and drink names are written once, as dictionary records, and referred
+ * to by index afterwards, so an arrival takes about six bytes. Names are
+ * cut to {@link #MAX_NAME_LENGTH} characters, and drinks past the first
+ * {@link #MAX_DRINKS} distinct names are all recorded as
+ * {@link #OTHER_DRINK}, so clients cannot grow the dictionary without bound.
+ *
+ * A trace cut short by a crash is read up to its last whole record.
+ */
+public final class TraceFile {
+
+    private static final int MAGIC = 0x43535452;  // "CSTR"
+    private static final int VERSION = 1;
+
+    private static final int ORDER = 1;
+    private static final int COMPLETED = 2;
+    private static final int SHOP = 3;         // Dictionary entries
+    private static final int DRINK = 4;
+
+    public static final int MAX_NAME_LENGTH = 200;
+    public static final int MAX_DRINKS = 1024;
+    public static final String OTHER_DRINK = "(other)";
+
+    private TraceFile() {
+    }
+
+    /**
+     * Receives the records of a trace, in order. Times are epoch ms.
+     */
+    public interface Visitor {
+        void order(long atMs, String shopId, String drinkName, int prepTimeMinutes, int loyaltyTier, boolean regular);
+
+        void completed(long atMs, String shopId, long baristaId);
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // WRITING
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Appends records to a new trace file. Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> shops = new HashMap<>();
+        private final Map<String, Integer> drinks = new HashMap<>();
+        private long lastMs;
+        private long records;
+
+        public Writer(Path file, long startMs) throws IOException {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW);
+            this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(startMs);
+            this.lastMs = startMs;
+        }
+
+        public void order(long atMs, String shopId, String drinkName, int prepTimeMinutes, int loyaltyTier,
+                          boolean regular) throws IOException {
+            int shop = intern(shops, SHOP, shopId);
+            String drinkKey = name(drinkName);
+            if (!drinks.containsKey(drinkKey) && drinks.size() >= MAX_DRINKS - 1) {
+                drinkKey = OTHER_DRINK;  // The last slot is kept for it
+            }
+            int drink = intern(drinks, DRINK, drinkKey);
+            header(ORDER, atMs);
+            writeVarLong(shop);
+            writeVarLong(drink);
+            out.writeByte(Math.max(0, Math.min(255, prepTimeMinutes)));
+            out.writeByte((Math.max(0, Math.min(127, loyaltyTier))) | (regular ? 0x80 : 0));
+            records++;
+        }
+
+        public void completed(long atMs, String shopId, long baristaId) throws IOException {
+            int shop = intern(shops, SHOP, shopId);
+            header(COMPLETED, atMs);
+            writeVarLong(shop);
+            writeVarLong(baristaId);
+            records++;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        // Index of a dictionary entry, writing it the first time it is seen
+        private int intern(Map<String, Integer> dictionary, int type, String value) throws IOException {
+            String key = name(value);
+            Integer index = dictionary.get(key);
+            if (index == null) {
+                index = dictionary.size();
+                out.writeByte(type);
+                out.writeUTF(key);
+                dictionary.put(key, index);  // Only once it is written
+            }
+            return index;
+        }
+
+        // Null as empty, and short enough for writeUTF
+        private static String name(String value) {
+            if (value == null) {
+                return "";
+            }
+            return value.length() > MAX_NAME_LENGTH ? value.substring(0, MAX_NAME_LENGTH) : value;
+        }
+
+        // Records arrive from many threads, so time may step back slightly
+        private void header(int type, long atMs) throws IOException {
+            long at = Math.max(atMs, lastMs);
+            out.writeByte(type);
+            writeVarLong(at - lastMs);
+            lastMs = at;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // READING
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Hand every record of a trace to the visitor.
+     *
+     * @return the trace's start time (epoch ms)
+     * @throws IOException if the file cannot be read or is not a trace
+     */
+    public static long read(Path file, Visitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an order trace");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported trace version " + version);
+            }
+            long startMs = in.readLong();
+
+            List<String> shops = new ArrayList<>();
+            List<String> drinks = new ArrayList<>();
+            long atMs = startMs;
+            try {
+                while (true) {
+                    int type = in.read();
+                    if (type < 0) {
+                        break;
+                    }
+                    switch (type) {
+                        case SHOP -> shops.add(in.readUTF());
+                        case DRINK -> drinks.add(in.readUTF());
+                        case ORDER -> {
+                            atMs += readVarLong(in);
+                            String shopId = shops.get((int) readVarLong(in));
+                            String drinkName = drinks.get((int) readVarLong(in));
+                            int prep = in.readUnsignedByte();
+                            int loyalty = in.readUnsignedByte();
+                            visitor.order(atMs, shopId, drinkName, prep, loyalty & 0x7F, (loyalty & 0x80) != 0);
+                        }
+                        case COMPLETED -> {
+                            atMs += readVarLong(in);
+                            String shopId = shops.get((int) readVarLong(in));
+                            visitor.completed(atMs, shopId, readVarLong(in));
+                        }
+                        default -> throw new IOException(file + " has an unknown record type " + type);
+                    }
+                }
+            } catch (EOFException e) {
+                // Torn last record (the recorder was killed mid-write)
+            }
+            return startMs;
+        }
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trace");
+    }
+}
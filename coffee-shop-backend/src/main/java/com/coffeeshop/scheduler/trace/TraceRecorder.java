@@ -0,0 +1,250 @@
+package com.coffeeshop.scheduler.trace;
+
+import com.coffeeshop.scheduler.loop.CommandRing;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Records the live order stream (arrivals and manual completions) to a
+ * {@link TraceFile}, one file per run of the application.
+ *
+ * Request threads only stamp the time and drop an event into a lock-free
+ * ring; a background thread encodes and writes it. If the writer falls a
+ * full ring behind, events are dropped and counted rather than slowing
+ * the request down. An event that cannot be written is skipped and
+ * counted; recording carries on with the next one. Off unless
+ * {@code scheduler.trace.enabled} is set.
+ */
+@Component
+public class TraceRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceRecorder.class);
+
+    private static final Pattern TRACE_NAME = Pattern.compile("[A-Za-z0-9_.-]{1,100}\\.trace");
+
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Value("${scheduler.trace.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${scheduler.trace.dir:traces}")
+    private String traceDir = "traces";
+
+    @Value("${scheduler.trace.capacity:65536}")
+    private int capacity = 65536;
+
+    @Value("${scheduler.trace.flush-ms:1000}")
+    private long flushMs = 1000;
+
+    private CommandRing<Event> ring;
+    private TraceFile.Writer writer;
+    private Path file;
+    private Thread thread;
+    private volatile boolean running;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        long startMs = System.currentTimeMillis();
+        file = Path.of(traceDir, "orders-" + startMs + ".trace");
+        try {
+            writer = new TraceFile.Writer(file, startMs);
+        } catch (IOException e) {
+            log.warn("Order trace disabled: could not create {}", file, e);
+            return;
+        }
+        ring = new CommandRing<>(capacity);
+        running = true;
+        thread = new Thread(this::writeLoop, "trace-writer");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Recording orders to {}", file);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // REQUEST PATH
+    // ════════════════════════════════════════════════════════════════
+
+    public void orderReceived(String shopId, String drinkName, int prepTimeMinutes, int loyaltyTier, boolean regular) {
+        if (running) {
+            offer(new Event(System.currentTimeMillis(), shopId, drinkName, prepTimeMinutes, loyaltyTier, regular, -1));
+        }
+    }
+
+    public void orderCompleted(String shopId, long baristaId) {
+        if (running) {
+            offer(new Event(System.currentTimeMillis(), shopId, null, 0, 0, false, baristaId));
+        }
+    }
+
+    private void offer(Event event) {
+        if (!ring.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // TRACES
+    // ════════════════════════════════════════════════════════════════
+
+    public boolean isRecording() {
+        return running;
+    }
+
+    // Events lost because the writer was a full ring behind
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Events the writer could not write
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    // Trace files in the trace directory, oldest first
+    public List<String> listTraces() {
+        Path dir = Path.of(traceDir);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> TRACE_NAME.matcher(name).matches())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Could not list {}", dir, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * A trace in the trace directory, by file name.
+     *
+     * @throws IllegalArgumentException if the name is not a trace file name or there is no such trace
+     */
+    public Path resolve(String name) {
+        if (name == null || !TRACE_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Trace names look like orders-<start ms>.trace");
+        }
+        Path trace = Path.of(traceDir, name);
+        if (!Files.isRegularFile(trace)) {
+            throw new IllegalArgumentException("No trace named " + name);
+        }
+        return trace;
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // WRITER THREAD
+    // ════════════════════════════════════════════════════════════════
+
+    private void writeLoop() {
+        long nextFlush = System.currentTimeMillis() + flushMs;
+        try {
+            while (running) {
+                int drained = ring.drain(this::write, DRAIN_BATCH);
+                long now = System.currentTimeMillis();
+                if (now >= nextFlush) {
+                    flush();
+                    nextFlush = now + flushMs;
+                }
+                if (drained == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            while (ring.drain(this::write, DRAIN_BATCH) > 0) {
+                // Whatever was offered before the stop
+            }
+        } catch (RuntimeException e) {
+            running = false;
+            log.warn("Order trace {} stopped after an error", file, e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Could not close {}", file, e);
+            }
+            log.info("Order trace {} closed: {} records, {} dropped, {} skipped", file, writer.getRecords(),
+                    dropped.get(), skipped.get());
+        }
+    }
+
+    private void write(Event event) {
+        try {
+            if (event.baristaId < 0) {
+                writer.order(event.atMs, event.shopId, event.drinkName, event.prepTimeMinutes,
+                        event.loyaltyTier, event.regular);
+            } else {
+                writer.completed(event.atMs, event.shopId, event.baristaId);
+            }
+        } catch (IOException | RuntimeException e) {
+            long count = skipped.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                log.warn("Order trace {}: {} events skipped so far, latest after: {}", file, count, e.toString());
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("Could not flush order trace {}: {}", file, e.toString());
+        }
+    }
+
+    // Arrival (baristaId < 0) or manual completion
+    private static final class Event {
+        final long atMs;
+        final String shopId;
+        final String drinkName;
+        final int prepTimeMinutes;
+        final int loyaltyTier;
+        final boolean regular;
+        final long baristaId;
+
+        Event(long atMs, String shopId, String drinkName, int prepTimeMinutes, int loyaltyTier, boolean regular,
+              long baristaId) {
+            this.atMs = atMs;
+            this.shopId = shopId;
+            this.drinkName = drinkName;
+            this.prepTimeMinutes = prepTimeMinutes;
+            this.loyaltyTier = loyaltyTier;
+            this.regular = regular;
+            this.baristaId = baristaId;
+        }
+    }
+}
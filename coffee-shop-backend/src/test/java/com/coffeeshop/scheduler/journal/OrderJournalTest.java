@@ -0,0 +1,153 @@
+package com.coffeeshop.scheduler.journal;
+
+import com.coffeeshop.scheduler.alert.AlertLog;
+import com.coffeeshop.scheduler.model.Barista;
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.stats.CompletedOrderStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderJournalTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000;
+
+    @TempDir
+    Path dir;
+
+    private long now = T0;
+    private long nextId = Order.lastIssuedId() + 1_000_000;  // Ahead of the shared counter
+
+    @Test
+    void recoversSnapshotAndTailUpToATornRecord() throws IOException {
+        ShopScheduler live = shop();
+        assertThat(live.openJournal(journal(4))).isFalse();
+
+        // Four records: the snapshot taken after them holds A in progress, B and C queued
+        Order a = live.addOrder("Latte", 3, 1, false, "ana");
+        Order b = live.addOrder("Mocha", 5, 1, false, "ben");
+        Order c = live.addOrder("Tea", 2, 1, false, "cy");
+        assertThat(a.getAssignedTime()).isEqualTo(Instant.ofEpochMilli(T0));
+
+        // Tail: A completes at T0+3m, the next order starts then, and D arrives
+        now = T0 + 3 * MINUTE;
+        live.autoCompleteCheck();
+        now = T0 + 4 * MINUTE;
+        Order d = live.addOrder("Flat white", 4, 2, true, "dee");
+
+        Barista before = live.getBaristas().get(0);
+        Order started = before.getCurrentOrder();
+        assertThat(started.getId()).isIn(b.getId(), c.getId());
+        assertThat(started.getAssignedTime()).isEqualTo(Instant.ofEpochMilli(T0 + 3 * MINUTE));
+        List<Long> queued = ids(live.getQueue());
+        live.stop();
+
+        tearLastSegment();
+
+        ShopScheduler recovered = shop();
+        assertThat(recovered.openJournal(journal(1000))).isTrue();
+
+        Barista after = recovered.getBaristas().get(0);
+        assertThat(after.getOrdersCompleted()).isEqualTo(1);
+        assertThat(after.getCurrentOrder().getId()).isEqualTo(started.getId());
+        assertThat(after.getCurrentOrder().getAssignedTime()).isEqualTo(Instant.ofEpochMilli(T0 + 3 * MINUTE));
+        assertThat(ids(recovered.getQueue())).isEqualTo(queued).contains(d.getId());
+
+        // Ids from the snapshot and the tail are never handed out again
+        assertThat(Order.lastIssuedId()).isGreaterThanOrEqualTo(d.getId());
+        assertThat(Order.nextId()).isGreaterThan(d.getId());
+        recovered.stop();
+    }
+
+    @Test
+    void oversizedRecordLeavesTheShopUnchanged() {
+        ShopScheduler shop = shop();
+        shop.openJournal(new OrderJournal(dir, Durability.NONE, 4096, 50, 1000));
+        String huge = "x".repeat(5000);
+
+        assertThatThrownBy(() -> shop.addOrder("Latte", 3, 1, false, huge))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> shop.addOrders(List.of(
+                new ShopScheduler.NewOrder("Latte", 3, 1, false, "ana"),
+                new ShopScheduler.NewOrder("Mocha", 3, 1, false, huge))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(shop.isIdle()).isTrue();
+        assertThat(shop.addOrder("Latte", 3, 1, false, "ana")).isNotNull();
+        shop.stop();
+    }
+
+    @Test
+    void failedRollStopsTheShopWithoutApplyingTheOrder() throws IOException {
+        ShopScheduler shop = shop();
+        shop.openJournal(new OrderJournal(dir, Durability.NONE, 4096, 50, 1_000_000));
+        Files.createFile(dir.resolve("segment-00000002.log"));  // The next roll cannot create it
+
+        int added = 0;
+        Throwable failure = null;
+        while (failure == null) {
+            try {
+                shop.addOrder("Latte", 3, 1, false, "ana");
+                added++;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        assertThat(failure).isInstanceOf(UncheckedIOException.class);
+        assertThat(shop.getQueue()).hasSize(added - 1);  // One is with the barista
+        assertThatThrownBy(() -> shop.addOrder("Latte", 3, 1, false, "ana"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("failed");
+        shop.stop();
+    }
+
+    private ShopScheduler shop() {
+        return new ShopScheduler("main", List.of("Ana"),
+                new CompletedOrderStore(100, CompletedOrderStore.OverflowPolicy.DROP, null),
+                new AlertLog(16), null, null, PriorityModel.DEFAULT, () -> now, () -> ++nextId);
+    }
+
+    private OrderJournal journal(long snapshotEvery) {
+        return new OrderJournal(dir, Durability.NONE, 64 * 1024, 50, snapshotEvery);
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+
+    // Append a record whose checksum does not match, as a crash mid-write leaves it
+    private void tearLastSegment() throws IOException {
+        Path last;
+        try (Stream<Path> files = Files.list(dir)) {
+            last = files.filter(file -> file.getFileName().toString().startsWith("segment-"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int length;
+            while ((length = segment.getInt(segment.position())) != 0) {
+                segment.position(segment.position() + 8 + length);
+            }
+            segment.putInt(16).putInt(0x5eed).put(new byte[] {1, 2, 3});
+            segment.force();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.coffeeshop.scheduler.loop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandRingTest {
+
+    @Test
+    void refusesOffersOnceFullAndDrainsOldestFirst() {
+        CommandRing<Integer> ring = new CommandRing<>(8);
+        assertThat(ring.getCapacity()).isEqualTo(8);
+        assertThat(ring.isEmpty()).isTrue();
+
+        for (int i = 0; i < 8; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(8)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ring.drain(drained::add, 3)).isEqualTo(3);
+        assertThat(drained).containsExactly(0, 1, 2);
+
+        // Freed slots take the next lap
+        for (int i = 8; i < 11; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(11)).isFalse();
+
+        assertThat(ring.drain(drained::add, 100)).isEqualTo(8);
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.drain(drained::add, 100)).isZero();
+    }
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new CommandRing<>(3).getCapacity()).isEqualTo(4);
+        assertThat(new CommandRing<>(1000).getCapacity()).isEqualTo(1024);
+        assertThat(new CommandRing<>(1024).getCapacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void deliversEveryItemOnceAndInOrderPerProducer() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 5_000;
+        CommandRing<int[]> ring = new CommandRing<>(64);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(new int[] {producer, i})) {
+                        Thread.yield();  // Full: let the consumer run
+                    }
+                }
+            });
+        }
+
+        int[] next = new int[producers];
+        start.countDown();
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            int drained = ring.drain(item -> {
+                assertThat(item[1]).isEqualTo(next[item[0]]);
+                next[item[0]]++;
+            }, 16);
+            if (drained == 0) {
+                Thread.yield();
+            }
+            received += drained;
+        }
+        pool.shutdown();
+
+        assertThat(received).isEqualTo(producers * perProducer);
+        assertThat(next).containsOnly(IntStream.range(0, producers).map(p -> perProducer).toArray());
+        assertThat(ring.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,87 @@
+package com.coffeeshop.scheduler.queue;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderHeapTest {
+
+    private final PriorityModel model = PriorityModel.DEFAULT;
+    private long now = 1_700_000_000_000L;
+
+    @Test
+    void servesInTheOrderOfAFullSort() {
+        SplittableRandom random = new SplittableRandom(7);
+        OrderHeap heap = new OrderHeap(model, () -> now);
+        List<Order> queued = new ArrayList<>();
+        long nextId = 0;
+
+        for (int step = 0; step < 5_000; step++) {
+            int roll = random.nextInt(10);
+            if (queued.isEmpty() || roll < 5) {
+                // Arrived up to 12 minutes ago, so some are already past the emergency boost
+                Order order = Order.create(++nextId, Instant.ofEpochMilli(now - random.nextInt(12 * 60_000)),
+                        "Latte", 2 + random.nextInt(7), 1 + random.nextInt(5), random.nextBoolean(), null);
+                heap.add(order);
+                queued.add(order);
+            } else if (roll < 7) {
+                Order order = queued.get(random.nextInt(queued.size()));
+                order.setSkipCount(order.getSkipCount() + 1 + random.nextInt(3));
+                heap.update(order.getId());
+            } else if (roll < 8) {
+                Order order = queued.remove(random.nextInt(queued.size()));
+                assertThat(heap.remove(order.getId())).isSameAs(order);
+            } else {
+                Order polled = heap.poll();
+                assertThat(polled).isSameAs(first(queued));
+                queued.remove(polled);
+            }
+            now += random.nextInt(20_000);
+
+            assertThat(heap.size()).isEqualTo(queued.size());
+            assertThat(heap.peek()).isSameAs(first(queued));
+        }
+
+        // Drain at one instant: every poll is the next order of the sort
+        List<Order> expected = new ArrayList<>(queued);
+        expected.sort(byModel());
+        assertThat(heap.toSortedList()).isEqualTo(expected);
+        List<Order> polled = new ArrayList<>();
+        for (Order order; (order = heap.poll()) != null; ) {
+            polled.add(order);
+        }
+        assertThat(polled).isEqualTo(expected);
+    }
+
+    @Test
+    void breaksTiesByLowerId() {
+        OrderHeap heap = new OrderHeap(model, () -> now);
+        Instant arrival = Instant.ofEpochMilli(now);
+        for (long id : new long[] {5, 2, 9, 1}) {
+            heap.add(Order.create(id, arrival, "Latte", 3, 1, false, null));
+        }
+        now += 60_000;
+
+        List<Long> ids = new ArrayList<>();
+        for (Order order; (order = heap.poll()) != null; ) {
+            ids.add(order.getId());
+        }
+        assertThat(ids).containsExactly(1L, 2L, 5L, 9L);
+    }
+
+    private Order first(List<Order> queued) {
+        return queued.stream().min(byModel()).orElse(null);
+    }
+
+    private Comparator<Order> byModel() {
+        return (a, b) -> model.isBefore(a, b, now) ? -1 : model.isBefore(b, a, now) ? 1 : 0;
+    }
+}
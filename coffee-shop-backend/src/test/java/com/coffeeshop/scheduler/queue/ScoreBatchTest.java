@@ -0,0 +1,97 @@
+package com.coffeeshop.scheduler.queue;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScoreBatchTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private final PriorityModel model = PriorityModel.DEFAULT;
+    private long now = 1_700_000_000_000L;
+
+    @AfterAll
+    static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 16_384, 100_000})
+    void matchesPerOrderScoringExactly(int orders) {
+        OrderHeap queue = queue(orders);
+
+        for (ScoreBatch batch : List.of(new ScoreBatch(POOL, Integer.MAX_VALUE), new ScoreBatch(POOL, 0))) {
+            batch.rescore(queue, model, now);
+            int position = 0;
+            for (Order order : queue) {
+                Order expected = new Order(order);
+                refreshPriority(expected, now);
+                assertThat(order.getPriority()).isEqualTo(expected.getPriority());
+                assertThat(batch.getPriority(position++)).isEqualTo(expected.getPriority());
+                assertThat(order.getPriorityExplanation()).isEqualTo(expected.getPriorityExplanation());
+            }
+        }
+    }
+
+    // A queue that has seen adds, skip updates, removals and priority crossings
+    private OrderHeap queue(int orders) {
+        SplittableRandom random = new SplittableRandom(orders);
+        OrderHeap queue = new OrderHeap(model, () -> now);
+        long start = now;
+        for (int i = 1; i <= orders; i++) {
+            Order order = Order.create(i, Instant.ofEpochMilli(start - random.nextInt(12 * 60_000)), "Latte",
+                    2 + random.nextInt(7), 1 + random.nextInt(5), random.nextBoolean(), null);
+            order.setSkipCount(random.nextInt(6));
+            queue.add(order);
+        }
+        now += 90_000;
+        for (int i = 0; i < orders / 3; i++) {
+            long id = 1 + random.nextInt(orders);
+            Order order = queue.get(id);
+            if (order == null) {
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    order.setSkipCount(order.getSkipCount() + 1 + random.nextInt(3));
+                    queue.update(id);
+                }
+                case 1 -> queue.remove(id);
+                default -> {
+                    if (order.getSkipCount() < PriorityModel.FAIRNESS_SKIP_THRESHOLD) {
+                        order.incrementSkipCount();  // Still no boost: the shop does not update the heap
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < orders / 10; i++) {
+            queue.poll();
+        }
+        now += 45_000;
+        queue.advance();
+        return queue;
+    }
+
+    // Same steps as ShopScheduler.refreshPriority
+    private void refreshPriority(Order order, long nowMs) {
+        double waitMinutes = PriorityModel.waitMinutes(order, nowMs);
+        double waitTimeScore = PriorityModel.waitTimeScore(waitMinutes);
+        double complexityScore = PriorityModel.complexityScore(order.getPrepTimeMinutes());
+        double loyaltyScore = PriorityModel.loyaltyScore(order.getLoyaltyTier(), order.isRegularCustomer());
+        double urgencyScore = PriorityModel.urgencyScore(waitMinutes);
+        double fairnessBoost = PriorityModel.fairnessBoost(order.getSkipCount());
+        double priority = model.combine(waitTimeScore, complexityScore, loyaltyScore, urgencyScore, fairnessBoost);
+        order.setScore(model, nowMs, waitTimeScore, complexityScore, loyaltyScore, urgencyScore, fairnessBoost,
+                priority);
+    }
+}
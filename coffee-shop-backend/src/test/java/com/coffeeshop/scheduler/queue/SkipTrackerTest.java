@@ -0,0 +1,125 @@
+package com.coffeeshop.scheduler.queue;
+
+import com.coffeeshop.scheduler.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static com.coffeeshop.scheduler.model.PriorityModel.FAIRNESS_SKIP_THRESHOLD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SkipTrackerTest {
+
+    private final SkipTracker tracker = new SkipTracker(FAIRNESS_SKIP_THRESHOLD);
+
+    // Reference: skip counts kept by the old scan over the whole queue
+    private final List<Order> queue = new ArrayList<>();
+    private final Map<Long, Integer> expected = new HashMap<>();
+
+    private long nextId;
+    private long arrivalMs = 1_700_000_000_000L;
+
+    @Test
+    void matchesTheFullQueueScan() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int step = 0; step < 20_000; step++) {
+            int roll = random.nextInt(20);
+            if (queue.isEmpty() || (roll < 10 && queue.size() < 300)) {
+                arrivalMs += random.nextInt(3);  // Some orders arrive at the same instant
+                add();
+            } else if (roll < 17) {
+                Order assigned = queue.get(random.nextInt(queue.size()));
+                List<Order> boosted = new ArrayList<>();
+                tracker.recordSkip(assigned, boosted);
+                assertThat(ids(boosted)).isEqualTo(ids(scanSkips(assigned)));
+                for (Order order : boosted) {
+                    assertThat(order.getSkipCount()).isEqualTo(expected.get(order.getId()));
+                }
+            } else {
+                // Force-assigned: leaves without skipping anyone
+                Order removed = queue.remove(random.nextInt(queue.size()));
+                tracker.remove(removed);
+                assertThat(removed.getSkipCount()).isEqualTo(expected.get(removed.getId()));
+            }
+            assertCountsMatch();
+        }
+    }
+
+    @Test
+    void reportsAnOrderOnceItPassesTheThresholdAndOnEverySkipAfter() {
+        Order first = add();
+        add();
+        List<Order> later = new ArrayList<>();
+        for (int i = 0; i < FAIRNESS_SKIP_THRESHOLD + 2; i++) {
+            arrivalMs++;
+            later.add(add());
+        }
+
+        List<Order> boosted = new ArrayList<>();
+        for (int i = 0; i < FAIRNESS_SKIP_THRESHOLD; i++) {
+            tracker.recordSkip(later.get(i), boosted);
+        }
+        assertThat(boosted).isEmpty();
+        assertThat(tracker.boostedCount()).isZero();
+
+        // Both orders that arrived together pass the threshold on the same skip
+        tracker.recordSkip(later.get(FAIRNESS_SKIP_THRESHOLD), boosted);
+        assertThat(ids(boosted)).containsExactly(first.getId(), first.getId() + 1);
+        assertThat(boosted).allMatch(order -> order.getSkipCount() == FAIRNESS_SKIP_THRESHOLD + 1);
+        assertThat(tracker.boostedCount()).isEqualTo(2);
+
+        boosted.clear();
+        tracker.recordSkip(later.get(FAIRNESS_SKIP_THRESHOLD + 1), boosted);
+        assertThat(ids(boosted)).containsExactly(first.getId(), first.getId() + 1);
+        assertThat(boosted).allMatch(order -> order.getSkipCount() == FAIRNESS_SKIP_THRESHOLD + 2);
+    }
+
+    private Order add() {
+        Order order = Order.create(++nextId, Instant.ofEpochMilli(arrivalMs), "Latte", 3, 1, false, null);
+        queue.add(order);
+        expected.put(order.getId(), 0);
+        tracker.add(order);
+        return order;
+    }
+
+    // Same rule as the scan the tracker replaced; returns the orders whose boost changed
+    private List<Order> scanSkips(Order assigned) {
+        queue.remove(assigned);
+        List<Order> boosted = new ArrayList<>();
+        for (Order order : queue) {
+            if (order.getArrivalTime().isBefore(assigned.getArrivalTime())) {
+                int skips = expected.merge(order.getId(), 1, Integer::sum);
+                if (skips > FAIRNESS_SKIP_THRESHOLD) {
+                    boosted.add(order);
+                }
+            }
+        }
+        return boosted;
+    }
+
+    private void assertCountsMatch() {
+        SkipTracker.Counts counts = tracker.counts();
+        int past = 0;
+        for (Order order : queue) {
+            int skips = expected.get(order.getId());
+            assertThat(counts.skipCount(tracker.rank(order))).isEqualTo(skips);
+            tracker.materialize(order);
+            assertThat(order.getSkipCount()).isEqualTo(skips);
+            if (skips > FAIRNESS_SKIP_THRESHOLD) {
+                past++;
+            }
+        }
+        assertThat(tracker.size()).isEqualTo(queue.size());
+        assertThat(tracker.boostedCount()).isEqualTo(past);
+        assertThat(tracker.oldest()).isEqualTo(queue.isEmpty() ? null : queue.get(0));
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.coffeeshop.scheduler.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    // Not aligned to any slot boundary
+    private static final long START = 1_700_000_000_123L;
+
+    private final TimerWheel wheel = new TimerWheel(START);
+    private final List<Long> firedAt = new ArrayList<>();
+
+    @Test
+    void firesOnEveryLevelExactlyAtTheDeadline() {
+        // From the current slot up to the sixth level, on and around slot boundaries
+        long[] offsets = {1, 63, 64, 65, 4_095, 4_096, 4_097, 262_143, 262_145,
+                (1L << 24) + 7, (1L << 30) + 3, (1L << 36) + 11, (1L << 40) - 1};
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            schedule(START + offsets[i]);
+        }
+        assertThat(wheel.size()).isEqualTo(offsets.length);
+
+        List<Long> expected = new ArrayList<>();
+        for (long offset : offsets) {
+            long deadline = START + offset;
+            assertThat(wheel.advance(deadline - 1)).isZero();
+            assertThat(wheel.nextDeadline()).isLessThanOrEqualTo(deadline);
+            assertThat(wheel.advance(deadline)).isEqualTo(1);
+            expected.add(deadline);
+            assertThat(firedAt).isEqualTo(expected);
+        }
+        assertThat(wheel.isEmpty()).isTrue();
+        assertThat(wheel.nextDeadline()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void firesInDeadlineOrderOnOneLongAdvance() {
+        long[] deadlines = {START + (1L << 30), START + 70, START + 5_000_000, START + 1, START + 300_000};
+        for (long deadline : deadlines) {
+            schedule(deadline);
+        }
+
+        assertThat(wheel.advance(START + (1L << 31))).isEqualTo(deadlines.length);
+        assertThat(firedAt).containsExactly(START + 1, START + 70, START + 300_000, START + 5_000_000,
+                START + (1L << 30));
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        TimerWheel.Timeout near = schedule(START + 10);
+        TimerWheel.Timeout far = schedule(START + 1_000_000);
+        TimerWheel.Timeout kept = schedule(START + 1_000_001);
+
+        // One cancelled in its slot, one after cascading down a level
+        assertThat(near.cancel()).isTrue();
+        wheel.advance(START + 999_000);
+        assertThat(far.cancel()).isTrue();
+        assertThat(far.cancel()).isFalse();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(wheel.advance(START + 2_000_000)).isEqualTo(1);
+        assertThat(firedAt).containsExactly(START + 1_000_001);
+        assertThat(near.isCancelled()).isTrue();
+        assertThat(kept.isExpired()).isTrue();
+        assertThat(kept.cancel()).isFalse();
+    }
+
+    @Test
+    void pastDeadlinesAndTimersScheduledByTasksFire() {
+        wheel.advance(START + 100);
+        schedule(START + 50);
+        wheel.schedule(START + 200, () -> schedule(START + 200));
+
+        assertThat(wheel.advance(START + 100)).isEqualTo(1);
+        assertThat(wheel.advance(START + 200)).isEqualTo(2);
+        assertThat(firedAt).containsExactly(START + 100, START + 200);
+    }
+
+    private TimerWheel.Timeout schedule(long deadline) {
+        return wheel.schedule(deadline, () -> firedAt.add(wheel.getCurrent()));
+    }
+}
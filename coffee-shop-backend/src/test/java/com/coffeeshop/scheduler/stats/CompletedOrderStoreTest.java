@@ -0,0 +1,59 @@
+package com.coffeeshop.scheduler.stats;
+
+import com.coffeeshop.scheduler.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompletedOrderStoreTest {
+
+    @Test
+    void forgetsUsernamesOnceTheirRowsAreOverwritten() throws IOException {
+        CompletedOrderStore store = new CompletedOrderStore(100, CompletedOrderStore.OverflowPolicy.DROP, null);
+        for (int i = 1; i <= 10_000; i++) {
+            store.add(completed(i, i % 3 == 0 ? null : "user-" + i));
+        }
+        assertThat(store.size()).isEqualTo(100);
+        assertThat(store.internedCount()).isLessThanOrEqualTo(100);
+
+        // A snapshot of the ring carries exactly the names still in it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+        CompletedOrderStore copy = new CompletedOrderStore(100, CompletedOrderStore.OverflowPolicy.DROP, null);
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(copy.internedCount()).isEqualTo(store.internedCount());
+
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        copy.writeTo(new DataOutputStream(again));
+        assertThat(again.toByteArray()).isEqualTo(bytes.toByteArray());
+    }
+
+    @Test
+    void keepsARepeatedUsernameWhileAnyRowUsesIt() {
+        CompletedOrderStore store = new CompletedOrderStore(4, CompletedOrderStore.OverflowPolicy.DROP, null);
+        store.add(completed(1, "ana"));
+        store.add(completed(2, "ben"));
+        store.add(completed(3, "ana"));
+        store.add(completed(4, "cy"));
+        store.add(completed(5, "dee"));  // Overwrites ana's first row; her second remains
+        assertThat(store.internedCount()).isEqualTo(4);
+
+        store.add(completed(6, "dee"));  // Overwrites ben's only row
+        store.add(completed(7, "dee"));  // Overwrites ana's last row
+        assertThat(store.internedCount()).isEqualTo(2);
+    }
+
+    private static Order completed(long id, String username) {
+        Order order = Order.create(id, Instant.ofEpochMilli(1_000 * id), "Latte", 3, 1, false, username);
+        order.setAssignedBaristaId(1L);
+        order.setAssignedTime(Instant.ofEpochMilli(1_000 * id + 500));
+        return order;
+    }
+}
@@ -0,0 +1,96 @@
+package com.coffeeshop.scheduler.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsOrdersAndCompletions() throws IOException {
+        Path file = dir.resolve("orders-1.trace");
+        try (TraceFile.Writer writer = new TraceFile.Writer(file, 1000)) {
+            writer.order(1500, "main", "Latte", 4, 3, true);
+            writer.completed(1700, "main", 2);
+            writer.order(1600, "north", "Mocha", 6, 1, false);  // Steps back: clamped to the previous record
+        }
+
+        List<String> records = new ArrayList<>();
+        long startMs = TraceFile.read(file, visitor(records));
+
+        assertThat(startMs).isEqualTo(1000);
+        assertThat(records).containsExactly(
+                "order 1500 main Latte 4 3 true",
+                "completed 1700 main 2",
+                "order 1700 north Mocha 6 1 false");
+    }
+
+    @Test
+    void cutsNamesTooLongForTheFormat() throws IOException {
+        Path file = dir.resolve("orders-2.trace");
+        String huge = "x".repeat(70_000);  // Over writeUTF's 64 KB
+        try (TraceFile.Writer writer = new TraceFile.Writer(file, 0)) {
+            writer.order(1, "main", huge, 2, 1, false);
+            writer.order(2, "main", "Latte", 4, 1, false);
+        }
+
+        List<String> names = drinkNames(file);
+
+        assertThat(names).containsExactly("x".repeat(TraceFile.MAX_NAME_LENGTH), "Latte");
+    }
+
+    @Test
+    void boundsTheDrinkDictionary() throws IOException {
+        Path file = dir.resolve("orders-3.trace");
+        int distinct = TraceFile.MAX_DRINKS + 50;
+        try (TraceFile.Writer writer = new TraceFile.Writer(file, 0)) {
+            for (int i = 0; i < distinct; i++) {
+                writer.order(i, "main", "drink-" + i, 2, 1, false);
+            }
+        }
+
+        List<String> names = drinkNames(file);
+
+        assertThat(names).hasSize(distinct);
+        assertThat(names.get(TraceFile.MAX_DRINKS - 2)).isEqualTo("drink-" + (TraceFile.MAX_DRINKS - 2));
+        assertThat(names.subList(TraceFile.MAX_DRINKS - 1, distinct)).containsOnly(TraceFile.OTHER_DRINK);
+    }
+
+    private static List<String> drinkNames(Path file) throws IOException {
+        List<String> names = new ArrayList<>();
+        TraceFile.read(file, new TraceFile.Visitor() {
+            @Override
+            public void order(long atMs, String shopId, String drinkName, int prep, int loyalty, boolean regular) {
+                names.add(drinkName);
+            }
+
+            @Override
+            public void completed(long atMs, String shopId, long baristaId) {
+            }
+        });
+        return names;
+    }
+
+    private static TraceFile.Visitor visitor(List<String> records) {
+        return new TraceFile.Visitor() {
+            @Override
+            public void order(long atMs, String shopId, String drinkName, int prep, int loyalty, boolean regular) {
+                records.add("order " + atMs + " " + shopId + " " + drinkName + " " + prep + " " + loyalty + " " + regular);
+            }
+
+            @Override
+            public void completed(long atMs, String shopId, long baristaId) {
+                records.add("completed " + atMs + " " + shopId + " " + baristaId);
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.coffeeshop.scheduler.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    private static final int MASK = 15;  // Initial capacity 16, unchanged up to 8 keys
+
+    @Test
+    void removeFromTheMiddleOfAClusterKeepsLaterKeysReachable() {
+        // Four keys with the same home slot, then one homed on the slot after it
+        List<Long> sameHome = keysWithHome(3, 4);
+        long neighbour = keysWithHome(4, 1).get(0);
+
+        LongIntHashMap map = new LongIntHashMap(-1);
+        for (int i = 0; i < sameHome.size(); i++) {
+            map.put(sameHome.get(i), i);
+        }
+        map.put(neighbour, 100);
+
+        assertThat(map.remove(sameHome.get(1))).isEqualTo(1);
+        assertThat(map.containsKey(sameHome.get(1))).isFalse();
+        assertThat(map.get(sameHome.get(1))).isEqualTo(-1);
+        assertThat(map.get(sameHome.get(0))).isEqualTo(0);
+        assertThat(map.get(sameHome.get(2))).isEqualTo(2);
+        assertThat(map.get(sameHome.get(3))).isEqualTo(3);
+        assertThat(map.get(neighbour)).isEqualTo(100);
+        assertThat(map.size()).isEqualTo(4);
+
+        // The cluster's head, then a key that probed past it
+        assertThat(map.remove(sameHome.get(0))).isEqualTo(0);
+        assertThat(map.remove(neighbour)).isEqualTo(100);
+        assertThat(map.get(sameHome.get(2))).isEqualTo(2);
+        assertThat(map.get(sameHome.get(3))).isEqualTo(3);
+        assertThat(map.remove(neighbour)).isEqualTo(-1);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void removeKeepsAClusterThatWrapsAroundTheTable() {
+        List<Long> sameHome = keysWithHome(MASK, 4);
+        long wrapped = keysWithHome(0, 1).get(0);
+
+        LongIntHashMap map = new LongIntHashMap(-1);
+        for (int i = 0; i < sameHome.size(); i++) {
+            map.put(sameHome.get(i), i);
+        }
+        map.put(wrapped, 100);
+
+        assertThat(map.remove(sameHome.get(0))).isEqualTo(0);
+        for (int i = 1; i < sameHome.size(); i++) {
+            assertThat(map.get(sameHome.get(i))).isEqualTo(i);
+        }
+        assertThat(map.get(wrapped)).isEqualTo(100);
+    }
+
+    @Test
+    void matchesAHashMapUnderRandomPutsAndRemoves() {
+        SplittableRandom random = new SplittableRandom(11);
+        LongIntHashMap map = new LongIntHashMap(-1);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int step = 0; step < 200_000; step++) {
+            long key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, -1));
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(1_000_000);
+                map.put(key, value);
+                expected.put(key, value);
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+        for (long key = 0; key < 2_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, -1));
+        }
+
+        map.clear();
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.containsKey(expected.keySet().iterator().next())).isFalse();
+    }
+
+    private static List<Long> keysWithHome(int home, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            if ((LongHashMap.mix(key) & MASK) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,106 @@
+#!/usr/bin/env python3
+"""Compare two JMH JSON result files (see run.sh) and flag regressions.
+
+    ./compare.py results/before.json results/after.json [--threshold 10]
+
+For every benchmark and parameter set present in both runs it prints the
+score, the change, and the allocation per operation from the GC profiler.
+A benchmark regresses when it got slower (or, in throughput mode, did
+fewer operations) by more than the threshold percentage and by more than
+the two error bars combined, or when it allocates more than the threshold
+percentage (and at least 16 bytes) more per operation. Exits 1 if
+anything regressed, so it can gate a CI job.
+"""
+
+import argparse
+import json
+import sys
+
+ALLOC_NORM = "gc.alloc.rate.norm"
+MIN_ALLOC_DELTA = 16  # Bytes per op; below this, allocation noise is ignored
+
+
+def load(path):
+    with open(path) as f:
+        runs = json.load(f)
+    results = {}
+    for run in runs:
+        params = run.get("params") or {}
+        key = (run["benchmark"], run["mode"], tuple(sorted(params.items())))
+        alloc = None
+        for name, metric in (run.get("secondaryMetrics") or {}).items():
+            # Older JMH versions prefix profiler metrics with a middle dot
+            if name.lstrip("·") == ALLOC_NORM:
+                alloc = metric["score"]
+        primary = run["primaryMetric"]
+        results[key] = {
+            "score": primary["score"],
+            "error": primary.get("scoreError") or 0.0,
+            "unit": primary["scoreUnit"],
+            "alloc": alloc,
+        }
+    return results
+
+
+def error_of(value):
+    # JMH writes "NaN" when there were too few iterations for an error bar
+    value = float(value)
+    return 0.0 if value != value else value
+
+
+def label(key):
+    benchmark, mode, params = key
+    name = ".".join(benchmark.split(".")[-2:])  # Class.method
+    if params:
+        name += " [" + ", ".join("%s=%s" % p for p in params) + "]"
+    return "%s (%s)" % (name, mode)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Compare two JMH JSON result files.")
+    parser.add_argument("baseline")
+    parser.add_argument("current")
+    parser.add_argument("--threshold", type=float, default=10.0,
+                        help="percentage change that counts as a regression (default 10)")
+    args = parser.parse_args()
+
+    before = load(args.baseline)
+    after = load(args.current)
+    regressions = 0
+
+    for key in sorted(before.keys() & after.keys()):
+        b, a = before[key], after[key]
+        higher_is_better = key[1] == "thrpt"
+        change = (a["score"] - b["score"]) / b["score"] * 100 if b["score"] else 0.0
+        worse = -change if higher_is_better else change
+        beyond_noise = abs(a["score"] - b["score"]) > error_of(a["error"]) + error_of(b["error"])
+
+        flags = []
+        if worse > args.threshold and beyond_noise:
+            flags.append("SLOWER")
+        if b["alloc"] is not None and a["alloc"] is not None:
+            alloc_delta = a["alloc"] - b["alloc"]
+            alloc_change = alloc_delta / b["alloc"] * 100 if b["alloc"] else float("inf")
+            if alloc_delta >= MIN_ALLOC_DELTA and alloc_change > args.threshold:
+                flags.append("ALLOCATES MORE")
+            alloc = "%10.0f -> %10.0f B/op" % (b["alloc"], a["alloc"])
+        else:
+            alloc = ""
+        if flags:
+            regressions += 1
+
+        print("%-70s %12.3f -> %12.3f %-8s %+7.1f%%  %s  %s" % (
+            label(key), b["score"], a["score"], a["unit"], change, alloc, " ".join(flags)))
+
+    for key in sorted(before.keys() - after.keys()):
+        print("%-70s only in %s" % (label(key), args.baseline))
+    for key in sorted(after.keys() - before.keys()):
+        print("%-70s only in %s" % (label(key), args.current))
+
+    print()
+    print("%d regression(s) beyond %.0f%%" % (regressions, args.threshold))
+    return 1 if regressions else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,21 @@
+#!/bin/sh
+# Open-model HTTP load against a running backend, one step per order rate.
+#
+#   ./loadgen.sh --rate=50,100,200,400 --duration=60
+#   ./loadgen.sh --url=http://localhost:8081 --shop=downtown --rate=100 --read-rate=50
+#
+# Options (defaults): --url (http://localhost:8080), --shop (default shop),
+# --rate orders/s (20), --complete-rate (same as --rate), --read-rate (20),
+# --duration s (60), --warmup s (10), --timeout s (10), --max-in-flight (10000),
+# --slo-ms order p99 (100), --seed (42).
+#
+# The report also goes to results/loadgen-<timestamp>.txt (or $RESULTS).
+set -e
+cd "$(dirname "$0")"
+
+[ -f target/benchmarks.jar ] || mvn -q package
+
+mkdir -p results
+RESULTS=${RESULTS:-results/loadgen-$(date +%Y%m%d-%H%M%S).txt}
+java -cp target/benchmarks.jar com.coffeeshop.scheduler.loadgen.LoadGenerator "$@" | tee "$RESULTS"
+echo "Results: $RESULTS"
@@ -0,0 +1,17 @@
+#!/bin/sh
+# Run the benchmarks with the GC profiler and keep the results as JSON.
+#
+#   ./run.sh                          # everything
+#   ./run.sh SchedulerHotPath -p queueDepth=1000,100000
+#
+# Results go to results/<timestamp>.json (or $RESULTS); compare two runs with
+#   ./compare.py results/before.json results/after.json
+set -e
+cd "$(dirname "$0")"
+
+[ -f target/benchmarks.jar ] || mvn -q package
+
+mkdir -p results
+RESULTS=${RESULTS:-results/$(date +%Y%m%d-%H%M%S).json}
+java -jar target/benchmarks.jar -prof gc -rf json -rff "$RESULTS" "$@"
+echo "Results: $RESULTS"
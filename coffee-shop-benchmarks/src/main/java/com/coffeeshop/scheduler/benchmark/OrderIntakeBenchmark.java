@@ -0,0 +1,59 @@
+package com.coffeeshop.scheduler.benchmark;
+
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking a new order (queue it, score it, run an assignment pass)
+ * at a given queue depth.
+ *
+ * Every order makes the queue one longer, so each iteration starts from a
+ * fresh shop and adds one batch of orders; the depth drifts by at most
+ * BATCH over an iteration. Reported time is per order.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderIntakeBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int queueDepth;
+
+    @Param({"3", "10", "50"})
+    public int baristas;
+
+    private ShopRegistry registry;
+    private ShopScheduler shop;
+    private SplittableRandom random;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        registry = new ShopRegistry(1);
+        registry.init();
+        random = new SplittableRandom(42);
+        shop = SchedulerHotPathBenchmark.openShop(registry, baristas, queueDepth, random);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addOrder(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(SchedulerHotPathBenchmark.addRandomOrder(shop, random));
+        }
+    }
+}
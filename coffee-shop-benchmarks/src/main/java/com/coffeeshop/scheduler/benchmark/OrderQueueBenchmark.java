@@ -0,0 +1,89 @@
+package com.coffeeshop.scheduler.benchmark;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.queue.OrderHeap;
+import com.coffeeshop.scheduler.service.SchedulerService;
+import com.coffeeshop.scheduler.simulation.DrinkMix;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handing the next order to a freed barista at different queue depths.
+ *
+ * heapAssign isolates the queue (pop-max + insert to keep depth steady);
+ * serviceAssign goes through SchedulerService.completeOrder, which runs a
+ * full assignment pass. Both should stay flat as queueDepth grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderQueueBenchmark {
+    
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int queueDepth;
+    
+    private OrderHeap heap;
+    private SchedulerService service;
+    private SplittableRandom random;
+    private long nextBarista;
+    private int baristaCount;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new SplittableRandom(42);
+        
+        heap = new OrderHeap();
+        for (int i = 0; i < queueDepth; i++) {
+            heap.add(randomOrder());
+        }
+        
+        service = new SchedulerService();
+        service.init();
+        // The team is fixed, so its size is read once, before the queue fills
+        baristaCount = service.getBaristas().size();
+        // The first orders go straight to the three baristas
+        for (int i = 0; i < queueDepth + baristaCount; i++) {
+            addRandomOrder();
+        }
+        nextBarista = 1;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+    
+    @Benchmark
+    public Order heapAssign() {
+        Order next = heap.poll();
+        heap.add(randomOrder());
+        return next;
+    }
+    
+    @Benchmark
+    public Order serviceAssign() {
+        Order completed = service.completeOrder(nextBarista);
+        nextBarista = nextBarista % baristaCount + 1;
+        addRandomOrder();
+        return completed;
+    }
+    
+    private Order randomOrder() {
+        int drink = DrinkMix.pick(random);
+        Order order = Order.create(Order.nextId(), Instant.EPOCH, DrinkMix.name(drink), DrinkMix.prepTimeMinutes(drink),
+                1 + random.nextInt(5), random.nextInt(10) < 4, null);
+        order.setPriority(random.nextDouble() * 100);
+        return order;
+    }
+    
+    private void addRandomOrder() {
+        int drink = DrinkMix.pick(random);
+        service.addOrder(DrinkMix.name(drink), DrinkMix.prepTimeMinutes(drink), 1 + random.nextInt(5), random.nextInt(10) < 4, "bench");
+    }
+}
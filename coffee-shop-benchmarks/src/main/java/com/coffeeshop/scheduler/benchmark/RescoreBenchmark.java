@@ -0,0 +1,94 @@
+package com.coffeeshop.scheduler.benchmark;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.model.PriorityModel;
+import com.coffeeshop.scheduler.queue.OrderHeap;
+import com.coffeeshop.scheduler.queue.ScoreBatch;
+import com.coffeeshop.scheduler.simulation.DrinkMix;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rescoring a whole queue, as recalculatePriorities does.
+ *
+ * perOrder is the object-at-a-time loop (Instant arithmetic and scoring
+ * per Order); batchSequential and batchParallel queue the same orders in
+ * an OrderHeap and let a ScoreBatch score its columns slice by slice and
+ * write the scores back, on one thread or split across the common
+ * fork/join pool. All three produce identical scores; the time is per
+ * whole queue. batchParallel only wins with spare cores (see ScoreBatch).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RescoreBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int queueDepth;
+
+    private final PriorityModel model = PriorityModel.DEFAULT;
+    private Order[] orders;
+    private OrderHeap queue;
+    private long now;
+    private ScoreBatch sequential;
+    private ScoreBatch parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        now = System.currentTimeMillis();
+        orders = new Order[queueDepth];
+        queue = new OrderHeap(model, () -> now);
+        for (int i = 0; i < queueDepth; i++) {
+            // Spread over the last 12 minutes so every urgency band is hit
+            int drink = DrinkMix.pick(random);
+            Order order = Order.create(i + 1, Instant.ofEpochMilli(now - random.nextInt(12 * 60_000)), DrinkMix.name(drink),
+                    DrinkMix.prepTimeMinutes(drink), 1 + random.nextInt(5), random.nextInt(10) < 4, null);
+            order.setSkipCount(random.nextInt(6));
+            orders[i] = order;
+            queue.add(order);
+        }
+        sequential = new ScoreBatch(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        parallel = new ScoreBatch(ForkJoinPool.commonPool(), 0);
+    }
+
+    @Benchmark
+    public double perOrder() {
+        double sum = 0;
+        for (Order order : orders) {
+            double waitMinutes = PriorityModel.waitMinutes(order, now);
+            double waitTimeScore = PriorityModel.waitTimeScore(waitMinutes);
+            double complexityScore = PriorityModel.complexityScore(order.getPrepTimeMinutes());
+            double loyaltyScore = PriorityModel.loyaltyScore(order.getLoyaltyTier(), order.isRegularCustomer());
+            double urgencyScore = PriorityModel.urgencyScore(waitMinutes);
+            double fairnessBoost = PriorityModel.fairnessBoost(order.getSkipCount());
+            double priority = model.combine(waitTimeScore, complexityScore, loyaltyScore, urgencyScore, fairnessBoost);
+            order.setScore(model, now, waitTimeScore, complexityScore, loyaltyScore, urgencyScore, fairnessBoost,
+                    priority);
+            sum += priority;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double batchSequential() {
+        return rescore(sequential);
+    }
+
+    @Benchmark
+    public double batchParallel() {
+        return rescore(parallel);
+    }
+
+    private double rescore(ScoreBatch batch) {
+        batch.rescore(queue, model, now);
+        return batch.getPriority(0);
+    }
+}
@@ -0,0 +1,129 @@
+package com.coffeeshop.scheduler.benchmark;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.simulation.DrinkMix;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scheduler operations the API and the periodic jobs call, on a shop
+ * with every barista busy and queueDepth orders waiting.
+ *
+ * Each call goes through the shop's worker loop (writes) or its published
+ * view (reads), exactly as a request would. None of them changes the
+ * queue depth: baristas are busy for minutes, far longer than a trial, so
+ * tryAssignOrders and autoCompleteCheck find nothing to hand out or
+ * finish, and measure the cost of checking.
+ *
+ * getQueue, getStats and getBaristaStats run back to back with no write
+ * in between, so they only count the per-call work (copying, ranking,
+ * aggregating). writeThenRead is what a dashboard sees after an order
+ * changes hands: a barista finishes, the next order is assigned, a new
+ * one refills the queue, then the stats are read. It includes whatever
+ * the write costs to make the view current again.
+ *
+ * Adding orders grows the queue and is measured separately, in
+ * {@link OrderIntakeBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchedulerHotPathBenchmark {
+
+    // A tenth of the orders belong to the user whose queue and stats are read
+    static final String USER = "regular-7";
+    private static final int USERS = 10;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int queueDepth;
+
+    @Param({"3", "10", "50"})
+    public int baristas;
+
+    private ShopRegistry registry;
+    private ShopScheduler shop;
+    private SplittableRandom random;
+    private long nextBarista = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new ShopRegistry(1);
+        registry.init();
+        random = new SplittableRandom(42);
+        shop = openShop(registry, baristas, queueDepth, random);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public void tryAssignOrders() {
+        shop.tryAssignOrders();
+    }
+
+    @Benchmark
+    public void recalculatePriorities() {
+        shop.recalculatePriorities();
+    }
+
+    @Benchmark
+    public void autoCompleteCheck() {
+        shop.autoCompleteCheck();
+    }
+
+    @Benchmark
+    public List<Order> getQueue() {
+        return shop.getQueue(USER);
+    }
+
+    @Benchmark
+    public Map<String, Object> getStats() {
+        return shop.getStats(USER);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getBaristaStats() {
+        return shop.getBaristaStats();
+    }
+
+    @Benchmark
+    public void writeThenRead(Blackhole blackhole) {
+        blackhole.consume(shop.completeOrder(nextBarista));
+        nextBarista = nextBarista % baristas + 1;
+        blackhole.consume(addRandomOrder(shop, random));
+        blackhole.consume(shop.getStats(USER));
+        blackhole.consume(shop.getBaristaStats());
+    }
+
+    // A shop with every barista busy and queueDepth orders behind them
+    static ShopScheduler openShop(ShopRegistry registry, int baristas, int queueDepth, SplittableRandom random) {
+        List<String> names = new ArrayList<>(baristas);
+        for (int b = 1; b <= baristas; b++) {
+            names.add("Barista " + b);
+        }
+        ShopScheduler shop = registry.create("bench", names);
+        for (int i = 0; i < queueDepth + baristas; i++) {
+            addRandomOrder(shop, random);
+        }
+        return shop;
+    }
+
+    static Order addRandomOrder(ShopScheduler shop, SplittableRandom random) {
+        int drink = DrinkMix.pick(random);
+        return shop.addOrder(DrinkMix.name(drink), DrinkMix.prepTimeMinutes(drink), 1 + random.nextInt(5), random.nextInt(10) < 4,
+                "regular-" + random.nextInt(USERS));
+    }
+}
@@ -0,0 +1,86 @@
+package com.coffeeshop.scheduler.benchmark;
+
+import com.coffeeshop.scheduler.model.Order;
+import com.coffeeshop.scheduler.service.ShopRegistry;
+import com.coffeeshop.scheduler.service.ShopScheduler;
+import com.coffeeshop.scheduler.simulation.DrinkMix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of independent shops as shops, workers and client threads grow
+ * together. Every benchmark thread drives its own shop (orders in, orders
+ * completed), and each shop is pinned to its own worker, so the total
+ * should scale close to linearly up to the number of cores.
+ *
+ * Run with as many threads as shops, e.g.:
+ *   for n in 1 2 4 8; do java -jar target/benchmarks.jar ShopScaling -p shops=$n -t $n; done
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShopScalingBenchmark {
+
+    private static final List<String> BARISTAS = List.of("Alice", "Bob", "Charlie");
+
+    @Param({"1", "2", "4", "8"})
+    public int shops;
+
+    @Param({"1000"})
+    public int queueDepth;
+
+    private ShopRegistry registry;
+    private final AtomicInteger nextShop = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new ShopRegistry(shops);
+        registry.init();  // Also opens the default shop, which stays idle
+        for (int i = 0; i < shops; i++) {
+            ShopScheduler shop = registry.create("shop-" + i, BARISTAS);
+            SplittableRandom random = new SplittableRandom(i);
+            for (int j = 0; j < queueDepth + BARISTAS.size(); j++) {
+                addRandomOrder(shop, random);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        ShopScheduler shop;
+        SplittableRandom random;
+        long nextBarista = 1;
+
+        @Setup(Level.Trial)
+        public void setUp(ShopScalingBenchmark benchmark) {
+            int index = benchmark.nextShop.getAndIncrement() % benchmark.shops;
+            shop = benchmark.registry.get("shop-" + index);
+            random = new SplittableRandom(1000 + index);
+        }
+    }
+
+    @Benchmark
+    public Order completeAndReorder(Client client) {
+        Order completed = client.shop.completeOrder(client.nextBarista);
+        client.nextBarista = client.nextBarista % BARISTAS.size() + 1;
+        addRandomOrder(client.shop, client.random);
+        return completed;
+    }
+
+    private static void addRandomOrder(ShopScheduler shop, SplittableRandom random) {
+        int drink = DrinkMix.pick(random);
+        shop.addOrder(DrinkMix.name(drink), DrinkMix.prepTimeMinutes(drink), 1 + random.nextInt(5), random.nextInt(10) < 4, "bench");
+    }
+}
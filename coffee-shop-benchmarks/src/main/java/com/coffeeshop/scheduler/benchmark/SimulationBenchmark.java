@@ -0,0 +1,66 @@
+package com.coffeeshop.scheduler.benchmark;
+
+import com.coffeeshop.scheduler.service.SchedulerService;
+import com.coffeeshop.scheduler.simulation.SimulationEngine;
+import com.coffeeshop.scheduler.simulation.SimulationResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The test simulation: runTestSimulation as POST /api/simulation/run
+ * calls it (ten 180-minute cases, three baristas, in parallel), and one
+ * case on its own with more baristas and a proportionally busier door, so
+ * the queue stays as long as in the three-barista shop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    private static final double ARRIVALS_PER_BARISTA_MINUTE = 1.4 / 3;
+
+    private SchedulerService service;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SchedulerService();
+        service.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    // Only singleCase takes the barista parameter
+    @State(Scope.Benchmark)
+    public static class Team {
+        @Param({"3", "10", "50"})
+        public int baristas;
+
+        SimulationEngine engine;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            engine = new SimulationEngine(baristas, ARRIVALS_PER_BARISTA_MINUTE * baristas, 180);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> runTestSimulation() {
+        return service.runTestSimulation(10, 180, seed++);
+    }
+
+    @Benchmark
+    public SimulationResult singleCase(Team team) {
+        return team.engine.run(new SplittableRandom(seed++));
+    }
+}
@@ -0,0 +1,77 @@
+package com.coffeeshop.scheduler.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and outcomes of one endpoint over one load step. Response
+ * callbacks record concurrently.
+ *
+ * Latency runs from when the request was due (its place in the arrival
+ * schedule), not from when it was sent, so time spent waiting behind a
+ * slow server is counted instead of hidden.
+ */
+class EndpointStats {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String name;
+    private final Histogram latencyMicros = new ConcurrentHistogram(MAX_MICROS, 3);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void onSent() {
+        sent.incrementAndGet();
+    }
+
+    void onSuccess(long latencyNanos) {
+        latencyMicros.recordValue(Math.min(MAX_MICROS, Math.max(0, latencyNanos / 1000)));
+    }
+
+    // Error status, timeout or connection failure
+    void onError() {
+        errors.incrementAndGet();
+    }
+
+    // Not sent: too many requests already outstanding
+    void onDropped() {
+        dropped.incrementAndGet();
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getSucceeded() {
+        return latencyMicros.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    // Latency at a percentile (0-100), in milliseconds
+    double percentileMs(double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMs() {
+        return latencyMicros.getMaxValue() / 1000.0;
+    }
+}
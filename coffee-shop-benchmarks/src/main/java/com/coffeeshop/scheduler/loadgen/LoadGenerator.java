@@ -0,0 +1,297 @@
+package com.coffeeshop.scheduler.loadgen;
+
+import com.coffeeshop.scheduler.simulation.DrinkMix;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load against a running backend: new orders, manual
+ * completions and dashboard reads, each a Poisson stream at its own rate.
+ *
+ *   java -cp target/benchmarks.jar com.coffeeshop.scheduler.loadgen.LoadGenerator \
+ *       --rate=50,100,200,400 --duration=60
+ *
+ * Every request is due at a time drawn from the arrival process and sent
+ * then, whether or not earlier ones have been answered; its latency counts
+ * from that due time. A server that stalls therefore shows up as latency
+ * (and, past max-in-flight, dropped requests) rather than as a generator
+ * that quietly slows down with it.
+ *
+ * Each comma-separated order rate is one step, warmed up and then
+ * measured. A step is over its SLO when order p99 exceeds --slo-ms or any
+ * order failed; the summary names the highest rate that stayed within it.
+ * Orders use the simulator's drink mix ({@link DrinkMix}).
+ */
+public class LoadGenerator {
+
+    private static final String[] READS = {"/api/orders", "/api/baristas", "/api/stats", "/api/alerts",
+            "/api/stats/baristas"};
+    private static final int USERS = 100;
+
+    private final String url;
+    private final String shopId;  // Null for the default shop
+    private final double completeRate;  // Per second; negative = same as the order rate
+    private final double readRate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final double sloMs;
+    private final SplittableRandom random;
+
+    private final HttpClient client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private long[] baristaIds;
+
+    LoadGenerator(Map<String, String> options) {
+        url = options.getOrDefault("url", "http://localhost:8080").replaceAll("/+$", "");
+        shopId = options.get("shop");
+        completeRate = Double.parseDouble(options.getOrDefault("complete-rate", "-1"));
+        readRate = Double.parseDouble(options.getOrDefault("read-rate", "20"));
+        durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+        warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+        maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "10000"));
+        timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "10")));
+        sloMs = Double.parseDouble(options.getOrDefault("slo-ms", "100"));
+        random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "42")));
+        if (readRate < 0 || durationNanos <= 0 || warmupNanos < 0 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Rates and warmup must not be negative; duration and max-in-flight must be positive");
+        }
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        List<Double> rates = new ArrayList<>();
+        for (String rate : options.getOrDefault("rate", "20").split(",")) {
+            double value = Double.parseDouble(rate.trim());
+            if (!(value > 0)) {
+                throw new IllegalArgumentException("Order rates must be positive: " + rate);
+            }
+            rates.add(value);
+        }
+
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.loadBaristas();
+
+        double highestWithinSlo = 0;
+        for (double rate : rates) {
+            Map<String, EndpointStats> step = generator.runStep(rate);
+            boolean withinSlo = generator.report(rate, step);
+            if (withinSlo) {
+                highestWithinSlo = Math.max(highestWithinSlo, rate);
+            }
+        }
+        System.out.println(highestWithinSlo > 0
+                ? String.format(Locale.ROOT, "Highest order rate within SLO (p99 <= %.0f ms, no failed orders): %.1f/s",
+                        generator.sloMs, highestWithinSlo)
+                : "No order rate stayed within the SLO");
+    }
+
+    // --key=value (or --key value) pairs
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else if (i + 1 < args.length) {
+                options.put(arg.substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+        }
+        return options;
+    }
+
+    // Completions go to the shop's real baristas
+    private void loadBaristas() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get("/api/baristas"), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /api/baristas returned " + response.statusCode());
+        }
+        JsonNode baristas = new ObjectMapper().readTree(response.body());
+        baristaIds = new long[baristas.size()];
+        for (int i = 0; i < baristaIds.length; i++) {
+            baristaIds[i] = baristas.get(i).get("id").asLong();
+        }
+        if (baristaIds.length == 0) {
+            throw new IllegalStateException("The shop has no baristas");
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // ONE STEP
+    // ════════════════════════════════════════════════════════════════
+
+    /**
+     * Drive one order rate for warmup plus duration, then wait for the
+     * outstanding responses. Only requests due after the warmup count.
+     */
+    Map<String, EndpointStats> runStep(double orderRate) throws InterruptedException {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        EndpointStats orders = stats.computeIfAbsent("POST /api/orders", EndpointStats::new);
+        EndpointStats completes = stats.computeIfAbsent("POST /api/baristas/{id}/complete", EndpointStats::new);
+        EndpointStats[] reads = new EndpointStats[READS.length];
+        for (int i = 0; i < READS.length; i++) {
+            reads[i] = stats.computeIfAbsent("GET " + READS[i], EndpointStats::new);
+        }
+
+        // One Poisson stream at the total rate; each arrival picks its kind
+        // in proportion to the rates (superposition of the three streams)
+        double completions = completeRate < 0 ? orderRate : completeRate;
+        double total = orderRate + completions + readRate;
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / total;
+
+        long start = System.nanoTime();
+        long end = start + warmupNanos + durationNanos;
+        long measureFrom = start + warmupNanos;
+        long due = start;
+        while (true) {
+            due += (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+            if (due >= end) {
+                break;
+            }
+            sleepUntil(due);
+
+            double pick = random.nextDouble() * total;
+            HttpRequest request;
+            EndpointStats target;
+            boolean idleIsOk = false;
+            if (pick < orderRate) {
+                request = newOrder();
+                target = orders;
+            } else if (pick < orderRate + completions) {
+                long baristaId = baristaIds[random.nextInt(baristaIds.length)];
+                request = post("/api/baristas/" + baristaId + "/complete", HttpRequest.BodyPublishers.noBody());
+                target = completes;
+                idleIsOk = true;  // 404: the barista had nothing to finish
+            } else {
+                int read = random.nextInt(READS.length);
+                request = get(READS[read]);
+                target = reads[read];
+            }
+            send(request, due, due >= measureFrom ? target : null, idleIsOk);
+        }
+
+        // Let the last requests finish (each is bounded by the timeout)
+        long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return stats;
+    }
+
+    private void send(HttpRequest request, long dueNanos, EndpointStats stats, boolean idleIsOk) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            if (stats != null) {
+                stats.onDropped();
+            }
+            return;
+        }
+        if (stats != null) {
+            stats.onSent();
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long latency = System.nanoTime() - dueNanos;
+            inFlight.decrementAndGet();
+            if (stats == null) {
+                return;
+            }
+            int status = response != null ? response.statusCode() : 0;
+            if (error == null && (status < 400 || (idleIsOk && status == 404))) {
+                stats.onSuccess(latency);
+            } else {
+                stats.onError();
+            }
+        });
+    }
+
+    // Park until the due time; if we are already late, send right away
+    private static void sleepUntil(long dueNanos) {
+        long wait;
+        while ((wait = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private HttpRequest newOrder() {
+        int drink = DrinkMix.pick(random);
+        String body = String.format(Locale.ROOT,
+                "{\"drinkName\":\"%s\",\"prepTimeMinutes\":%d,\"loyaltyTier\":%d,\"isRegularCustomer\":%b,"
+                        + "\"username\":\"load-%d\"%s}",
+                DrinkMix.name(drink), DrinkMix.prepTimeMinutes(drink), 1 + random.nextInt(5),
+                random.nextDouble() < 0.4, random.nextInt(USERS),
+                shopId != null ? ",\"shopId\":\"" + shopId + "\"" : "");
+        return post("/api/orders", HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(timeout).GET().build();
+    }
+
+    private HttpRequest post(String path, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(uri(path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(body)
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(url + path + (shopId != null ? "?shopId=" + shopId : ""));
+    }
+
+    // ════════════════════════════════════════════════════════════════
+    // REPORT
+    // ════════════════════════════════════════════════════════════════
+
+    // Prints one step; returns whether orders stayed within the SLO
+    boolean report(double orderRate, Map<String, EndpointStats> stats) {
+        double seconds = durationNanos / 1e9;
+        System.out.printf(Locale.ROOT, "%nOrder rate %.1f/s, %.0f s measured after %.0f s warmup%n",
+                orderRate, seconds, warmupNanos / 1e9);
+        System.out.printf(Locale.ROOT, "%-36s %8s %8s %7s %8s %10s %9s %9s %9s %9s%n",
+                "Endpoint", "Sent", "OK", "Errors", "Dropped", "OK/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (EndpointStats endpoint : stats.values()) {
+            if (endpoint.getSent() + endpoint.getDropped() == 0) {
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-36s %8d %8d %7d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.getName(), endpoint.getSent(), endpoint.getSucceeded(), endpoint.getErrors(),
+                    endpoint.getDropped(), endpoint.getSucceeded() / seconds, endpoint.percentileMs(50),
+                    endpoint.percentileMs(99), endpoint.percentileMs(99.9), endpoint.maxMs());
+        }
+
+        EndpointStats orders = stats.get("POST /api/orders");
+        boolean withinSlo = orders.getErrors() == 0 && orders.getDropped() == 0
+                && orders.getSucceeded() > 0 && orders.percentileMs(99) <= sloMs;
+        System.out.println(withinSlo ? "Within SLO" : "OVER SLO");
+        return withinSlo;
+    }
+}
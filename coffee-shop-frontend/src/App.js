@@ -1,7 +1,31 @@
-import React, { useState, useEffect, useCallback } from 'react';
+import React, { useState, useEffect, useCallback, useRef } from 'react';
 
 const API_BASE = 'http://localhost:8080/api';
 
+// Same formula as PriorityModel on the server. Only the wait time changes
+// while an order is queued, so the dashboard re-ranks locally and the
+// server only pushes changes to the other inputs (fairness boosts).
+// The weights and thresholds are a copy of PriorityModel.DEFAULT and its
+// constants: keep the two in sync, or the local ranking drifts from the
+// order baristas are actually given.
+const livePriority = (order, nowMs) => {
+    const wait = (nowMs - new Date(order.arrivalTime).getTime()) / 1000 / 60;
+    const waitScore = Math.min(100, (wait / 10) * 100);
+    const complexityScore = ((8 - order.prepTimeMinutes) / 6) * 100;
+    const loyaltyScore = Math.min(100, (order.regularCustomer ? 50 : 0) + order.loyaltyTier * 10);
+    const urgencyScore = wait >= 9 ? 100
+        : wait >= 8 ? 75 + (wait - 8) * 25
+        : wait >= 6 ? 25 + ((wait - 6) / 2) * 50
+        : (wait / 6) * 25;
+    const boost = order.skipCount > 3 ? (order.skipCount - 3) * 15 : 0;
+    const base = 0.40 * waitScore + 0.25 * complexityScore + 0.10 * loyaltyScore + 0.25 * urgencyScore;
+    return Math.min(100, base + boost);
+};
+
+const rankQueue = (orders, nowMs) => orders
+    .map(order => ({ ...order, priority: livePriority(order, nowMs) }))
+    .sort((a, b) => (b.priority - a.priority) || (a.id - b.id));
+
 // ═══════════════════════════════════════════════════════════════════════════
 // OAUTH CALLBACK HANDLER
 // ═══════════════════════════════════════════════════════════════════════════
@@ -296,11 +320,65 @@ function Dashboard({ user, onLogout, onNavigateToStats }) {
         }
     }, [user.username]);
 
+    // Stats are cheap aggregates; refetch once per burst of deltas
+    const statsTimer = useRef(null);
+    const refreshStats = useCallback(() => {
+        if (statsTimer.current) return;
+        statsTimer.current = setTimeout(async () => {
+            statsTimer.current = null;
+            try {
+                const res = await fetch(`${API_BASE}/stats?username=${encodeURIComponent(user.username)}`);
+                setStats(await res.json());
+            } catch (error) {
+                console.error('Failed to fetch stats:', error);
+            }
+        }, 250);
+    }, [user.username]);
+
+    // Server-sent deltas replace polling. EventSource reconnects on its own
+    // and sends Last-Event-ID, so the server replays whatever was missed.
+    useEffect(() => {
+        const source = new EventSource(`${API_BASE}/stream?username=${encodeURIComponent(user.username)}`);
+        const on = (name, handler) => source.addEventListener(name, (e) => handler(JSON.parse(e.data)));
+
+        // Fresh start or too far behind: load full state
+        on('hello', () => fetchData());
+        on('resync', () => fetchData());
+
+        on('order-enqueued', (order) => {
+            setQueue(q => rankQueue([...q.filter(o => o.id !== order.id), order], Date.now()));
+            refreshStats();
+        });
+        on('order-reranked', (order) => {
+            setQueue(q => q.some(o => o.id === order.id)
+                ? rankQueue(q.map(o => (o.id === order.id ? order : o)), Date.now())
+                : q);
+        });
+        on('order-assigned', (order) => {
+            setQueue(q => q.filter(o => o.id !== order.id));
+            refreshStats();
+        });
+        on('order-completed', () => refreshStats());
+        on('barista-updated', (barista) => {
+            setBaristas(list => list.map(b => (b.id === barista.id ? barista : b)));
+            refreshStats();
+        });
+        on('alert-raised', (alert) => setAlerts(list => (
+            list.some(a => a.seq === alert.seq) ? list : [...list.slice(-49), alert]
+        )));
+
+        return () => {
+            source.close();
+            clearTimeout(statsTimer.current);
+            statsTimer.current = null;
+        };
+    }, [user.username, fetchData, refreshStats]);
+
+    // Wait times and priorities move every second; no network involved
     useEffect(() => {
-        fetchData();
-        const interval = setInterval(fetchData, 2000);
+        const interval = setInterval(() => setQueue(q => rankQueue(q, Date.now())), 1000);
         return () => clearInterval(interval);
-    }, [fetchData]);
+    }, []);
 
     const handleSubmit = async (e) => {
         e.preventDefault();
@@ -319,7 +397,6 @@ function Dashboard({ user, onLogout, onNavigateToStats }) {
                 })
             });
             setDrinkName('');
-            fetchData();
         } catch (error) {
             console.error('Failed to create order:', error);
         }
@@ -328,7 +405,6 @@ function Dashboard({ user, onLogout, onNavigateToStats }) {
     const handleComplete = async (baristaId) => {
         try {
             await fetch(`${API_BASE}/baristas/${baristaId}/complete`, { method: 'POST' });
-            fetchData();
         } catch (error) {
             console.error('Failed to complete order:', error);
         }
@@ -446,12 +522,12 @@ function Dashboard({ user, onLogout, onNavigateToStats }) {
                         <div style={{ marginTop: '25px' }}>
                             <h3 style={{ marginBottom: '10px', fontSize: '1rem' }}>⚠️ Alerts</h3>
                             <div className="alerts-list">
-                                {alerts.slice(-5).reverse().map((alert, idx) => (
+                                {alerts.slice(-5).reverse().map((alert) => (
                                     <div
-                                        key={idx}
-                                        className={`alert-item ${alert.includes('CRITICAL') ? 'critical' : alert.includes('FAIRNESS') ? 'fairness' : 'warning'}`}
+                                        key={alert.seq}
+                                        className={`alert-item ${alert.type === 'CRITICAL' ? 'critical' : alert.type === 'FAIRNESS' ? 'fairness' : 'warning'}`}
                                     >
-                                        {alert}
+                                        {alert.message}
                                     </div>
                                 ))}
                             </div>